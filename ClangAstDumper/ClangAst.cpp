@@ -346,9 +346,9 @@ ClangAstDumper PrintNodesTypesRelationsVisitor::getDumper() {
         consumer.close();
     }
 */
-MyASTConsumer::MyASTConsumer(ASTContext *C, int id, ClangAstDumper dumper) : id(id)
+MyASTConsumer::MyASTConsumer(ASTContext *C, int id, ClangAstDumper dumper) : id(id), Context(C)
 //MyASTConsumer::MyASTConsumer(ASTContext *C, int id, ClangAstDumper *dumper) : id(id)
-        ,topLevelDeclVisitor(C, id), printRelationsVisitor(C, id, dumper)  {
+        ,topLevelDeclVisitor(C, id), printRelationsVisitor(C, id, dumper), visitedPrecompiledDecls(false)  {
 /*
     this->id = id;
     this->dumper = ClangAstDumper(C, id);
@@ -375,6 +375,12 @@ MyASTConsumer::MyASTConsumer(ASTContext *C, int id, ClangAstDumper dumper) : id(
     // Override the method that gets called for each parsed top-level declaration.
     bool MyASTConsumer::HandleTopLevelDecl(DeclGroupRef DR) {
 
+        // Declarations that come from a precompiled header are visited before the first declaration of the source,
+        // as if the header had been parsed
+        if(!visitedPrecompiledDecls) {
+            visitPrecompiledDecls();
+        }
+
         for (DeclGroupRef::iterator b = DR.begin(), e = DR.end(); b != e; ++b) {
             // Traverse the declaration using our AST visitor.
             topLevelDeclVisitor.TraverseDecl(*b);
@@ -388,7 +394,33 @@ MyASTConsumer::MyASTConsumer(ASTContext *C, int id, ClangAstDumper dumper) : id(
         return true;
     }
 
+    void MyASTConsumer::visitPrecompiledDecls() {
+        visitedPrecompiledDecls = true;
+
+        // Top-level declarations loaded from an AST file are not passed to HandleTopLevelDecl
+        std::vector<Decl*> precompiledDecls;
+        for (auto decl : Context->getTranslationUnitDecl()->decls()) {
+            if(decl->isFromASTFile()) {
+                precompiledDecls.push_back(decl);
+            }
+        }
+
+        for (auto decl : precompiledDecls) {
+            topLevelDeclVisitor.TraverseDecl(decl);
+        }
+
+        for (auto decl : precompiledDecls) {
+            printRelationsVisitor.TraverseDecl(decl);
+        }
+    }
+
     void MyASTConsumer::HandleTranslationUnit(ASTContext &Ctx) {
+
+        // Sources without declarations
+        if(!visitedPrecompiledDecls) {
+            visitPrecompiledDecls();
+        }
+
     /*
         for (auto b = Ctx.getTranslationUnitDecl()->decls().begin(), e = Ctx.getTranslationUnitDecl()->decls().end(); b != e; ++b) {
             //counter++;
@@ -528,6 +560,13 @@ MyASTConsumer::MyASTConsumer(ASTContext *C, int id, ClangAstDumper dumper) : id(
             llvm::errs() << FileName.str() << "\n";
             llvm::errs() << sm.getSpellingLineNumber(HashLoc) << "\n";
             llvm::errs() << IsAngled << "\n";
+
+            // File that was actually included, as resolved by the preprocessor
+            if (File != nullptr && FileType == SrcMgr::C_User) {
+                StringRef realPath = File->tryGetRealPathName();
+                llvm::errs() << DEPENDENCIES << "\n";
+                llvm::errs() << (realPath.empty() ? File->getName() : realPath).str() << "\n";
+            }
         }
     }
 
@@ -166,9 +166,13 @@ class MyASTConsumer : public ASTConsumer {
 private:
 
     int id;
+    ASTContext *Context;
     //ClangAstDumper dumper;
     DumpAstVisitor topLevelDeclVisitor;
     PrintNodesTypesRelationsVisitor printRelationsVisitor;
+    bool visitedPrecompiledDecls;
+
+    void visitPrecompiledDecls();
 
     public:
     MyASTConsumer(ASTContext *C, int id, ClangAstDumper dumper);
@@ -67,6 +67,8 @@ static const std::string TOP_LEVEL_ATTRIBUTES = "<Top Level Attributes>";
 
 static const std::string INCLUDES = "<Includes>";
 
+static const std::string DEPENDENCIES = "<Dependencies>";
+
 static const std::string ID_FILE_MAP = "<Id-File Map>";
 
 static const std::string COMPILER_INSTANCE_DATA = "<Compiler Instance Data>";
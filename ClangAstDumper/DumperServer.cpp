@@ -0,0 +1,79 @@
+//
+// Created by JoaoBispo on 18/10/2019.
+//
+
+#include "DumperServer.h"
+#include "ClangAst.h"
+
+#include <clang/Tooling/CompilationDatabase.h>
+
+#include <cstring>
+#include <iostream>
+#include <vector>
+
+using namespace clang::tooling;
+
+int clava::dumpAst(ClangTool &tool, int id, int systemHeaderThreshold) {
+    // Making it static/global because I do not know how to create actions with arbitrary arguments using newFrontendActionFactory
+    DumpResources::init(id, systemHeaderThreshold);
+
+    int returnCode = tool.run(newFrontendActionFactory<DumpIncludesAction>().get());
+
+    if(returnCode != 0) {
+        std::cout << "Error while running IncludeFinderAction (return code "<< returnCode <<")";
+        DumpResources::finish();
+        return returnCode;
+    }
+
+    returnCode = tool.run(newFrontendActionFactory<DumpAstAction>().get());
+
+    DumpResources::finish();
+
+    return returnCode;
+}
+
+bool clava::DumperServer::isServerMode(int argc, const char *argv[]) {
+    for(int i = 1; i < argc; i++) {
+        if(std::strcmp(argv[i], "-server") == 0) {
+            return true;
+        }
+    }
+
+    return false;
+}
+
+int clava::DumperServer::run() {
+    std::string idLine;
+    while(std::getline(std::cin, idLine)) {
+        std::string thresholdLine, source, numArgsLine;
+        if(!std::getline(std::cin, thresholdLine) || !std::getline(std::cin, source) || !std::getline(std::cin, numArgsLine)) {
+            std::cout << "Incomplete request";
+            return 1;
+        }
+
+        int numArgs = std::stoi(numArgsLine);
+        std::vector<std::string> arguments;
+        for(int i = 0; i < numArgs; i++) {
+            std::string argument;
+            if(!std::getline(std::cin, argument)) {
+                std::cout << "Incomplete request";
+                return 1;
+            }
+            arguments.push_back(argument);
+        }
+
+        // Same compilation database as the one created for the arguments after '--'
+        FixedCompilationDatabase compilations(".", arguments);
+        ClangTool tool(compilations, std::vector<std::string>{source});
+
+        int returnCode = dumpAst(tool, std::stoi(idLine), std::stoi(thresholdLine));
+
+        std::cout << "\n" << REQUEST_END << "\n";
+        std::cout.flush();
+
+        llvm::errs() << "\n" << REQUEST_END << "\n" << returnCode << "\n";
+        llvm::errs().flush();
+    }
+
+    return 0;
+}
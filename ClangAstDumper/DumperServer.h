@@ -0,0 +1,46 @@
+//
+// Created by JoaoBispo on 18/10/2019.
+//
+
+#ifndef CLANGASTDUMPER_DUMPERSERVER_H
+#define CLANGASTDUMPER_DUMPERSERVER_H
+
+#include <clang/Tooling/Tooling.h>
+
+#include <string>
+
+namespace clava {
+
+    /**
+     * Marks the end of the output of a request, in both stdout and stderr.
+     */
+    static const std::string REQUEST_END = "<Clava Dumper Request End>";
+
+    /**
+     * Dumps the includes and the AST of the sources of the tool.
+     *
+     * @return the return code of the tool
+     */
+    int dumpAst(clang::tooling::ClangTool &tool, int id, int systemHeaderThreshold);
+
+    /**
+     * Keeps the dumper alive, parsing the sources that are requested through stdin.
+     *
+     * Each request has the lines: id, system header threshold, source file, number of compiler arguments, followed by
+     * one line per compiler argument. After the output of each request, REQUEST_END is written to stdout and to
+     * stderr, and the return code is written to stderr. The server stops at the end of stdin.
+     */
+    class DumperServer {
+    public:
+        /**
+         * @return true if the server option (-server) is present. The normal command-line parser cannot be used in
+         * this mode, since sources are not given in the command line.
+         */
+        static bool isServerMode(int argc, const char *argv[]);
+
+        static int run();
+    };
+
+}
+
+#endif //CLANGASTDUMPER_DUMPERSERVER_H
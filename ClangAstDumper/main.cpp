@@ -3,7 +3,9 @@
 //
 
 #include "ClangAst.h"
+#include "DumperServer.h"
 
+#include <clang/Tooling/ArgumentsAdjusters.h>
 #include <clang/Tooling/CommonOptionsParser.h>
 #include <clang/Tooling/Tooling.h>
 
@@ -14,10 +16,17 @@ using namespace clang::tooling;
 static llvm::cl::OptionCategory MyToolCategory("my-tool options");
 static llvm::cl::opt<int> UserIdOption("id", llvm::cl::cat(MyToolCategory));
 static llvm::cl::opt<int> UserSystemHeaderThresholdOption("system-header-threshold", llvm::cl::cat(MyToolCategory));
+static llvm::cl::opt<std::string> EmitPchOption("emit-pch", llvm::cl::cat(MyToolCategory));
+// Checked before parsing the command line (see DumperServer::isServerMode), declared so that it is accepted
+static llvm::cl::opt<bool> ServerOption("server", llvm::cl::cat(MyToolCategory));
 
 int main(int argc, const char *argv[])
 {
-
+    // Persistent worker, sources are received through stdin
+    if(clava::DumperServer::isServerMode(argc, argv)) {
+        llvm::cl::ParseCommandLineOptions(argc, argv);
+        return clava::DumperServer::run();
+    }
 
     CommonOptionsParser OptionsParser(argc, argv, MyToolCategory);
     ClangTool Tool(OptionsParser.getCompilations(),
@@ -29,20 +38,13 @@ int main(int argc, const char *argv[])
     }
      */
 
-    // Making it static/global because I do not know how to create actions with arbitrary arguments using newFrontendActionFactory
-    DumpResources::init(UserIdOption.getValue(), UserSystemHeaderThresholdOption.getValue());
-
-    int returnCode = Tool.run(newFrontendActionFactory<DumpIncludesAction>().get());
-
-    if(returnCode != 0) {
-        std::cout << "Error while running IncludeFinderAction (return code "<< returnCode <<")";
-        DumpResources::finish();
-        return returnCode;
+    // Only builds a precompiled header of the given source, that can be used by other executions with -include-pch
+    if(!EmitPchOption.getValue().empty()) {
+        // The tool removes output flags from the compilation arguments
+        Tool.appendArgumentsAdjuster(getInsertArgumentAdjuster({"-o", EmitPchOption.getValue()},
+                                                               ArgumentInsertPosition::END));
+        return Tool.run(newFrontendActionFactory<clang::GeneratePCHAction>().get());
     }
 
-    returnCode = Tool.run(newFrontendActionFactory<DumpAstAction>().get());
-
-    DumpResources::finish();
-
-    return returnCode;
-}
\ No newline at end of file
+    return clava::dumpAst(Tool, UserIdOption.getValue(), UserSystemHeaderThresholdOption.getValue());
+}
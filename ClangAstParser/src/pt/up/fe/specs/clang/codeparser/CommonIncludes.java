@@ -0,0 +1,182 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clang.codeparser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import pt.up.fe.specs.clava.utils.SourceType;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.utilities.LineStream;
+
+/**
+ * Finds the include directives that all sources of a program start with, which can be parsed once into a precompiled
+ * header.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class CommonIncludes {
+
+    private static final String INCLUDE_DIRECTIVE = "#include";
+
+    private CommonIncludes() {
+    }
+
+    /**
+     * Only sources that are not headers are considered, since headers usually start with include guards.
+     *
+     * @param sources
+     * @return the sources that can use the precompiled header of the common includes
+     */
+    public static List<File> getImplementationSources(List<File> sources) {
+        return sources.stream()
+                .filter(source -> !SourceType.isHeader(source))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     *
+     * @param sources
+     * @return the include directives that are at the start of all the given sources, in the same order
+     */
+    public static List<String> getCommonPrefix(List<File> sources) {
+        List<String> commonPrefix = null;
+
+        for (File source : sources) {
+            List<String> includes = getLeadingIncludes(source);
+
+            if (commonPrefix == null) {
+                commonPrefix = includes;
+                continue;
+            }
+
+            int prefixSize = 0;
+            while (prefixSize < commonPrefix.size() && prefixSize < includes.size()
+                    && commonPrefix.get(prefixSize).equals(includes.get(prefixSize))) {
+                prefixSize++;
+            }
+
+            commonPrefix = commonPrefix.subList(0, prefixSize);
+
+            if (commonPrefix.isEmpty()) {
+                break;
+            }
+        }
+
+        return commonPrefix == null ? new ArrayList<>() : new ArrayList<>(commonPrefix);
+    }
+
+    /**
+     * Writes a header with the given include directives.
+     *
+     * @param includes
+     * @param header
+     */
+    public static void writeHeader(List<String> includes, File header) {
+        SpecsIo.write(header, includes.stream().collect(Collectors.joining("\n", "", "\n")));
+    }
+
+    /**
+     * Include directives with angle brackets before any other code. Any other preprocessor directive ends the list,
+     * since it can change the meaning of the includes that follow.
+     *
+     * @param source
+     * @return
+     */
+    private static List<String> getLeadingIncludes(File source) {
+        List<String> includes = new ArrayList<>();
+
+        try (LineStream lines = LineStream.newInstance(source)) {
+            boolean inBlockComment = false;
+
+            while (lines.hasNextLine()) {
+                String line = lines.nextLine().trim();
+
+                if (inBlockComment) {
+                    int commentEnd = line.indexOf("*/");
+                    if (commentEnd == -1) {
+                        continue;
+                    }
+
+                    inBlockComment = false;
+                    line = line.substring(commentEnd + 2).trim();
+                }
+
+                if (line.isEmpty() || line.startsWith("//")) {
+                    continue;
+                }
+
+                // Only comments that start and end in the same line, or that end the line
+                if (line.startsWith("/*")) {
+                    int commentEnd = line.indexOf("*/", 2);
+                    if (commentEnd == -1) {
+                        inBlockComment = true;
+                        continue;
+                    }
+
+                    if (!line.substring(commentEnd + 2).trim().isEmpty()) {
+                        break;
+                    }
+
+                    continue;
+                }
+
+                if (!isInclude(line)) {
+                    break;
+                }
+
+                String include = normalizeInclude(line);
+
+                // Quoted includes are relative to the folder of the source, and might not be the same file
+                if (!include.startsWith(INCLUDE_DIRECTIVE + " <")) {
+                    break;
+                }
+
+                includes.add(include);
+            }
+        }
+
+        return includes;
+    }
+
+    private static boolean isInclude(String line) {
+        if (!line.startsWith("#")) {
+            return false;
+        }
+
+        String directive = line.substring(1).trim();
+        String name = INCLUDE_DIRECTIVE.substring(1);
+
+        // Excludes other directives such as #include_next
+        if (!directive.startsWith(name) || directive.length() == name.length()) {
+            return false;
+        }
+
+        char nextChar = directive.charAt(name.length());
+        if (!Character.isWhitespace(nextChar) && nextChar != '<' && nextChar != '"') {
+            return false;
+        }
+
+        // Line continuations and comments after the directive are not supported
+        return !line.endsWith("\\") && !line.contains("//") && !line.contains("/*");
+    }
+
+    private static String normalizeInclude(String line) {
+        String file = line.substring(1).trim().substring(INCLUDE_DIRECTIVE.length() - 1).trim();
+        return INCLUDE_DIRECTIVE + " " + file;
+    }
+}
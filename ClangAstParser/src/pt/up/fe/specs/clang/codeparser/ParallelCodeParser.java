@@ -17,12 +17,15 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -36,6 +39,7 @@ import pt.up.fe.specs.clang.ClangAstKeys;
 import pt.up.fe.specs.clang.ClangResources;
 import pt.up.fe.specs.clang.codeparser.clangparser.AstDumpParser;
 import pt.up.fe.specs.clang.codeparser.clangparser.ClangParser;
+import pt.up.fe.specs.clang.codeparser.clangparser.DumperWorkerPool;
 import pt.up.fe.specs.clang.parsers.ClangParserData;
 import pt.up.fe.specs.clang.streamparserv2.ClangStreamParser;
 import pt.up.fe.specs.clang.textparser.TextParser;
@@ -46,6 +50,7 @@ import pt.up.fe.specs.clava.ClavaOptions;
 import pt.up.fe.specs.clava.ast.extra.App;
 import pt.up.fe.specs.clava.ast.extra.TranslationUnit;
 import pt.up.fe.specs.clava.context.ClavaContext;
+import pt.up.fe.specs.clava.context.ClavaIdGenerator;
 import pt.up.fe.specs.clava.language.Standard;
 import pt.up.fe.specs.clava.utils.SourceType;
 import pt.up.fe.specs.util.SpecsIo;
@@ -65,14 +70,19 @@ import pt.up.fe.specs.util.SpecsSystem;
 // public class ParallelCodeParser extends ACodeParser<ParallelCodeParser> {
 public class ParallelCodeParser extends CodeParser {
 
+    /**
+     * Prefix used to generate the ids that are passed to the dumper.
+     */
+    private static final String SOURCE_ID_PREFIX = "parallel_parser_source_";
+
     /// DATAKEY BEGIN
 
     public static final DataKey<Boolean> PARALLEL_PARSING = KeyFactory.bool("parallelParsing")
-            // .setDefault(() -> true)
+            .setDefault(() -> true)
             .setLabel("Parallel parsing of source files");
 
-    public static final DataKey<Integer> PARSING_NUM_THREADS = KeyFactory.integer("parsingNumThreads", 1)
-            .setLabel("Number of threads to use for parallel parsing");
+    public static final DataKey<Integer> PARSING_NUM_THREADS = KeyFactory.integer("parsingNumThreads", 0)
+            .setLabel("Number of threads to use for parallel parsing (0 uses the number of available processors)");
 
     public static final DataKey<Integer> SYSTEM_INCLUDES_THRESHOLD = KeyFactory.integer("systemIncludesThreshold", 1)
             .setLabel("System Includes parsing threshold (0 parses all system include headers found)");
@@ -80,9 +90,30 @@ public class ParallelCodeParser extends CodeParser {
     public static final DataKey<Boolean> CONTINUE_ON_PARSING_ERRORS = KeyFactory.bool("continueOnParsingErrors")
             .setLabel("Ignores parsing errors in C/C++ source code");
 
+    public static final DataKey<String> PARSING_CACHE_FOLDER = KeyFactory.string("parsingCacheFolder")
+            .setLabel("Folder where the output of the parser is cached between executions (empty disables the cache)");
+
+    public static final DataKey<Integer> PARSING_CACHE_MAX_ENTRIES = KeyFactory.integer("parsingCacheMaxEntries", 1000)
+            .setLabel("Maximum number of parsed files kept in the parsing cache (0 keeps all)");
+
+    public static final DataKey<Boolean> PRECOMPILED_HEADER = KeyFactory.bool("precompiledHeader")
+            .setLabel("Includes that are common to all source files are parsed once, into a precompiled header");
+
+    public static final DataKey<Integer> DUMPER_WORKER_SOURCES = KeyFactory.integer("dumperWorkerSources", 0)
+            .setLabel("Sources parsed by each persistent dumper process before restarting it (0 disables workers)");
+
     // public static final DataKey<Integer> SYSTEM_INCLUDES_THRESHOLD = KeyFactory.integer("systemIncludesThreshold", 1)
     // .setLabel("Number of threads to use for parallel parsing");
 
+    /**
+     * Translation units that were parsed previously and are not parsed again (e.g., during an incremental rebuild).
+     * Their nodes are used when normalizing the fields of the newly parsed translation units, but they are not added to
+     * the returned App.
+     */
+    public static final DataKey<List<TranslationUnit>> BASE_TRANSLATION_UNITS = KeyFactory
+            .generic("baseTranslationUnits", (List<TranslationUnit>) new ArrayList<TranslationUnit>())
+            .setDefault(() -> new ArrayList<>());
+
     /// DATAKEY END
 
     @Override
@@ -135,42 +166,94 @@ public class ParallelCodeParser extends CodeParser {
         ClavaLog.info("Found " + sources.size() + " source files");
         // ClavaLog.debug(() -> "[ParallelCodeParser] Files to parse:" + sources);
 
+        ParsingCache parsingCache = get(PARSING_CACHE_FOLDER).isEmpty() ? null
+                : new ParsingCache(new File(get(PARSING_CACHE_FOLDER)), get(PARSING_CACHE_MAX_ENTRIES));
+
         File parsingFolder = SpecsIo.getTempFolder("clava_parsing_" + UUID.randomUUID().toString());
         ClavaLog.debug(() -> "Parsing using folder '" + parsingFolder + "'");
 
+        Set<File> precompiledHeaderSources = new HashSet<>();
+        File precompiledHeader = buildPrecompiledHeader(sources, standard, options, parsingFolder, clangExecutable,
+                builtinIncludes, parsingCache, precompiledHeaderSources);
+
+        DumperWorkerPool workerPool = get(DUMPER_WORKER_SOURCES) > 0
+                ? new DumperWorkerPool(clangExecutable, parsingFolder, get(DUMPER_WORKER_SOURCES))
+                : null;
+
         // AtomicInteger currentSourceFileIndex = new AtomicInteger(0);
         ParallelProgressCounter counter = new ParallelProgressCounter(sources.size());
 
         long tic = System.nanoTime();
 
-        // TODO: Allow parameter to specify parallelism
-        int numThreads = get(PARALLEL_PARSING) ? get(PARSING_NUM_THREADS) : 1;
+        int numThreads = getNumThreads();
 
         ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-
-        List<Future<ClangParserData>> futureTUnits = new ArrayList<>();
+        CompletionService<ClangParserData> completionService = new ExecutorCompletionService<>(executor);
+        ParsingScheduler scheduler = new ParsingScheduler();
+
+        // Ids are assigned in the sorted order of the sources, independently of the order of parsing. When parsing
+        // together with translation units of a previous parsing (i.e., incremental rebuild), ids come from the
+        // context, so that the nodes of both parsings do not collide. The context counter is always advanced, so
+        // that it stays above the ids 1..n of normal parsings
+        boolean hasBaseTUnits = !get(BASE_TRANSLATION_UNITS).isEmpty();
+        ClavaIdGenerator idGenerator = context.get(ClavaContext.ID_GENERATOR);
+        Map<File, String> sourceIds = new HashMap<>();
         for (int i = 0; i < sources.size(); i++) {
-            String id = Integer.toString(i + 1);
-            File source = sources.get(i);
-
-            Future<ClangParserData> tUnit = executor
-                    .submit(() -> parseSource(source, id, standard, options, clangDump,
-                            counter, parsingFolder, clangExecutable, builtinIncludes));
-
-            futureTUnits.add(tUnit);
+            int contextId = idGenerator.nextInt(SOURCE_ID_PREFIX);
+            String id = Integer.toString(hasBaseTUnits ? contextId : i + 1);
+            sourceIds.put(sources.get(i), id);
+        }
 
+        // When parsing in parallel, most expensive sources are submitted first, threads take the next source from the
+        // queue when they finish
+        List<File> parsingOrder = numThreads > 1 ? scheduler.order(sources) : sources;
+        Map<Future<ClangParserData>, File> futureSources = new HashMap<>();
+        for (File source : parsingOrder) {
+            String id = sourceIds.get(source);
+
+            Future<ClangParserData> futureData = completionService.submit(() -> {
+                long parsingTic = System.nanoTime();
+                ClangParserData data = parseSource(source, id, standard, options, clangDump,
+                        counter, parsingFolder, clangExecutable, builtinIncludes, parsingCache,
+                        precompiledHeaderSources.contains(source) ? precompiledHeader : null, workerPool);
+                scheduler.record(source, System.nanoTime() - parsingTic);
+                return data;
+            });
+
+            futureSources.put(futureData, source);
         }
 
         // No more taks to submit
         executor.shutdown();
 
-        // Collect parsing results
-        List<ClangParserData> clangParserResults = futureTUnits.stream()
-                .map(SpecsSystem::get)
-                .collect(Collectors.toList());
+        // Collect parsing results as they finish, indexing the nodes of each translation unit while the remaining
+        // sources are being parsed
+        boolean normalizeNodes = true;
+        TUnitProcessor tUnitProcessor = new TUnitProcessor(normalizeNodes, get(BASE_TRANSLATION_UNITS));
+        Map<File, ClangParserData> parsingResults = new HashMap<>();
+        try {
+            for (int i = 0; i < sources.size(); i++) {
+                Future<ClangParserData> futureData = takeNext(completionService);
+                ClangParserData data = SpecsSystem.get(futureData);
+                parsingResults.put(futureSources.get(futureData), data);
+                tUnitProcessor.add(data);
+            }
+        } finally {
+            if (workerPool != null) {
+                workerPool.close();
+            }
 
-        // Delete temporary folder
-        SpecsIo.deleteFolder(parsingFolder);
+            // If collecting the results failed, sources still waiting are not parsed
+            executor.shutdownNow();
+
+            // Delete temporary folder
+            SpecsIo.deleteFolder(parsingFolder);
+        }
+
+        // Results in the same order as the sources
+        List<ClangParserData> clangParserResults = sources.stream()
+                .map(parsingResults::get)
+                .collect(Collectors.toList());
 
         // List<TranslationUnit> tUnits = SpecsCollections.getStream(allSources.keySet(), get(PARALLEL_PARSING))
         // .map(sourceFile -> parseSource(new File(sourceFile), standard, options, clangDump,
@@ -217,8 +300,12 @@ public class ParallelCodeParser extends CodeParser {
         }
 
         tic = System.nanoTime();
-        boolean normalizeNodes = true;
-        List<TranslationUnit> tUnits = new TUnitProcessor(clangParserResults, normalizeNodes).getTranslationUnits();
+
+        // Normalization returns the translation units in the order they finished parsing
+        tUnitProcessor.getTranslationUnits();
+        List<TranslationUnit> tUnits = clangParserResults.stream()
+                .map(data -> data.get(ClangParserData.TRANSLATION_UNIT))
+                .collect(Collectors.toList());
 
         App app = context.get(ClavaContext.FACTORY).app(tUnits);
 
@@ -246,10 +333,6 @@ public class ParallelCodeParser extends CodeParser {
             ClavaLog.metrics("Current memory used (Java):" + usedSize);
         }
 
-        // Cached filepaths metrics
-        // ClavaLog.metrics(
-        // "Cached filepaths analytics:\n" + app.getContext().get(ClavaContext.CACHED_FILEPATHS).getAnalytics());
-
         // Perform second pass over types
         // processTypesSecondPass();
 
@@ -287,6 +370,28 @@ public class ParallelCodeParser extends CodeParser {
     // return sourceFiles.stream();
     // }
 
+    private static <T> Future<T> takeNext(CompletionService<T> completionService) {
+        try {
+            return completionService.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for parsing results", e);
+        }
+    }
+
+    private int getNumThreads() {
+        if (!get(PARALLEL_PARSING)) {
+            return 1;
+        }
+
+        int numThreads = get(PARSING_NUM_THREADS);
+        if (numThreads > 0) {
+            return numThreads;
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     private Standard getStandard(Collection<File> sources, DataStore options) {
         // If standard has been defined, return it
         if (options.hasValue(ClavaOptions.STANDARD)) {
@@ -333,9 +438,80 @@ public class ParallelCodeParser extends CodeParser {
         // return null;
     }
 
+    /**
+     * Builds a precompiled header with the includes that all implementation files start with, if enabled.
+     * 
+     * @param sources
+     * @param standard
+     * @param options
+     * @param parsingFolder
+     * @param clangExecutable
+     * @param builtinIncludes
+     * @param parsingCache
+     * @param precompiledHeaderSources
+     *            the sources that can use the precompiled header are added to this set
+     * @return the precompiled header, or null if it was not built
+     */
+    private File buildPrecompiledHeader(List<File> sources, Standard standard, DataStore options,
+            File parsingFolder, File clangExecutable, List<String> builtinIncludes, ParsingCache parsingCache,
+            Set<File> precompiledHeaderSources) {
+
+        if (!get(PRECOMPILED_HEADER)) {
+            return null;
+        }
+
+        // The cache does not track the headers that are inside the precompiled header
+        if (parsingCache != null) {
+            ClavaLog.info("Precompiled header is not used when the parsing cache is enabled");
+            return null;
+        }
+
+        // OpenCL sources are parsed with different flags
+        if (standard.isOpenCL() || sources.stream().anyMatch(source -> SpecsIo.getExtension(source).equals("cl"))) {
+            return null;
+        }
+
+        List<File> implementationSources = CommonIncludes.getImplementationSources(sources);
+
+        // Only worthwhile if the includes are shared
+        if (implementationSources.size() < 2) {
+            return null;
+        }
+
+        List<String> commonIncludes = CommonIncludes.getCommonPrefix(implementationSources);
+        if (commonIncludes.isEmpty()) {
+            return null;
+        }
+
+        File header = new File(parsingFolder, "clava_common_includes.h");
+        CommonIncludes.writeHeader(commonIncludes, header);
+        File precompiledHeader = new File(parsingFolder, "clava_common_includes.h.pch");
+
+        long tic = System.nanoTime();
+
+        AstDumpParser clangParser = new AstDumpParser(get(SHOW_CLANG_DUMP), get(USE_CUSTOM_RESOURCES), false,
+                clangExecutable, builtinIncludes)
+                        .setBaseFolder(parsingFolder)
+                        .setSystemIncludesThreshold(get(SYSTEM_INCLUDES_THRESHOLD));
+
+        if (!clangParser.buildPrecompiledHeader(header, precompiledHeader, standard, options)) {
+            ClavaLog.info("Could not build precompiled header, parsing sources without it");
+            return null;
+        }
+
+        if (get(SHOW_EXEC_INFO)) {
+            ClavaLog.metrics(SpecsStrings.takeTime("Precompiled header (" + commonIncludes.size() + " includes)", tic));
+        }
+
+        precompiledHeaderSources.addAll(implementationSources);
+
+        return precompiledHeader;
+    }
+
     private ClangParserData parseSource(File sourceFile, String id, Standard standard, DataStore options,
             ConcurrentLinkedQueue<String> clangDump, ParallelProgressCounter counter, File parsingFolder,
-            File clangExecutable, List<String> builtinIncludes) {
+            File clangExecutable, List<String> builtinIncludes, ParsingCache parsingCache, File precompiledHeader,
+            DumperWorkerPool workerPool) {
         // ConcurrentLinkedQueue<String> clangDump, ConcurrentLinkedQueue<File> workingFolders) {
 
         // Adapt compiler options according to the file
@@ -343,12 +519,15 @@ public class ParallelCodeParser extends CodeParser {
 
         // Disable streaming of console output if parsing is to be done in parallel
         // Only show output of console after parsing is done, when using parallel parsing
-        boolean streamConsoleOutput = !get(PARALLEL_PARSING);
+        boolean streamConsoleOutput = getNumThreads() == 1;
 
         ClangParser clangParser = new AstDumpParser(get(SHOW_CLANG_DUMP), get(USE_CUSTOM_RESOURCES),
                 streamConsoleOutput, clangExecutable, builtinIncludes)
                         .setBaseFolder(parsingFolder)
-                        .setSystemIncludesThreshold(get(SYSTEM_INCLUDES_THRESHOLD));
+                        .setSystemIncludesThreshold(get(SYSTEM_INCLUDES_THRESHOLD))
+                        .setParsingCache(parsingCache)
+                        .setPrecompiledHeader(precompiledHeader)
+                        .setWorkerPool(workerPool);
         // .setUsePlatformLibc(get(ClangAstKeys.USE_PLATFORM_INCLUDES));
 
         counter.print(sourceFile);
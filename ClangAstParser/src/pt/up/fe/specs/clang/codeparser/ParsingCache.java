@@ -0,0 +1,352 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clang.codeparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import pt.up.fe.specs.clava.ClavaLog;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.utilities.StringLines;
+
+/**
+ * Persistent cache of the output of the Clang AST dumper.
+ *
+ * <p>
+ * Entries are keyed by the contents of the source file, the arguments passed to the dumper, the contents of the dumper
+ * executable and the files in the system include folders passed to the dumper (by path, size and modification date).
+ * Each entry stores the contents hash of the user headers that the dumper reported as included when the entry was
+ * created, and is only used if those headers did not change.
+ *
+ * <p>
+ * Include folders that the dumper finds by itself, without arguments, are not tracked. After updating them, the cache
+ * folder should be deleted, which is always safe to do.
+ *
+ * <p>
+ * When the cache is opened, the least recently used entries above the maximum number of entries are removed.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class ParsingCache {
+
+    private static final String MANIFEST_FILENAME = "manifest.txt";
+    private static final String STDOUT_FILENAME = "stdout.txt";
+    private static final String STDERR_FILENAME = "stderr.txt";
+    private static final String ADDRESSES_FILENAME = "addresses.txt";
+
+    /**
+     * Matches node ids generated by the dumper, which have the format &lt;address&gt;_&lt;dumper id&gt;, capturing the
+     * address. The format of the address depends on the platform (e.g., 0x55d4a0c3b2e8, 000055D4A0C3B2E8), only
+     * addresses of nodes created when the entry was stored are replaced.
+     */
+    private static final String ID_REGEX_TEMPLATE = "\\b([0-9a-zA-Z]+)_%s\\b";
+
+    private final File cacheFolder;
+
+    // Hashes of the dumper executable and of the system include folders, computed once per file
+    private final Map<File, String> fingerprints;
+
+    /**
+     *
+     * @param cacheFolder
+     * @param maxEntries
+     *            the maximum number of entries kept between executions, or 0 for no limit
+     */
+    public ParsingCache(File cacheFolder, int maxEntries) {
+        this.cacheFolder = SpecsIo.mkdir(cacheFolder);
+        this.fingerprints = new ConcurrentHashMap<>();
+
+        if (maxEntries > 0) {
+            removeLeastRecentlyUsed(maxEntries);
+        }
+    }
+
+    private void removeLeastRecentlyUsed(int maxEntries) {
+        File[] entryFolders = cacheFolder.listFiles(File::isDirectory);
+        if (entryFolders == null || entryFolders.length <= maxEntries) {
+            return;
+        }
+
+        // Entries without manifest are incomplete, and are removed first
+        Comparator<File> byLastUse = Comparator
+                .comparingLong(entryFolder -> new File(entryFolder, MANIFEST_FILENAME).lastModified());
+        List<File> entriesByUse = Arrays.stream(entryFolders)
+                .sorted(byLastUse)
+                .collect(Collectors.toList());
+
+        int numToRemove = entriesByUse.size() - maxEntries;
+        for (File entryFolder : entriesByUse.subList(0, numToRemove)) {
+            SpecsIo.deleteFolder(entryFolder);
+        }
+
+        ClavaLog.debug(() -> "Removed " + numToRemove + " least recently used entries from " + this);
+    }
+
+    /**
+     * Dumper output that was stored in the cache.
+     */
+    public static class CachedDump {
+        private final String stdOut;
+        private final File stdErr;
+        private final String id;
+        private final Set<String> addresses;
+
+        private CachedDump(String stdOut, File stdErr, String id, Set<String> addresses) {
+            this.stdOut = stdOut;
+            this.stdErr = stdErr;
+            this.id = id;
+            this.addresses = addresses;
+        }
+
+        public String getStdOut() {
+            return stdOut;
+        }
+
+        /**
+         *
+         * @param newId
+         * @return the stderr output of the dumper, with node ids adapted to the given dumper id
+         */
+        public String getStdErr(String newId) {
+            String stdErr = SpecsIo.read(this.stdErr);
+
+            if (id.equals(newId)) {
+                return stdErr;
+            }
+
+            Matcher matcher = Pattern.compile(String.format(ID_REGEX_TEMPLATE, Pattern.quote(id))).matcher(stdErr);
+            StringBuffer adaptedStdErr = new StringBuffer(stdErr.length());
+            while (matcher.find()) {
+                // Other text that happens to end with the id (e.g., the name of a variable) is kept
+                String replacement = addresses.contains(matcher.group(1)) ? matcher.group(1) + "_" + newId
+                        : matcher.group();
+
+                matcher.appendReplacement(adaptedStdErr, Matcher.quoteReplacement(replacement));
+            }
+            matcher.appendTail(adaptedStdErr);
+
+            return adaptedStdErr.toString();
+        }
+    }
+
+    /**
+     *
+     * @param sourceFile
+     * @param arguments
+     *            the complete command used to call the dumper, except the dumper id
+     * @return the key that identifies the given parsing
+     */
+    public String getKey(File sourceFile, List<String> arguments) {
+        MessageDigest digest = newDigest();
+
+        digest.update(SpecsIo.getCanonicalPath(sourceFile).getBytes(StandardCharsets.UTF_8));
+        update(digest, sourceFile);
+
+        for (String argument : arguments) {
+            digest.update(argument.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        // The first argument is the dumper executable, its contents identify the version
+        if (!arguments.isEmpty()) {
+            File executable = new File(arguments.get(0));
+            digest.update(fingerprints.computeIfAbsent(executable, file -> file.isFile() ? getHash(file) : "")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Headers of system include folders are not reported as dependencies
+        for (int i = 0; i < arguments.size() - 1; i++) {
+            if (!arguments.get(i).equals("-isystem")) {
+                continue;
+            }
+
+            File includeFolder = new File(arguments.get(i + 1));
+            digest.update(fingerprints.computeIfAbsent(includeFolder, ParsingCache::getFolderFingerprint)
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     *
+     * @param folder
+     * @return a hash of the path, size and modification date of the files in the folder
+     */
+    private static String getFolderFingerprint(File folder) {
+        MessageDigest digest = newDigest();
+
+        if (folder.isDirectory()) {
+            List<File> files = new ArrayList<>(SpecsIo.getFilesRecursive(folder));
+            files.sort(Comparator.comparing(File::getPath));
+
+            for (File file : files) {
+                digest.update(file.getPath().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Long.toString(file.length()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Long.toString(file.lastModified()).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    public Optional<CachedDump> get(String key) {
+        File entryFolder = new File(cacheFolder, key);
+        File manifest = new File(entryFolder, MANIFEST_FILENAME);
+        File stdErr = new File(entryFolder, STDERR_FILENAME);
+        File addressesFile = new File(entryFolder, ADDRESSES_FILENAME);
+
+        if (!manifest.isFile() || !stdErr.isFile() || !addressesFile.isFile()) {
+            return Optional.empty();
+        }
+
+        StringLines lines = StringLines.newInstance(SpecsIo.read(manifest));
+
+        if (!lines.hasNextLine()) {
+            return Optional.empty();
+        }
+
+        String id = lines.nextLine();
+
+        // Check dependencies
+        while (lines.hasNextLine()) {
+            String line = lines.nextLine();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            int separatorIndex = line.indexOf('\t');
+            if (separatorIndex == -1) {
+                ClavaLog.debug(() -> "Invalid manifest line in parsing cache entry '" + key + "': " + line);
+                return Optional.empty();
+            }
+
+            String expectedHash = line.substring(0, separatorIndex);
+            File dependency = new File(line.substring(separatorIndex + 1));
+
+            if (!dependency.isFile() || !expectedHash.equals(getHash(dependency))) {
+                ClavaLog.debug(() -> "Parsing cache entry '" + key + "' is stale, dependency changed: " + dependency);
+                return Optional.empty();
+            }
+        }
+
+        String stdOut = SpecsIo.read(new File(entryFolder, STDOUT_FILENAME));
+        Set<String> addresses = new HashSet<>(Arrays.asList(SpecsIo.read(addressesFile).split("\n")));
+
+        // Marks the entry as recently used
+        manifest.setLastModified(System.currentTimeMillis());
+
+        return Optional.of(new CachedDump(stdOut, stdErr, id, addresses));
+    }
+
+    /**
+     * Stores the output of the dumper in the cache.
+     *
+     * @param key
+     * @param id
+     *            the id that was passed to the dumper
+     * @param stdOut
+     * @param stdErr
+     *            file with the stderr output of the dumper
+     * @param nodeIds
+     *            the ids of the nodes that were created from the output
+     * @param dependencies
+     *            files whose contents were used during parsing, besides the source file
+     */
+    public void put(String key, String id, String stdOut, File stdErr, Collection<String> nodeIds,
+            Collection<File> dependencies) {
+
+        File entryFolder = SpecsIo.mkdir(cacheFolder, key);
+
+        String manifest = dependencies.stream()
+                .map(dependency -> getHash(dependency) + "\t" + SpecsIo.getCanonicalPath(dependency))
+                .collect(Collectors.joining("\n", id + "\n", "\n"));
+
+        String idSuffix = "_" + id;
+        String addresses = nodeIds.stream()
+                .filter(nodeId -> nodeId.endsWith(idSuffix))
+                .map(nodeId -> nodeId.substring(0, nodeId.length() - idSuffix.length()))
+                .collect(Collectors.joining("\n"));
+
+        SpecsIo.copy(stdErr, new File(entryFolder, STDERR_FILENAME));
+        SpecsIo.write(new File(entryFolder, STDOUT_FILENAME), stdOut);
+        SpecsIo.write(new File(entryFolder, ADDRESSES_FILENAME), addresses);
+
+        // Manifest is written last, entries without manifest are ignored
+        SpecsIo.write(new File(entryFolder, MANIFEST_FILENAME), manifest);
+    }
+
+    private static String getHash(File file) {
+        MessageDigest digest = newDigest();
+        update(digest, file);
+        return toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, File file) {
+        byte[] buffer = new byte[8192];
+
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read file '" + file + "' for parsing cache", e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Could not create digest for parsing cache", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(String.format("%02x", value));
+        }
+
+        return hex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ParsingCache (" + cacheFolder + ")";
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clang.codeparser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pt.up.fe.specs.clava.ClavaLog;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Decides the order in which source files are parsed.
+ *
+ * <p>
+ * Files are ordered from the most expensive to the least expensive, so that long parsings start first and do not leave
+ * the remaining threads idle at the end. The cost of a file is the time it took to parse it the last time it was
+ * parsed, or an estimation based on its size and number of includes if there is no previous time for every file.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class ParsingScheduler {
+
+    /**
+     * Estimated cost of an include, in bytes of source code.
+     */
+    private static final long INCLUDE_COST = 16 * 1024;
+
+    /**
+     * Time, in nanoseconds, of the last parsing of each file, shared between parsings of the same execution (e.g.,
+     * rebuilds).
+     */
+    private static final Map<String, Long> LAST_PARSING_TIMES = new ConcurrentHashMap<>();
+
+    /**
+     *
+     * @param sources
+     * @return a new list with the given sources, ordered from the most expensive to the least expensive
+     */
+    public List<File> order(List<File> sources) {
+        Map<File, Long> costs = new HashMap<>();
+
+        boolean useTimes = sources.stream()
+                .allMatch(source -> LAST_PARSING_TIMES.containsKey(getKey(source)));
+
+        for (File source : sources) {
+            long cost = useTimes ? LAST_PARSING_TIMES.get(getKey(source)) : estimateCost(source);
+            costs.put(source, cost);
+        }
+
+        List<File> orderedSources = new ArrayList<>(sources);
+
+        // Sort is stable, files with the same cost keep their relative order
+        orderedSources.sort(Comparator.comparing((File source) -> costs.get(source)).reversed());
+
+        return orderedSources;
+    }
+
+    /**
+     * Records the time it took to parse the given file, to be used by future schedulings.
+     *
+     * @param source
+     * @param nanos
+     */
+    public void record(File source, long nanos) {
+        LAST_PARSING_TIMES.put(getKey(source), nanos);
+    }
+
+    private long estimateCost(File source) {
+        return source.length() + countIncludes(source) * INCLUDE_COST;
+    }
+
+    private static int countIncludes(File source) {
+        int includes = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(source))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmedLine = line.trim();
+
+                if (!trimmedLine.startsWith("#")) {
+                    continue;
+                }
+
+                if (trimmedLine.substring(1).trim().startsWith("include")) {
+                    includes++;
+                }
+            }
+        } catch (IOException e) {
+            ClavaLog.debug(() -> "Could not count includes of file '" + source + "': " + e.getMessage());
+        }
+
+        return includes;
+    }
+
+    private static String getKey(File source) {
+        return SpecsIo.getCanonicalPath(source);
+    }
+}
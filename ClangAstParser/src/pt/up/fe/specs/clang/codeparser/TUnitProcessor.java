@@ -14,12 +14,16 @@
 package pt.up.fe.specs.clang.codeparser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.suikasoft.jOptions.Datakey.DataKey;
@@ -29,6 +33,9 @@ import pt.up.fe.specs.clava.ClavaLog;
 import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.ast.expr.InitListExpr;
 import pt.up.fe.specs.clava.ast.extra.TranslationUnit;
+import pt.up.fe.specs.clava.context.ClavaContext;
+import pt.up.fe.specs.clava.utils.LongMap;
+import pt.up.fe.specs.clava.utils.SignatureHash;
 
 public class TUnitProcessor {
 
@@ -38,30 +45,99 @@ public class TUnitProcessor {
 
     private final List<ClangParserData> parsingData;
     private final boolean normalize;
+    private final List<TranslationUnit> baseTUnits;
+    // Number of elements in parsingData whose nodes have already been added to the signature map
+    private int indexedData;
 
+    /**
+     * Marks signature hashes that were found more than once, which are resolved using the complete signatures.
+     */
+    private static final Object REPEATED_HASH = new Object();
+
+    // Nodes by signature hash, or REPEATED_HASH
+    private final LongMap<Object> hashToNodeMap;
+    // Nodes whose signature hash is repeated, by signature
     private final Map<String, ClavaNode> signatureToNodeMap;
     private final Set<String> ambiguousSignatures;
-    private long processedNodes;
-    private long processedFields;
-    private long replacedNodes;
-    private long ambiguousHits;
-    private Set<Class<? extends ClavaNode>> ignoredNodesClasses;
+    private final AtomicLong processedNodes;
+    private final AtomicLong processedFields;
+    private final AtomicLong replacedNodes;
+    private final AtomicLong ambiguousHits;
+    private final Set<Class<? extends ClavaNode>> ignoredNodesClasses;
     private StringBuilder collisionReport;
 
     public TUnitProcessor(List<ClangParserData> parsingData, boolean normalize) {
-        this.parsingData = parsingData;
+        this(parsingData, normalize, Collections.emptyList());
+    }
+
+    /**
+     * 
+     * @param parsingData
+     * @param normalize
+     * @param baseTUnits
+     *            translation units that were already processed, whose nodes can be used as targets of the
+     *            normalization, but whose fields are not changed
+     */
+    public TUnitProcessor(List<ClangParserData> parsingData, boolean normalize, List<TranslationUnit> baseTUnits) {
+        this.parsingData = new ArrayList<>(parsingData);
         this.normalize = normalize;
+        this.baseTUnits = baseTUnits;
+        this.indexedData = 0;
 
+        this.hashToNodeMap = new LongMap<>();
         this.signatureToNodeMap = new HashMap<>();
         this.ambiguousSignatures = new HashSet<>();
-        this.processedNodes = 0;
-        this.processedFields = 0;
-        this.replacedNodes = 0;
-        this.ambiguousHits = 0;
-        this.ignoredNodesClasses = new HashSet<>();
+        this.processedNodes = new AtomicLong(0);
+        this.processedFields = new AtomicLong(0);
+        this.replacedNodes = new AtomicLong(0);
+        this.ambiguousHits = new AtomicLong(0);
+        this.ignoredNodesClasses = ConcurrentHashMap.newKeySet();
         this.collisionReport = new StringBuilder();
     }
 
+    /**
+     * Creates a processor without parsing data, which is added with {@link #add(ClangParserData)} as parsings finish.
+     * 
+     * @param normalize
+     * @param baseTUnits
+     */
+    public TUnitProcessor(boolean normalize, List<TranslationUnit> baseTUnits) {
+        this(Collections.emptyList(), normalize, baseTUnits);
+    }
+
+    /**
+     * Adds the result of a parsing. The nodes of the translation unit are immediately indexed, so that this work can
+     * overlap with other parsings that are still running.
+     * 
+     * @param data
+     */
+    public void add(ClangParserData data) {
+        parsingData.add(data);
+        indexPendingData();
+    }
+
+    /**
+     * Adds the nodes of the translation units that were not indexed yet to the signature map.
+     */
+    private void indexPendingData() {
+        if (!normalize) {
+            indexedData = parsingData.size();
+            return;
+        }
+
+        for (; indexedData < parsingData.size(); indexedData++) {
+            TranslationUnit tUnit = parsingData.get(indexedData).get(ClangParserData.TRANSLATION_UNIT);
+
+            tUnit.getDescendantsStream()
+                    // Only consider nodes with valid locations, nodes with invalid locations in the AST at this point
+                    // where most likely introduced by Clava (e.g., Includes, Null nodes, etc)
+                    .filter(node -> node.getLocation().isValid())
+                    // Ignore certain nodes that might have the same location, such as ImplicitCastExpr
+                    // .filter(node -> !IGNORE_CLASSES.contains(node.getClass()))
+                    .forEach(node -> addNode(node));
+        }
+    }
+
     /**
      * Ensures that fields of the AST point to nodes in other TranslationUnits, when that is the case.
      */
@@ -84,25 +160,14 @@ public class TUnitProcessor {
             return tUnits;
         }
 
-        // Build node locations map
-        // Map<String, ClavaNode> locationToNodeMap = new HashMap<>();
-        // long allNodes = 0;
-        // long nodesWithValidLoc = 0;
-        for (TranslationUnit tUnit : tUnits) {
-            tUnit.getDescendantsStream()
-                    // Only consider nodes with complete locations
-                    // .filter(node -> node.getLocation().isComplete())
-                    // Only consider nodes with valid locations, nodes with invalid locations in the AST at this point
-                    // where most likely introduced by Clava (e.g., Includes, Null nodes, etc)
+        // Build node locations map, for the translation units that were not indexed when added
+        indexPendingData();
+
+        // Nodes of translation units that were not parsed again
+        for (TranslationUnit baseTUnit : baseTUnits) {
+            baseTUnit.getDescendantsStream()
                     .filter(node -> node.getLocation().isValid())
-                    // Ignore certain nodes that might have the same location, such as ImplicitCastExpr
-                    // .filter(node -> !IGNORE_CLASSES.contains(node.getClass()))
                     .forEach(node -> addNode(node));
-
-            // allNodes += tUnit.getDescendantsStream().count();
-            // nodesWithValidLoc += tUnit.getDescendantsStream()
-            // .filter(node -> node.getLocation().isValid())
-            // .count();
         }
 
         // System.out.println("ALL NODES: " + allNodes);
@@ -114,9 +179,22 @@ public class TUnitProcessor {
         // .flatMap(data -> data.get(ClangParserData.CLAVA_NODES).getNodes().values().stream())
         // .forEach(node -> System.out.println("NODE: " + node.getClass()));
 
+        // Nodes of the parsed translation units are not attached to an App yet, replacing fields does not need to
+        // invalidate caches
+        Set<ClavaContext> contexts = Collections.newSetFromMap(new IdentityHashMap<>());
         parsingData.stream()
-                .flatMap(data -> data.get(ClangParserData.CLAVA_NODES).getNodes().values().stream())
-                .forEach(node -> replaceFields(node));
+                .filter(data -> data.hasValue(ClangParserData.CONTEXT))
+                .forEach(data -> contexts.add(data.get(ClangParserData.CONTEXT)));
+
+        contexts.forEach(ClavaContext::suspendInvalidation);
+        try {
+            // Only reads the maps, translation units can be processed in parallel
+            parsingData.parallelStream()
+                    .forEach(data -> data.get(ClangParserData.CLAVA_NODES).getNodes().values()
+                            .forEach(node -> replaceFields(node)));
+        } finally {
+            contexts.forEach(ClavaContext::resumeInvalidation);
+        }
 
         ClavaLog.debug(() -> "During AST normalization processed " + processedFields + " fields in " + processedNodes
                 + " nodes ");
@@ -124,7 +202,7 @@ public class TUnitProcessor {
                 + " queries to ambiguous signatures, with the following classes: "
                 + ignoredNodesClasses.stream().map(Class::getSimpleName).sorted().collect(Collectors.toList()));
 
-        if (ambiguousHits > 0) {
+        if (ambiguousHits.get() > 0) {
             ClavaLog.debug(() -> "Collision report:\n" + collisionReport);
         }
 
@@ -133,10 +211,10 @@ public class TUnitProcessor {
 
     @SuppressWarnings("unchecked")
     private void replaceFields(ClavaNode node) {
-        processedNodes++;
+        processedNodes.incrementAndGet();
 
         for (DataKey<?> key : node.getKeysWithNodes()) {
-            processedFields++;
+            processedFields.incrementAndGet();
 
             Class<?> valueClass = key.getValueClass();
 
@@ -146,7 +224,7 @@ public class TUnitProcessor {
 
                 normalizeNode(value).ifPresent(normalizedNode -> {
                     node.set((DataKey<Object>) key, normalizedNode);
-                    replacedNodes++;
+                    replacedNodes.incrementAndGet();
                 });
                 // ClavaNode normalizedNode = locationToNodeMap.get(value.getNodeSignature());
                 // if (normalizedNode == null) {
@@ -167,7 +245,7 @@ public class TUnitProcessor {
 
                 normalizeNode(value).ifPresent(normalizedNode -> {
                     node.set((DataKey<Object>) key, Optional.of(normalizedNode));
-                    replacedNodes++;
+                    replacedNodes.incrementAndGet();
                 });
 
                 // ClavaNode normalizedNode = locationToNodeMap.get(value.getNodeSignature());
@@ -184,17 +262,25 @@ public class TUnitProcessor {
             // Field is a List<ClavaNode>
             if (List.class.isAssignableFrom(valueClass)) {
                 List<ClavaNode> clavaNodes = (List<ClavaNode>) node.get(key);
-                List<ClavaNode> newClavaNodes = new ArrayList<>(clavaNodes.size());
+
+                // New list is only created if a node is replaced
+                List<ClavaNode> newClavaNodes = null;
 
                 for (int i = 0; i < clavaNodes.size(); i++) {
                     ClavaNode oldNode = clavaNodes.get(i);
 
                     ClavaNode normalizedNode = normalizeNode(oldNode).orElse(oldNode);
-                    newClavaNodes.add(normalizedNode);
-                    if (normalizedNode != oldNode) {
-                        replacedNodes++;
+                    if (normalizedNode == oldNode) {
+                        continue;
+                    }
+
+                    if (newClavaNodes == null) {
+                        newClavaNodes = new ArrayList<>(clavaNodes);
                     }
 
+                    newClavaNodes.set(i, normalizedNode);
+                    replacedNodes.incrementAndGet();
+
                     // ClavaNode normalizedNode = locationToNodeMap.get(oldNode.getNodeSignature());
                     // if (normalizedNode == null) {
                     // newClavaNodes.add(oldNode);
@@ -204,7 +290,10 @@ public class TUnitProcessor {
                     // }
                 }
 
-                node.set((DataKey<Object>) key, newClavaNodes);
+                if (newClavaNodes != null) {
+                    node.set((DataKey<Object>) key, newClavaNodes);
+                }
+
                 continue;
             }
 
@@ -229,6 +318,31 @@ public class TUnitProcessor {
             return Optional.empty();
         }
 
+        Object candidate = hashToNodeMap.get(node.getNodeSignatureHash());
+
+        if (candidate == null) {
+            return Optional.empty();
+        }
+
+        if (candidate == REPEATED_HASH) {
+            return normalizeNodeWithSignature(node);
+        }
+
+        // Hashes of nodes that were not indexed might collide with the hash of an indexed node, do a cheap check on
+        // the parts of the signature every node has
+        ClavaNode normalizedNode = (ClavaNode) candidate;
+        if (normalizedNode.getClass() != node.getClass() || getLocationHash(normalizedNode) != getLocationHash(node)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(normalizedNode);
+    }
+
+    private static long getLocationHash(ClavaNode node) {
+        return SignatureHash.add(SignatureHash.SEED, node.getLocation());
+    }
+
+    private Optional<ClavaNode> normalizeNodeWithSignature(ClavaNode node) {
         String signature = node.getNodeSignature();
 
         // If signature is ambiguous, cannot normalize node
@@ -237,7 +351,7 @@ public class TUnitProcessor {
             ClavaLog.debug(() -> "Signature keys:" + node.getSignatureKeys());
             ClavaLog.debug(() -> "Node:" + node);
             // System.out.println("PREVIOUS NODE:" + previousNode);
-            ambiguousHits++;
+            ambiguousHits.incrementAndGet();
             ignoredNodesClasses.add(node.getClass());
 
             if (ERROR_ON_AMBIGUOUS_SIGNATURE) {
@@ -254,6 +368,25 @@ public class TUnitProcessor {
     }
 
     private void addNode(ClavaNode node) {
+        long hash = node.getNodeSignatureHash();
+
+        Object previous = hashToNodeMap.put(hash, node);
+
+        if (previous == null) {
+            return;
+        }
+
+        // Hash found more than once, use the complete signatures to find if the nodes are ambiguous
+        hashToNodeMap.put(hash, REPEATED_HASH);
+
+        if (previous != REPEATED_HASH) {
+            addNodeWithSignature((ClavaNode) previous);
+        }
+
+        addNodeWithSignature(node);
+    }
+
+    private void addNodeWithSignature(ClavaNode node) {
         String id = node.getNodeSignature();
 
         // If signature is ambiguous, do not add to map
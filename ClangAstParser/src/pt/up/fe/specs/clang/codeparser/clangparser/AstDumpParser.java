@@ -13,10 +13,15 @@
 
 package pt.up.fe.specs.clang.codeparser.clangparser;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.suikasoft.jOptions.JOptionsUtils;
@@ -25,6 +30,8 @@ import org.suikasoft.jOptions.streamparser.LineStreamParser;
 
 import pt.up.fe.specs.clang.ClangAstParser;
 import pt.up.fe.specs.clang.codeparser.ParallelCodeParser;
+import pt.up.fe.specs.clang.codeparser.ParsingCache;
+import pt.up.fe.specs.clang.codeparser.ParsingCache.CachedDump;
 import pt.up.fe.specs.clang.datastore.LocalOptionsKeys;
 import pt.up.fe.specs.clang.parsers.ClangParserData;
 import pt.up.fe.specs.clang.parsers.ClangStreamParserV2;
@@ -80,6 +87,9 @@ public class AstDumpParser implements ClangParser {
     private File clangExecutable;
     private List<String> builtinIncludes;
     private int systemIncludesThreshold;
+    private ParsingCache parsingCache;
+    private File precompiledHeader;
+    private DumperWorkerPool workerPool;
 
     // public AstDumpParser() {
     // this(false, false, true);
@@ -99,6 +109,8 @@ public class AstDumpParser implements ClangParser {
         this.lastWorkingFolder = null;
         this.baseFolder = null;
         this.systemIncludesThreshold = ParallelCodeParser.SYSTEM_INCLUDES_THRESHOLD.getDefault().get();
+        this.precompiledHeader = null;
+        this.workerPool = null;
         // this.usePlatformLibc = false;
         // context = new ClavaContext();
     }
@@ -119,6 +131,41 @@ public class AstDumpParser implements ClangParser {
         return this;
     }
 
+    /**
+     * 
+     * @param parsingCache
+     *            if not null, the output of the dumper is stored in and retrieved from this cache
+     * @return
+     */
+    public AstDumpParser setParsingCache(ParsingCache parsingCache) {
+        this.parsingCache = parsingCache;
+        return this;
+    }
+
+    /**
+     * 
+     * @param precompiledHeader
+     *            if not null, the dumper loads this precompiled header before parsing the source (see
+     *            {@link #buildPrecompiledHeader(File, File, Standard, DataStore)})
+     * @return
+     */
+    public AstDumpParser setPrecompiledHeader(File precompiledHeader) {
+        this.precompiledHeader = precompiledHeader;
+        return this;
+    }
+
+    /**
+     * 
+     * @param workerPool
+     *            if not null, sources are parsed by the persistent dumper processes of the pool, instead of starting a
+     *            new process per source
+     * @return
+     */
+    public AstDumpParser setWorkerPool(DumperWorkerPool workerPool) {
+        this.workerPool = workerPool;
+        return this;
+    }
+
     // private int nextId() {
     // // Increment and return
     // currentId++;
@@ -153,6 +200,201 @@ public class AstDumpParser implements ClangParser {
         // Create instance of ClangAstParser
         // ClangAstParser clangAstParser = new ClangAstParser(dumpStdOut, useCustomResources);
 
+        List<String> arguments = new ArrayList<>();
+        arguments.add(clangExecutable.getAbsolutePath());
+
+        arguments.add(sourceFile.getAbsolutePath());
+
+        // int id = nextId();
+        arguments.add("-id=" + id);
+
+        arguments.add("-system-header-threshold=" + systemIncludesThreshold);
+
+        arguments.add("--");
+
+        List<String> compilerArguments = getCompilerArguments(sourceFile, standard, config);
+
+        if (precompiledHeader != null) {
+            compilerArguments.add("-include-pch");
+            compilerArguments.add(precompiledHeader.getAbsolutePath());
+        }
+
+        arguments.addAll(compilerArguments);
+
+        ClavaLog.debug(() -> "Calling Clang AST Dumper: " + arguments.stream().collect(Collectors.joining(" ")));
+
+        lastWorkingFolder = SpecsIo.mkdir(baseFolder, sourceFile.getName() + "_" + id);
+
+        SpecsIo.deleteFolderContents(lastWorkingFolder);
+
+        workingFolders.add(lastWorkingFolder);
+
+        // Check if the output of the dumper is in the cache
+        String cacheKey = null;
+        if (parsingCache != null) {
+            cacheKey = parsingCache.getKey(sourceFile, getArgumentsWithoutId(arguments));
+            Optional<CachedDump> cachedDump = parsingCache.get(cacheKey);
+
+            if (cachedDump.isPresent()) {
+                return parseCached(sourceFile, id, cachedDump.get(), config);
+            }
+        }
+
+        ClangParserData parsedData = null;
+        ProcessOutput<String, ClangParserData> output = null;
+
+        // If cache is enabled, stderr is dumped to the working folder so that it can be stored
+        File stdErrDumpfile = parsingCache != null ? new File(lastWorkingFolder, STDERR_DUMP_FILENAME)
+                : SpecsSystem.isDebug() ? new File(STDERR_DUMP_FILENAME) : null;
+
+        try (LineStreamParser<ClangParserData> lineStreamParser = ClangStreamParserV2
+                .newInstance(config.get(ClavaNode.CONTEXT))) {
+
+            if (SpecsSystem.isDebug()) {
+                lineStreamParser.getData().set(ClangParserData.DEBUG, true);
+            }
+
+            // Workers always use the text output
+            if (workerPool != null) {
+                output = workerPool.parse(id, systemIncludesThreshold, sourceFile, compilerArguments,
+                        inputStream -> this.processStdErr(inputStream, config.get(ClavaNode.CONTEXT), stdErrDumpfile))
+                        .orElse(null);
+
+                if (output == null) {
+                    ClavaLog.debug(() -> "Dumper worker failed, parsing '" + sourceFile + "' with a new process");
+                } else if (streamConsoleOutput && !output.getStdOut().isEmpty()) {
+                    ClavaLog.info(output.getStdOut());
+                }
+            }
+
+            if (output == null) {
+                output = SpecsSystem.runProcess(arguments, lastWorkingFolder,
+                        inputStream -> this.processOutput(sourceFile, inputStream),
+                        inputStream -> this.processStdErr(inputStream, config.get(ClavaNode.CONTEXT),
+                                stdErrDumpfile));
+            }
+
+            if (output.isError()) {
+                ClavaLog.debug("Dumper returned an error value: '" + output.getReturnValue() + "'");
+            }
+            parsedData = output.getStdErr();
+            SpecsCheck.checkNotNull(parsedData, () -> "Did not expect error output to be null");
+            parsedData.set(ClangParserData.HAS_ERRORS, output.isError());
+
+            if (!streamConsoleOutput) {
+                ClavaLog.info(output.getStdOut());
+            }
+
+            if (lineStreamParser.hasExceptions()) {
+                SpecsLogs.warn("Exceptions happened while parsing the file '" + sourceFile.getAbsolutePath() + "'");
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error while running Clang AST dumper", e);
+        }
+
+        // Only successful parsings are stored in the cache
+        if (parsingCache != null && !output.isError()) {
+            storeInCache(parsingCache, cacheKey, id, output.getStdOut(), stdErrDumpfile, parsedData);
+        }
+
+        return buildTranslationUnit(sourceFile, parsedData);
+    }
+
+    private static void storeInCache(ParsingCache parsingCache, String cacheKey, String id, String stdOut,
+            File stdErr, ClangParserData parsedData) {
+
+        Set<File> dependencies = parsedData.get(ClangParserData.DEPENDENCIES);
+
+        // Dumpers that do not report dependencies cannot be used, changes to the headers would not be detected
+        boolean hasUserIncludes = parsedData.get(ClangParserData.INCLUDES).stream()
+                .anyMatch(include -> !include.isAngled());
+        if (hasUserIncludes && dependencies.isEmpty()) {
+            ClavaLog.debug(() -> "Dumper did not report the included files, not storing parsing in the cache");
+            return;
+        }
+
+        Set<String> nodeIds = new HashSet<>(parsedData.get(ClangParserData.CLAVA_NODES).getNodes().keySet());
+        nodeIds.addAll(parsedData.get(ClangParserData.NODE_DATA).keySet());
+
+        parsingCache.put(cacheKey, id, stdOut, stdErr, nodeIds, dependencies);
+    }
+
+    private ClangParserData parseCached(File sourceFile, String id, CachedDump cachedDump, DataStore config) {
+        ClavaLog.debug(() -> "Using cached dumper output for file '" + sourceFile + "'");
+
+        if (!cachedDump.getStdOut().isEmpty()) {
+            ClavaLog.info(cachedDump.getStdOut());
+        }
+
+        InputStream stdErr = new ByteArrayInputStream(cachedDump.getStdErr(id).getBytes(StandardCharsets.UTF_8));
+        ClangParserData parsedData = processStdErr(stdErr, config.get(ClavaNode.CONTEXT), null);
+        parsedData.set(ClangParserData.HAS_ERRORS, false);
+
+        return buildTranslationUnit(sourceFile, parsedData);
+    }
+
+    private ClangParserData buildTranslationUnit(File sourceFile, ClangParserData parsedData) {
+        ClangStreamParser clangStreamParser = new ClangStreamParser(parsedData, SpecsSystem.isDebug());
+
+        TranslationUnit tUnit = clangStreamParser.parseTu(sourceFile);
+
+        parsedData.set(ClangParserData.TRANSLATION_UNIT, tUnit);
+
+        // Only the tree and the nodes are needed after this point
+        parsedData.releaseParsingState();
+
+        return parsedData;
+
+    }
+
+    /**
+     * Uses the dumper to build a precompiled header, with the same compiler arguments that are used when parsing a
+     * source.
+     * 
+     * @param header
+     * @param precompiledHeader
+     *            the file where the precompiled header will be written
+     * @param standard
+     * @param config
+     * @return true if the precompiled header was built
+     */
+    public boolean buildPrecompiledHeader(File header, File precompiledHeader, Standard standard, DataStore config) {
+        List<String> arguments = new ArrayList<>();
+        arguments.add(clangExecutable.getAbsolutePath());
+
+        arguments.add(header.getAbsolutePath());
+
+        arguments.add("-emit-pch=" + precompiledHeader.getAbsolutePath());
+
+        arguments.add("--");
+
+        arguments.add("-x");
+        arguments.add(standard.isCxx() ? "c++-header" : "c-header");
+
+        arguments.addAll(getCompilerArguments(header, standard, config));
+
+        ClavaLog.debug(() -> "Building precompiled header: " + arguments.stream().collect(Collectors.joining(" ")));
+
+        ProcessOutput<String, String> output = SpecsSystem.runProcess(arguments, header.getParentFile(),
+                inputStream -> processOutput(header, inputStream),
+                inputStream -> processOutput(header, inputStream));
+
+        if (output.isError() || !precompiledHeader.isFile()) {
+            ClavaLog.debug(() -> "Could not build precompiled header:\n" + output.getStdOut() + output.getStdErr());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * 
+     * @param sourceFile
+     * @param standard
+     * @param config
+     * @return the arguments that are passed to the compiler (i.e., after '--')
+     */
+    private List<String> getCompilerArguments(File sourceFile, Standard standard, DataStore config) {
         DataStore localData = JOptionsUtils.loadDataStore(ClangAstParser.getLocalOptionsFile(), getClass(),
                 LocalOptionsKeys.getProvider().getStoreDefinition());
 
@@ -167,16 +409,6 @@ public class AstDumpParser implements ClangParser {
         // File clangExecutable = clangAstParser.prepareResources(version);
 
         List<String> arguments = new ArrayList<>();
-        arguments.add(clangExecutable.getAbsolutePath());
-
-        arguments.add(sourceFile.getAbsolutePath());
-
-        // int id = nextId();
-        arguments.add("-id=" + id);
-
-        arguments.add("-system-header-threshold=" + systemIncludesThreshold);
-
-        arguments.add("--");
 
         boolean isOpenCL = SpecsIo.getExtension(sourceFile).equals("cl");
 
@@ -283,72 +515,16 @@ public class AstDumpParser implements ClangParser {
         arguments.addAll(ArgumentsParser.newCommandLine().parse(config.get(ClavaOptions.FLAGS)));
         arguments.addAll(config.get(ClavaOptions.FLAGS_LIST));
 
-        ClavaLog.debug(() -> "Calling Clang AST Dumper: " + arguments.stream().collect(Collectors.joining(" ")));
-
-        ClangParserData parsedData = null;
-        ProcessOutput<String, ClangParserData> output = null;
-
-        // ProcessOutputAsString output = SpecsSystem.runProcess(arguments, true, false);
-        try (LineStreamParser<ClangParserData> lineStreamParser = ClangStreamParserV2
-                .newInstance(config.get(ClavaNode.CONTEXT))) {
-
-            if (SpecsSystem.isDebug()) {
-                lineStreamParser.getData().set(ClangParserData.DEBUG, true);
-            }
-
-            // Create temporary working folder, in order to support running several dumps in parallel
-            // File workingFolder = SpecsIo.mkdir(UUID.randomUUID().toString());
-            lastWorkingFolder = SpecsIo.mkdir(baseFolder, sourceFile.getName() + "_" + id);
-
-            // Ensure folder is empty
-            SpecsIo.deleteFolderContents(lastWorkingFolder);
-
-            workingFolders.add(lastWorkingFolder);
-
-            output = SpecsSystem.runProcess(arguments, lastWorkingFolder,
-                    // inputStream -> clangAstParser.processOutput(inputStream,
-                    // new File(lastWorkingFolder, CLANG_DUMP_FILENAME)),
-                    inputStream -> this.processOutput(sourceFile, inputStream),
-                    // inputStream -> clangAstParser.processStdErr(config, inputStream, lineStreamParser,
-                    // new File(lastWorkingFolder, STDERR_DUMP_FILENAME)));
-                    inputStream -> this.processStdErr(inputStream, config.get(ClavaNode.CONTEXT)));
-
-            // parsedData = lineStreamParser.getData();
-            // parsedData = output.getStdErr() == null ? new ClangParserData() : output.getStdErr();
-            // ClavaLog.debug("Process finished");
-            // ClavaLog.debug("Stdout: '" + output.getStdOut() + "'");
-            // ClavaLog.debug("Stderr: '" + output.getStdErr() + "'");
-            // ClavaLog.debug("Return value: '" + output.getReturnValue() + "'");
-            if (output.isError()) {
-                ClavaLog.debug("Dumper returned an error value: '" + output.getReturnValue() + "'");
-            }
-            parsedData = output.getStdErr();
-            SpecsCheck.checkNotNull(parsedData, () -> "Did not expect error output to be null");
-            parsedData.set(ClangParserData.HAS_ERRORS, output.isError());
-
-            // If console output streaming is disabled, show output only at the end
-            if (!streamConsoleOutput) {
-                ClavaLog.info(output.getStdOut());
-            }
-
-            if (lineStreamParser.hasExceptions()) {
-                SpecsLogs.warn("Exceptions happened while parsing the file '" + sourceFile.getAbsolutePath() + "'");
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Error while running Clang AST dumper", e);
-        }
-
-        ClangStreamParser clangStreamParser = new ClangStreamParser(parsedData, SpecsSystem.isDebug());
-
-        TranslationUnit tUnit = clangStreamParser.parseTu(sourceFile);
-
-        parsedData.set(ClangParserData.TRANSLATION_UNIT, tUnit);
-
-        return parsedData;
-        // App newApp = clangStreamParser.parse();
-        //
-        // return newApp.getTranslationUnits().get(0);
+        return arguments;
+    }
 
+    /**
+     * The id changes between executions, and should not be part of the cache key.
+     */
+    private static List<String> getArgumentsWithoutId(List<String> arguments) {
+        return arguments.stream()
+                .filter(argument -> !argument.startsWith("-id="))
+                .collect(Collectors.toList());
     }
 
     private String processOutput(File sourceFile, InputStream inputStream) {
@@ -369,7 +545,7 @@ public class AstDumpParser implements ClangParser {
         return output.toString();
     }
 
-    private ClangParserData processStdErr(InputStream inputStream, ClavaContext context) {
+    private ClangParserData processStdErr(InputStream inputStream, ClavaContext context, File dumpfile) {
         // Create LineStreamParser
         try (LineStreamParser<ClangParserData> lineStreamParser = ClangStreamParserV2.newInstance(context)) {
 
@@ -378,9 +554,6 @@ public class AstDumpParser implements ClangParser {
                 lineStreamParser.getData().set(ClangParserData.DEBUG, true);
             }
 
-            // Dump file
-            File dumpfile = SpecsSystem.isDebug() ? new File(STDERR_DUMP_FILENAME) : null;
-
             // Parse input stream
             String linesNotParsed = lineStreamParser.parse(inputStream, dumpfile);
 
@@ -0,0 +1,337 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clang.codeparser.clangparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import pt.up.fe.specs.clava.ClavaLog;
+import pt.up.fe.specs.util.system.ProcessOutput;
+
+/**
+ * A Clang AST dumper process in server mode (option -server), which parses one source per request.
+ *
+ * <p>
+ * Not thread-safe, a worker handles one request at a time.
+ *
+ * @author JoaoBispo
+ *
+ */
+class DumperWorker implements AutoCloseable {
+
+    /**
+     * Must be the same as REQUEST_END in DumperServer.h
+     */
+    private static final String REQUEST_END = "<Clava Dumper Request End>";
+
+    private static final byte[] REQUEST_END_BYTES = REQUEST_END.getBytes(StandardCharsets.UTF_8);
+
+    private final Process process;
+    private final BufferedWriter requests;
+    private final InputStream stdErr;
+
+    // Output of each request, empty if stdout was closed
+    private final BlockingQueue<Optional<String>> stdOutputs;
+
+    private int numRequests;
+    private boolean isAlive;
+
+    public DumperWorker(File clangExecutable, File workingFolder) {
+        try {
+            this.process = new ProcessBuilder(clangExecutable.getAbsolutePath(), "-server")
+                    .directory(workingFolder)
+                    .start();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not start Clang AST dumper worker", e);
+        }
+
+        this.requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.stdErr = new BufferedInputStream(process.getErrorStream());
+        this.stdOutputs = new LinkedBlockingQueue<>();
+
+        this.numRequests = 0;
+        this.isAlive = true;
+
+        Thread stdOutReader = new Thread(this::readStdOut, "Clang AST dumper worker stdout");
+        stdOutReader.setDaemon(true);
+        stdOutReader.start();
+    }
+
+    public int getNumRequests() {
+        return numRequests;
+    }
+
+    public boolean isAlive() {
+        return isAlive;
+    }
+
+    /**
+     *
+     * @param id
+     * @param systemIncludesThreshold
+     * @param sourceFile
+     * @param compilerArguments
+     *            the arguments that would be passed to the dumper after '--'
+     * @param stdErrProcessor
+     *            processes the stderr of this request
+     * @return the output of the request, or empty if the worker stopped before finishing the request
+     */
+    public <T> Optional<ProcessOutput<String, T>> parse(String id, int systemIncludesThreshold, File sourceFile,
+            List<String> compilerArguments, Function<InputStream, T> stdErrProcessor) {
+
+        numRequests++;
+
+        // If something fails in the middle of the request, the streams are no longer synchronized
+        isAlive = false;
+
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.add(id);
+            lines.add(Integer.toString(systemIncludesThreshold));
+            lines.add(sourceFile.getAbsolutePath());
+            lines.add(Integer.toString(compilerArguments.size()));
+            lines.addAll(compilerArguments);
+
+            for (String line : lines) {
+                if (line.indexOf('\n') != -1) {
+                    throw new RuntimeException("Dumper worker does not support arguments with line breaks: " + line);
+                }
+
+                requests.write(line);
+                requests.write('\n');
+            }
+            requests.flush();
+
+            RequestInputStream requestStdErr = new RequestInputStream(stdErr);
+            T stdErrResult = stdErrProcessor.apply(requestStdErr);
+
+            // In case the processor did not consume the whole output
+            requestStdErr.skipToEnd();
+            int returnValue = requestStdErr.readReturnValue();
+
+            Optional<String> stdOut = stdOutputs.take();
+            if (!stdOut.isPresent()) {
+                return Optional.empty();
+            }
+
+            isAlive = true;
+
+            return Optional.of(new ProcessOutput<>(returnValue, stdOut.get(), stdErrResult));
+
+        } catch (Exception e) {
+            ClavaLog.debug(() -> "Dumper worker stopped while parsing '" + sourceFile + "': " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The server stops when there are no more requests.
+     */
+    @Override
+    public void close() {
+        isAlive = false;
+
+        try {
+            requests.close();
+
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readStdOut() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.equals(REQUEST_END)) {
+                    lines.add(line);
+                    continue;
+                }
+
+                // Line break that is written before the end of the request
+                if (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+                    lines.remove(lines.size() - 1);
+                }
+
+                stdOutputs.add(Optional.of(String.join("\n", lines)));
+                lines.clear();
+            }
+        } catch (IOException e) {
+            ClavaLog.debug(() -> "Could not read output of dumper worker: " + e.getMessage());
+        }
+
+        stdOutputs.add(Optional.empty());
+    }
+
+    /**
+     * The stderr of a single request, ends at the line REQUEST_END.
+     */
+    private static class RequestInputStream extends InputStream {
+
+        private final InputStream inputStream;
+
+        private byte[] lineBuffer;
+        private int lineLength;
+
+        private byte[] current;
+        private int currentPosition;
+
+        // Empty lines are only emitted when followed by a line that is not the end of the request
+        private boolean pendingEmptyLine;
+
+        private boolean ended;
+
+        public RequestInputStream(InputStream inputStream) {
+            this.inputStream = inputStream;
+            this.lineBuffer = new byte[1024];
+            this.lineLength = 0;
+            this.current = new byte[0];
+            this.currentPosition = 0;
+            this.pendingEmptyLine = false;
+            this.ended = false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (currentPosition == current.length) {
+                if (ended) {
+                    return -1;
+                }
+
+                nextLine();
+            }
+
+            return current[currentPosition++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            while (currentPosition == current.length) {
+                if (ended) {
+                    return -1;
+                }
+
+                nextLine();
+            }
+
+            int numBytes = Math.min(length, current.length - currentPosition);
+            System.arraycopy(current, currentPosition, bytes, offset, numBytes);
+            currentPosition += numBytes;
+
+            return numBytes;
+        }
+
+        public void skipToEnd() throws IOException {
+            while (!ended) {
+                nextLine();
+            }
+
+            currentPosition = current.length;
+        }
+
+        public int readReturnValue() throws IOException {
+            readLine();
+            return Integer.parseInt(new String(lineBuffer, 0, lineLength, StandardCharsets.UTF_8).trim());
+        }
+
+        private void nextLine() throws IOException {
+            readLine();
+
+            if (isRequestEnd()) {
+                ended = true;
+                current = new byte[0];
+                currentPosition = 0;
+                return;
+            }
+
+            int prefixLength = pendingEmptyLine ? 1 : 0;
+
+            if (lineLength == 0) {
+                pendingEmptyLine = true;
+                current = new byte[prefixLength];
+            } else {
+                pendingEmptyLine = false;
+                current = new byte[prefixLength + lineLength + 1];
+                System.arraycopy(lineBuffer, 0, current, prefixLength, lineLength);
+                current[current.length - 1] = '\n';
+            }
+
+            if (prefixLength > 0) {
+                current[0] = '\n';
+            }
+
+            currentPosition = 0;
+        }
+
+        private boolean isRequestEnd() {
+            if (lineLength != REQUEST_END_BYTES.length) {
+                return false;
+            }
+
+            for (int i = 0; i < lineLength; i++) {
+                if (lineBuffer[i] != REQUEST_END_BYTES[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void readLine() throws IOException {
+            lineLength = 0;
+
+            int currentByte;
+            while ((currentByte = inputStream.read()) != '\n') {
+                if (currentByte == -1) {
+                    throw new IOException("Dumper worker output ended before the end of the request");
+                }
+
+                if (lineLength == lineBuffer.length) {
+                    lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+                }
+
+                lineBuffer[lineLength] = (byte) currentByte;
+                lineLength++;
+            }
+        }
+    }
+}
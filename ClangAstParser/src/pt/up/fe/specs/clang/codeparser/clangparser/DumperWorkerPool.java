@@ -0,0 +1,101 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clang.codeparser.clangparser;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.system.ProcessOutput;
+
+/**
+ * Clang AST dumper processes that stay alive between parsings, instead of starting one process per source.
+ *
+ * <p>
+ * There is at most one worker per thread that is parsing at the same time. Workers are restarted after parsing a given
+ * number of sources, or if they stop in the middle of a parsing.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class DumperWorkerPool implements AutoCloseable {
+
+    private final File clangExecutable;
+    private final File baseFolder;
+    private final int maxSourcesPerWorker;
+
+    private final ConcurrentLinkedQueue<DumperWorker> idleWorkers;
+    private final AtomicInteger workerCounter;
+
+    /**
+     *
+     * @param clangExecutable
+     * @param baseFolder
+     *            folder where the working folders of the workers are created
+     * @param maxSourcesPerWorker
+     *            number of sources a worker parses before being restarted
+     */
+    public DumperWorkerPool(File clangExecutable, File baseFolder, int maxSourcesPerWorker) {
+        this.clangExecutable = clangExecutable;
+        this.baseFolder = baseFolder;
+        this.maxSourcesPerWorker = maxSourcesPerWorker;
+
+        this.idleWorkers = new ConcurrentLinkedQueue<>();
+        this.workerCounter = new AtomicInteger(0);
+    }
+
+    /**
+     *
+     * @param id
+     * @param systemIncludesThreshold
+     * @param sourceFile
+     * @param compilerArguments
+     *            the arguments that would be passed to the dumper after '--'
+     * @param stdErrProcessor
+     * @return the output of the dumper, or empty if the worker stopped before finishing (e.g., crashed)
+     */
+    public <T> Optional<ProcessOutput<String, T>> parse(String id, int systemIncludesThreshold, File sourceFile,
+            List<String> compilerArguments, Function<InputStream, T> stdErrProcessor) {
+
+        DumperWorker worker = idleWorkers.poll();
+        if (worker == null) {
+            File workingFolder = SpecsIo.mkdir(baseFolder, "dumper_worker_" + workerCounter.incrementAndGet());
+            worker = new DumperWorker(clangExecutable, workingFolder);
+        }
+
+        Optional<ProcessOutput<String, T>> output = worker.parse(id, systemIncludesThreshold, sourceFile,
+                compilerArguments, stdErrProcessor);
+
+        if (worker.isAlive() && worker.getNumRequests() < maxSourcesPerWorker) {
+            idleWorkers.add(worker);
+        } else {
+            worker.close();
+        }
+
+        return output;
+    }
+
+    @Override
+    public void close() {
+        DumperWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.close();
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,6 +65,12 @@ public class ClangParserData extends ADataClass<ClangParserData> {
     public final static DataKey<List<Include>> INCLUDES = KeyFactory.generic("clang_parser_stream_includes",
             new ArrayList<>());
 
+    /**
+     * User headers included during parsing, as resolved by the dumper.
+     */
+    public final static DataKey<Set<File>> DEPENDENCIES = KeyFactory.generic("clang_parser_stream_dependencies",
+            (Set<File>) new LinkedHashSet<File>());
+
     public final static DataKey<Set<String>> TOP_LEVEL_DECL_IDS = KeyFactory.generic(
             "clang_parser_stream_top_level_decl_ids",
             new HashSet<>());
@@ -140,4 +147,25 @@ public class ClangParserData extends ADataClass<ClangParserData> {
     public ClavaFactory getFactory() {
         return get(CONTEXT).get(ClavaContext.FACTORY);
     }
+
+    /**
+     * Releases the data that is only needed while the dumper output is parsed and the translation unit is built.
+     * 
+     * <p>
+     * The data of all translation units is kept until the AST of the program is complete, this keeps only the nodes
+     * (needed for normalization) and the translation unit.
+     * 
+     * <p>
+     * Nodes are built by the thread that reads the output of the dumper, as the records arrive. There is no separate
+     * builder thread or bounded queue between reading and building.
+     */
+    public void releaseParsingState() {
+        set(NODE_DATA, new HashMap<>());
+        set(VISITED_CHILDREN, new HashMap<>());
+        set(ID_TO_FILENAME_MAP, new HashMap<>());
+        set(SYSTEM_HEADERS_CLANG_NODES, new HashMap<>());
+        set(SKIPPED_NODES_MAP, new HashMap<>());
+        set(NODES_CURRENTLY_BEING_PARSED, new HashSet<>());
+        set(CURRENT_NODE_VISIT_CHAIN, new ArrayList<>());
+    }
 }
@@ -343,9 +343,13 @@ public class ClavaNodeParser implements LineStreamWorker<ClangParserData> {
 
     @Override
     public void close(ClangParserData data) {
-        data.get(ClangParserData.CLAVA_NODES).getQueuedNodesToSet().stream()
+        List<Runnable> queuedNodesToSet = data.get(ClangParserData.CLAVA_NODES).getQueuedNodesToSet();
+        queuedNodesToSet.stream()
                 .forEach(Runnable::run);
 
+        // Actions keep references to the children ids and node data
+        queuedNodesToSet.clear();
+
         // ClavaLog.metrics("Parsed ClavaNodes: " + data.get(ClangParserData.CLAVA_NODES).getNodes().size());
     }
 
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clang.parsers;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+
+import org.suikasoft.jOptions.streamparser.LineStreamWorker;
+
+import pt.up.fe.specs.util.utilities.LineStream;
+
+/**
+ * Parses the user headers that were included during parsing, as resolved by the preprocessor.
+ * 
+ * @author JoaoBispo
+ *
+ */
+public class DependenciesParser implements LineStreamWorker<ClangParserData> {
+
+    private static final String PARSER_ID = "<Dependencies>";
+
+    @Override
+    public String getId() {
+        return PARSER_ID;
+    }
+
+    @Override
+    public void init(ClangParserData data) {
+        data.set(ClangParserData.DEPENDENCIES, new LinkedHashSet<>());
+    }
+
+    @Override
+    public void apply(LineStream lineStream, ClangParserData data) {
+        data.get(ClangParserData.DEPENDENCIES).add(new File(lineStream.nextLine()));
+    }
+}
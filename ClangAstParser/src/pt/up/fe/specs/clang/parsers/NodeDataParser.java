@@ -27,7 +27,6 @@ import java.util.function.BiFunction;
 
 import org.suikasoft.jOptions.Interfaces.DataStore;
 import org.suikasoft.jOptions.storedefinition.StoreDefinition;
-import org.suikasoft.jOptions.storedefinition.StoreDefinitions;
 import org.suikasoft.jOptions.streamparser.LineStreamParsers;
 import org.suikasoft.jOptions.streamparser.LineStreamWorker;
 
@@ -39,6 +38,7 @@ import pt.up.fe.specs.clang.parsers.data.StmtDataParser;
 import pt.up.fe.specs.clang.parsers.data.TypeDataParser;
 import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.SourceRange;
+import pt.up.fe.specs.clava.context.ClavaFactory;
 import pt.up.fe.specs.clava.utils.ClassesService;
 import pt.up.fe.specs.util.utilities.LineStream;
 
@@ -289,7 +289,7 @@ public class NodeDataParser {
             throw new RuntimeException("Problems while parsing code at location '" + location + "'", e);
         }
 
-        StoreDefinition nodeKeys = StoreDefinitions.fromInterface(nodeClass);
+        StoreDefinition nodeKeys = ClavaFactory.getStoreDefinition(nodeClass);
 
         DataStore data = DataStore.newInstance(nodeKeys, true);
 
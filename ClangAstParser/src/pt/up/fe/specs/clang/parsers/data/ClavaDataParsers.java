@@ -22,6 +22,7 @@ import org.suikasoft.jOptions.streamparser.LineStreamParsers;
 
 import pt.up.fe.specs.clang.parsers.ClangParserData;
 import pt.up.fe.specs.clang.parsers.ClavaNodes;
+import pt.up.fe.specs.clava.FileTable;
 import pt.up.fe.specs.clava.SourceLocation;
 import pt.up.fe.specs.clava.SourceRange;
 import pt.up.fe.specs.clava.ast.decl.data.CXXBaseSpecifier;
@@ -51,7 +52,6 @@ import pt.up.fe.specs.clava.ast.type.data.exception.UnevaluatedExceptionSpecific
 import pt.up.fe.specs.clava.ast.type.data.exception.UninstantiatedExceptionSpecification;
 import pt.up.fe.specs.clava.ast.type.enums.ExceptionSpecificationType;
 import pt.up.fe.specs.clava.ast.type.enums.TemplateNameKind;
-import pt.up.fe.specs.clava.context.ClavaContext;
 import pt.up.fe.specs.clava.language.AccessSpecifier;
 import pt.up.fe.specs.clava.language.CXXCtorInitializerKind;
 import pt.up.fe.specs.util.SpecsCheck;
@@ -84,8 +84,8 @@ public class ClavaDataParsers {
             return SourceRange.invalidRange();
         }
 
-        // Filepaths will be shared between most nodes, cache them
-        String startFilepath = dataStore.get(ClangParserData.CONTEXT).get(ClavaContext.CACHED_FILEPATHS).get(firstPart);
+        // Filepaths will be shared between most nodes, use the id of the filepath
+        int startFileId = FileTable.getGlobal().getId(firstPart);
         // String startFilepath = firstPart.intern();
         // String startFilepath = firstPart;
         int startLine = Integer.parseInt(lines.nextLine());
@@ -93,7 +93,7 @@ public class ClavaDataParsers {
         // boolean startIsMacro = LineStreamParsers.oneOrZero(lines);
         boolean startIsMacro = false;
 
-        SourceLocation startLocation = new SourceLocation(startFilepath, startLine, startColumn, startIsMacro);
+        SourceLocation startLocation = new SourceLocation(startFileId, startLine, startColumn, startIsMacro);
 
         // Check if start is the same as the end
         String secondPart = lines.nextLine();
@@ -108,7 +108,7 @@ public class ClavaDataParsers {
         }
 
         // Parser end location
-        String endFilepath = dataStore.get(ClangParserData.CONTEXT).get(ClavaContext.CACHED_FILEPATHS).get(secondPart);
+        int endFileId = FileTable.getGlobal().getId(secondPart);
         // String endFilepath = secondPart.intern();
         // String endFilepath = secondPart;
 
@@ -117,7 +117,7 @@ public class ClavaDataParsers {
         // boolean endIsMacro = LineStreamParsers.oneOrZero(lines);
         boolean endIsMacro = false;
 
-        SourceLocation endLocation = new SourceLocation(endFilepath, endLine, endColumn, endIsMacro);
+        SourceLocation endLocation = new SourceLocation(endFileId, endLine, endColumn, endIsMacro);
         return new SourceRange(startLocation, endLocation);
     }
 
@@ -78,6 +78,7 @@ public class ClangStreamParser {
             new RemoveExtraNodes(),
             // new RemoveClangComments(),
             new CreateDeclStmts(),
+            // Applied in a single traversal (see TreeTransformer)
             new MoveImplicitCasts(),
             // new RemovePoison(),
             new FlattenSubStmtNodes()
@@ -13,7 +13,11 @@
 
 package pt.up.fe.specs.clang.transforms;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ClavaRule;
 import pt.up.fe.specs.clava.ast.stmt.LabelStmt;
 import pt.up.fe.specs.clava.ast.stmt.SwitchCase;
 import pt.up.fe.specs.clava.transform.SimplePreClavaRule;
@@ -46,4 +50,17 @@ public class FlattenSubStmtNodes implements SimplePreClavaRule {
         queue.moveAfter(node, node.getChild(lastChildIndex));
     }
 
+    @Override
+    public Collection<Class<? extends ClavaNode>> getHandledClasses() {
+        return Arrays.asList(LabelStmt.class, SwitchCase.class);
+    }
+
+    /**
+     * The last child must be the final sub-statement, after OpenMP nodes have been replaced by their children.
+     */
+    @Override
+    public Collection<Class<? extends ClavaRule>> getDependencies() {
+        return Arrays.asList(RemoveClangOmpNodes.class);
+    }
+
 }
@@ -13,7 +13,11 @@
 
 package pt.up.fe.specs.clang.transforms;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ClavaRule;
 import pt.up.fe.specs.clava.ast.expr.Expr;
 import pt.up.fe.specs.clava.ast.expr.ImplicitCastExpr;
 import pt.up.fe.specs.clava.transform.SimplePreClavaRule;
@@ -51,4 +55,18 @@ public class MoveImplicitCasts implements SimplePreClavaRule {
         // .dummyExpr("Implicit cast of node " + subExpression.get(ClavaNode.ID)));
     }
 
+    @Override
+    public Collection<Class<? extends ClavaNode>> getHandledClasses() {
+        return Arrays.asList(ImplicitCastExpr.class);
+    }
+
+    /**
+     * The sub-expression of the cast is modified immediately, extra nodes must be removed first so that the implicit
+     * cast is not moved to a node that is going to be removed.
+     */
+    @Override
+    public Collection<Class<? extends ClavaRule>> getDependencies() {
+        return Arrays.asList(RemoveExtraNodes.class);
+    }
+
 }
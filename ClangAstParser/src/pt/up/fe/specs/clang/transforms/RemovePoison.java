@@ -13,6 +13,9 @@
 
 package pt.up.fe.specs.clang.transforms;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.ast.pragma.Pragma;
 import pt.up.fe.specs.clava.ast.stmt.WrapperStmt;
@@ -55,4 +58,9 @@ public class RemovePoison implements SimplePreClavaRule {
         queue.delete(node);
     }
 
+    @Override
+    public Collection<Class<? extends ClavaNode>> getHandledClasses() {
+        return Arrays.asList(Pragma.class);
+    }
+
 }
@@ -13,23 +13,166 @@
 
 package pt.up.fe.specs.clang.transforms;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.ClavaRule;
+import pt.up.fe.specs.clava.transform.SimplePreClavaRule;
+import pt.up.fe.specs.util.treenode.transform.TransformQueue;
 
+/**
+ * Applies a list of rules to a tree.
+ * 
+ * <p>
+ * Consecutive SimplePreClavaRules that declare the classes they handle are fused and applied in a single pre-order
+ * traversal, unless a rule depends on another rule of the same group. Other rules, including fusable rules that have
+ * no fusable neighbour, are applied in their own traversal, in the given order.
+ * 
+ * @author JoaoBispo
+ *
+ */
 public class TreeTransformer {
 
-    private final Collection<ClavaRule> clavaRules;
+    private final List<Consumer<ClavaNode>> passes;
 
     public TreeTransformer(Collection<ClavaRule> clavaRules) {
-        this.clavaRules = clavaRules;
+        this.passes = buildPasses(clavaRules);
+    }
+
+    private static List<Consumer<ClavaNode>> buildPasses(Collection<ClavaRule> clavaRules) {
+        List<Consumer<ClavaNode>> passes = new ArrayList<>();
+
+        List<SimplePreClavaRule> currentGroup = new ArrayList<>();
+        for (ClavaRule rule : clavaRules) {
+            if (!isFusable(rule)) {
+                addGroup(currentGroup, passes);
+                passes.add(rule::visit);
+                continue;
+            }
+
+            SimplePreClavaRule simpleRule = (SimplePreClavaRule) rule;
+
+            // Changes of dependencies must be applied before the rule runs
+            if (dependsOn(simpleRule, currentGroup)) {
+                addGroup(currentGroup, passes);
+            }
+
+            currentGroup.add(simpleRule);
+        }
+
+        addGroup(currentGroup, passes);
+
+        return passes;
+    }
+
+    private static boolean isFusable(ClavaRule rule) {
+        if (!(rule instanceof SimplePreClavaRule)) {
+            return false;
+        }
+
+        return !((SimplePreClavaRule) rule).getHandledClasses().isEmpty();
+    }
+
+    private static boolean dependsOn(SimplePreClavaRule rule, List<SimplePreClavaRule> group) {
+        for (Class<? extends ClavaRule> dependency : rule.getDependencies()) {
+            for (SimplePreClavaRule groupRule : group) {
+                if (dependency.isInstance(groupRule)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static void addGroup(List<SimplePreClavaRule> group, List<Consumer<ClavaNode>> passes) {
+        if (group.isEmpty()) {
+            return;
+        }
+
+        // A single rule keeps its own traversal
+        if (group.size() == 1) {
+            passes.add(group.get(0)::visit);
+            group.clear();
+            return;
+        }
+
+        passes.add(new FusedRules(new ArrayList<>(group))::visit);
+        group.clear();
     }
 
     public void transform(ClavaNode node) {
         // long tic = System.nanoTime();
-        clavaRules.stream()
-                .forEach(transform -> transform.visit(node));
+        passes.stream()
+                .forEach(pass -> pass.accept(node));
         // ParseUtils.printTime("Clava AST Post-processing", tic);
     }
+
+    /**
+     * Group of rules that are applied in a single pre-order traversal.
+     * 
+     * <p>
+     * As when applying the rules separately, changes are queued and only applied after the traversal, so that all
+     * rules see the original tree.
+     */
+    private static class FusedRules {
+
+        private final List<SimplePreClavaRule> rules;
+        private final Map<Class<?>, List<SimplePreClavaRule>> dispatchTable;
+
+        public FusedRules(List<SimplePreClavaRule> rules) {
+            this.rules = rules;
+            this.dispatchTable = new ConcurrentHashMap<>();
+        }
+
+        public void visit(ClavaNode node) {
+            String queueId = rules.stream()
+                    .map(rule -> rule.getClass().getSimpleName())
+                    .collect(Collectors.joining(", ", "Fused rules (", ")"));
+
+            TransformQueue<ClavaNode> queue = new TransformQueue<>(queueId);
+
+            visit(node, queue);
+
+            queue.apply();
+        }
+
+        private void visit(ClavaNode node, TransformQueue<ClavaNode> queue) {
+            List<SimplePreClavaRule> nodeRules = dispatchTable.computeIfAbsent(node.getClass(), this::getRules);
+
+            for (SimplePreClavaRule rule : nodeRules) {
+                rule.applySimple(node, queue);
+            }
+
+            for (int i = 0; i < node.getNumChildren(); i++) {
+                visit(node.getChild(i), queue);
+            }
+        }
+
+        /**
+         * 
+         * @param nodeClass
+         * @return the rules that handle the given class, in the order they were given
+         */
+        private List<SimplePreClavaRule> getRules(Class<?> nodeClass) {
+            List<SimplePreClavaRule> nodeRules = new ArrayList<>();
+
+            for (SimplePreClavaRule rule : rules) {
+                boolean handles = rule.getHandledClasses().stream()
+                        .anyMatch(handledClass -> handledClass.isAssignableFrom(nodeClass));
+
+                if (handles) {
+                    nodeRules.add(rule);
+                }
+            }
+
+            return nodeRules;
+        }
+    }
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package eu.antarex.clang.parser;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import pt.up.fe.specs.clang.codeparser.CodeParser;
+import pt.up.fe.specs.clava.ast.extra.App;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsSystem;
+import pt.up.fe.specs.util.utilities.PathFilter;
+
+/**
+ * Measures the heap that is retained by a parsed App, and the average per node.
+ *
+ * <p>
+ * Receives the folder with the sources of the program, followed by the compiler flags (e.g., -std=c++11). Should be
+ * run with a fixed heap size (e.g., -Xms4g -Xmx4g), so that the measurements are not affected by the heap resizing.
+ *
+ * <p>
+ * To measure a change to the storage of nodes, run it with the same sources and flags on the builds before and after
+ * the change, and compare the bytes per node.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class ClavaHeapBenchmark {
+
+    private static final int GC_RUNS = 5;
+
+    public static void main(String[] args) {
+        SpecsSystem.programStandardInit();
+
+        if (args.length < 1) {
+            System.out.println("Usage: <sources folder> [compiler flags...]");
+            return;
+        }
+
+        List<File> sources = SpecsIo.getPathsWithPattern(new File(args[0]), "*.c*", true, PathFilter.FILES);
+        List<String> flags = Arrays.asList(args).subList(1, args.length);
+
+        long usedBefore = getUsedHeap();
+
+        App app = CodeParser.newInstance().parse(sources, flags);
+
+        long usedAfter = getUsedHeap();
+
+        long numNodes = app.getDescendantsStream().count() + 1;
+        long retained = usedAfter - usedBefore;
+
+        System.out.println(String.format("Sources: %,d", sources.size()));
+        System.out.println(String.format("Nodes: %,d", numNodes));
+        System.out.println(String.format("Retained heap: %,d bytes", retained));
+        System.out.println(String.format("Per node: %,.1f bytes", retained / (double) numNodes));
+
+        // Keeps the App reachable until after the measurement
+        System.out.println("App: " + app.getTranslationUnits().size() + " translation units");
+    }
+
+    /**
+     *
+     * @return the heap in use after garbage collection
+     */
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < GC_RUNS; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package eu.antarex.clang.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import pt.up.fe.specs.clava.context.ClavaContext;
+import pt.up.fe.specs.clava.context.ClavaFactory;
+import pt.up.fe.specs.util.SpecsSystem;
+
+/**
+ * Measures the throughput of node creation through ClavaFactory when the same context is shared by several threads.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class ClavaIdGeneratorBenchmark {
+
+    private static final int[] NUM_THREADS = { 1, 8, 32 };
+    private static final int NODES_PER_RUN = 2_000_000;
+    private static final int WARMUP_RUNS = 2;
+
+    public static void main(String[] args) {
+        SpecsSystem.programStandardInit();
+
+        for (int numThreads : NUM_THREADS) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                run(numThreads);
+            }
+
+            long nanos = run(numThreads);
+            double nodesPerSecond = NODES_PER_RUN / (nanos / 1_000_000_000.0);
+
+            System.out.println(String.format("%2d thread(s): %,.0f nodes/s", numThreads, nodesPerSecond));
+        }
+    }
+
+    /**
+     *
+     * @param numThreads
+     * @return the time, in nanoseconds, it took to create the nodes
+     */
+    private static long run(int numThreads) {
+        ClavaFactory factory = new ClavaContext().getFactory();
+        int nodesPerThread = NODES_PER_RUN / numThreads;
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            long tic = System.nanoTime();
+
+            List<Future<?>> futures = new ArrayList<>(numThreads);
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < nodesPerThread; j++) {
+                        factory.nullStmt();
+                    }
+                }));
+            }
+
+            futures.forEach(SpecsSystem::get);
+
+            return System.nanoTime() - tic;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package eu.antarex.clang.parser.tests;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import eu.antarex.clang.parser.AClangAstTester;
+import eu.antarex.clang.parser.CTester;
+import eu.antarex.clang.parser.CxxTester;
+
+/**
+ * Checks that the code generated after the post-parsing rules (see ClangStreamParser) is the same as the baseline
+ * code. Each test exercises the nodes changed by at least one of the rules.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class PostParsingRulesTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        AClangAstTester.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AClangAstTester.clear();
+    }
+
+    /**
+     * RemoveClangOmpNodes
+     */
+    @Test
+    public void testOmpDirectives() {
+        new CxxTester("OMPParallelForDirective.cpp").addFlags("-fopenmp").test();
+    }
+
+    /**
+     * RemoveClangOmpNodes
+     */
+    @Test
+    public void testOmpClauses() {
+        new CxxTester("multiple_clauses_omp_pragmas.cpp").test();
+    }
+
+    /**
+     * DenanonymizeDecls
+     */
+    @Test
+    public void testAnonymousDecls() {
+        new CTester("struct.c").test();
+    }
+
+    /**
+     * DeleteTemplateSpecializations
+     */
+    @Test
+    public void testTemplateSpecializations() {
+        new CxxTester("templates.cpp", "templates.h").test();
+    }
+
+    /**
+     * RemoveExtraNodes and CreateDeclStmts
+     */
+    @Test
+    public void testDeclStmts() {
+        new CTester("decl.c").test();
+    }
+
+    /**
+     * MoveImplicitCasts
+     */
+    @Test
+    public void testImplicitCasts() {
+        new CTester("types.c").test();
+    }
+
+    /**
+     * MoveImplicitCasts
+     */
+    @Test
+    public void testSizeof() {
+        new CTester("sizeof.c").test();
+    }
+
+    /**
+     * FlattenSubStmtNodes
+     */
+    @Test
+    public void testSwitch() {
+        new CTester("switch.c").test();
+    }
+
+    /**
+     * FlattenSubStmtNodes
+     */
+    @Test
+    public void testLabels() {
+        new CTester("goto.c").test();
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clang.codeparser;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import pt.up.fe.specs.clang.codeparser.ParsingCache.CachedDump;
+import pt.up.fe.specs.util.SpecsIo;
+
+public class ParsingCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File cacheFolder;
+    private ParsingCache cache;
+    private File source;
+    private File header;
+    private File stdErr;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheFolder = temporaryFolder.newFolder("cache");
+        cache = new ParsingCache(cacheFolder, 0);
+
+        source = temporaryFolder.newFile("source.c");
+        SpecsIo.write(source, "#include \"header.h\"\nint main() { return A; }\n");
+
+        header = temporaryFolder.newFile("header.h");
+        SpecsIo.write(header, "#define A 0\n");
+
+        stdErr = temporaryFolder.newFile("stderr.txt");
+        SpecsIo.write(stdErr, "0x55d4a0c3b2e8_1\n000055D4A0C3B2F0_1->0x55d4a0c3b2e8_1\nvalue_1\n");
+    }
+
+    private List<String> getArguments() {
+        return Arrays.asList("dumper", source.getAbsolutePath(), "--", "-std=c99");
+    }
+
+    private void put(String key) {
+        cache.put(key, "1", "output", stdErr, Arrays.asList("0x55d4a0c3b2e8_1", "000055D4A0C3B2F0_1"),
+                Arrays.asList(header));
+    }
+
+    @Test
+    public void testMiss() {
+        String key = cache.getKey(source, getArguments());
+
+        assertFalse(cache.get(key).isPresent());
+    }
+
+    @Test
+    public void testHit() {
+        String key = cache.getKey(source, getArguments());
+        put(key);
+
+        Optional<CachedDump> cachedDump = cache.get(key);
+
+        assertTrue(cachedDump.isPresent());
+        assertEquals("output", cachedDump.get().getStdOut());
+        assertEquals(SpecsIo.read(stdErr), cachedDump.get().getStdErr("1"));
+    }
+
+    @Test
+    public void testIdAdaptation() {
+        String key = cache.getKey(source, getArguments());
+        put(key);
+
+        // Only the ids of nodes are changed, independently of the format of the address
+        assertEquals("0x55d4a0c3b2e8_7\n000055D4A0C3B2F0_7->0x55d4a0c3b2e8_7\nvalue_1\n",
+                cache.get(key).get().getStdErr("7"));
+    }
+
+    @Test
+    public void testKey() {
+        String key = cache.getKey(source, getArguments());
+
+        assertEquals(key, cache.getKey(source, getArguments()));
+        assertNotEquals(key, cache.getKey(source, Arrays.asList("dumper", source.getAbsolutePath(), "--", "-std=c11")));
+
+        SpecsIo.write(source, "int main() { return 1; }\n");
+        assertNotEquals(key, cache.getKey(source, getArguments()));
+    }
+
+    @Test
+    public void testDependencyChanged() {
+        String key = cache.getKey(source, getArguments());
+        put(key);
+
+        SpecsIo.write(header, "#define A 1\n");
+
+        assertFalse(cache.get(key).isPresent());
+    }
+
+    @Test
+    public void testDependencyRemoved() {
+        String key = cache.getKey(source, getArguments());
+        put(key);
+
+        assertTrue(header.delete());
+
+        assertFalse(cache.get(key).isPresent());
+    }
+
+    @Test
+    public void testWithoutDependencies() {
+        String key = cache.getKey(source, getArguments());
+        cache.put(key, "1", "", stdErr, Collections.emptyList(), Collections.emptyList());
+
+        SpecsIo.write(header, "#define A 1\n");
+
+        assertTrue(cache.get(key).isPresent());
+    }
+
+    @Test
+    public void testSystemIncludesChanged() throws Exception {
+        File includeFolder = temporaryFolder.newFolder("include");
+        File systemHeader = new File(includeFolder, "stdio.h");
+        SpecsIo.write(systemHeader, "int printf(const char *format, ...);\n");
+
+        List<String> arguments = Arrays.asList("dumper", source.getAbsolutePath(), "--", "-isystem",
+                includeFolder.getAbsolutePath());
+        String key = cache.getKey(source, arguments);
+
+        // System include folders are checked once per cache instance
+        SpecsIo.write(systemHeader, "int printf(const char *format, ...);\nint puts(const char *s);\n");
+        assertEquals(key, cache.getKey(source, arguments));
+        assertNotEquals(key, new ParsingCache(cacheFolder, 0).getKey(source, arguments));
+    }
+
+    @Test
+    public void testDumperChanged() throws Exception {
+        File dumper = temporaryFolder.newFile("dumper");
+        SpecsIo.write(dumper, "version 1");
+
+        List<String> arguments = Arrays.asList(dumper.getAbsolutePath(), source.getAbsolutePath());
+        String key = cache.getKey(source, arguments);
+
+        SpecsIo.write(dumper, "version 2");
+        assertNotEquals(key, new ParsingCache(cacheFolder, 0).getKey(source, arguments));
+    }
+
+    @Test
+    public void testMaxEntries() {
+        String oldKey = cache.getKey(source, getArguments());
+        put(oldKey);
+        new File(new File(cacheFolder, oldKey), "manifest.txt").setLastModified(System.currentTimeMillis() - 60_000);
+
+        String newKey = cache.getKey(source, Arrays.asList("dumper", source.getAbsolutePath(), "--", "-std=c11"));
+        put(newKey);
+
+        // Least recently used entries are removed when the cache is opened
+        ParsingCache boundedCache = new ParsingCache(cacheFolder, 1);
+        assertFalse(boundedCache.get(oldKey).isPresent());
+        assertTrue(boundedCache.get(newKey).isPresent());
+    }
+}
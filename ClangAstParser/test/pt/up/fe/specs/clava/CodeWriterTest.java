@@ -0,0 +1,92 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CodeWriterTest {
+
+    @Test
+    public void testIndentation() {
+        String code = CodeWriter.toCode(writer -> writer.append("{\n")
+                .pushIndentation("   ")
+                .append("a;\nb;\n")
+                .popIndentation()
+                .append("\n}"));
+
+        assertEquals("{\n   a;\n   b;\n}", code);
+    }
+
+    @Test
+    public void testNestedIndentation() {
+        String code = CodeWriter.toCode(writer -> writer.append("{\n")
+                .pushIndentation("   ")
+                .append("a;\n{\n")
+                .pushIndentation("   ")
+                .append("b;\n")
+                .popIndentation()
+                .append("\n}\n")
+                .popIndentation()
+                .append("\n}"));
+
+        assertEquals("{\n   a;\n   {\n      b;\n   }\n}", code);
+    }
+
+    @Test
+    public void testEmptyLines() {
+        // Empty lines are also indented, as when indenting each line of the code
+        String code = CodeWriter.toCode(writer -> writer.append("{\n")
+                .pushIndentation("   ")
+                .append("a;\n\nb;")
+                .popIndentation()
+                .append("\n}"));
+
+        assertEquals("{\n   a;\n   \n   b;\n}", code);
+    }
+
+    @Test
+    public void testCarriageReturn() {
+        String code = CodeWriter.toCode(writer -> writer.append("{\r\n")
+                .pushIndentation("   ")
+                .append("a;\r\nb;\r\n")
+                .popIndentation()
+                .append("\r\n}"));
+
+        assertEquals("{\r\n   a;\r\n   b;\r\n}", code);
+    }
+
+    @Test
+    public void testFlush() {
+        // Line breaks outside of indented code are kept
+        assertEquals("a;\n", CodeWriter.toCode(writer -> writer.append("a;\n")));
+    }
+
+    @Test
+    public void testEndsWithNewline() {
+        CodeWriter writer = new CodeWriter(new StringBuilder());
+
+        writer.append("a;");
+        assertFalse(writer.endsWithNewline());
+
+        writer.append("\n");
+        assertTrue(writer.endsWithNewline());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testPopWithoutPush() {
+        new CodeWriter(new StringBuilder()).popIndentation();
+    }
+}
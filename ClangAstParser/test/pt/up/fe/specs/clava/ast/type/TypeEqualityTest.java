@@ -0,0 +1,98 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.ast.type;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import pt.up.fe.specs.clava.ast.type.enums.BuiltinKind;
+import pt.up.fe.specs.clava.context.ClavaContext;
+import pt.up.fe.specs.clava.context.ClavaFactory;
+
+/**
+ * Types are compared by cached canonical keys, which must follow modifications done in place.
+ */
+public class TypeEqualityTest {
+
+    private ClavaFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new ClavaContext().getFactory();
+    }
+
+    private AutoType autoType() {
+        return new AutoType(factory.newDataStore(AutoType.class), Collections.emptyList());
+    }
+
+    @Test
+    public void testSetInPlace() {
+        PointerType pointer = factory.pointerType(factory.builtinType(BuiltinKind.Int));
+        PointerType otherPointer = factory.pointerType(factory.builtinType(BuiltinKind.Int));
+
+        assertEquals(pointer, otherPointer);
+        assertEquals(pointer.hashCode(), otherPointer.hashCode());
+
+        otherPointer.setInPlace(PointerType.POINTEE_TYPE, factory.builtinType(BuiltinKind.Float));
+
+        PointerType floatPointer = factory.pointerType(factory.builtinType(BuiltinKind.Float));
+        assertNotEquals(pointer, otherPointer);
+        assertEquals(floatPointer, otherPointer);
+        assertEquals(floatPointer.hashCode(), otherPointer.hashCode());
+    }
+
+    @Test
+    public void testSetInPlaceOfUnderlyingType() {
+        BuiltinType intType = factory.builtinType(BuiltinKind.Int);
+        PointerType pointer = factory.pointerType(intType);
+        PointerType intPointer = factory.pointerType(factory.builtinType(BuiltinKind.Int));
+
+        assertEquals(intPointer, pointer);
+
+        // Changes the code of the pointer, without modifying the pointer node
+        intType.set(BuiltinType.KIND, BuiltinKind.Float);
+
+        assertNotEquals(intPointer, pointer);
+        assertEquals(factory.pointerType(factory.builtinType(BuiltinKind.Float)), pointer);
+    }
+
+    @Test
+    public void testSetCopy() {
+        BuiltinType intType = factory.builtinType(BuiltinKind.Int);
+        BuiltinType floatType = (BuiltinType) intType.setCopy(BuiltinType.KIND, BuiltinKind.Float);
+
+        assertEquals(factory.builtinType(BuiltinKind.Int), intType);
+        assertEquals(factory.builtinType(BuiltinKind.Float), floatType);
+    }
+
+    @Test
+    public void testNoCanonicalKey() {
+        AutoType auto = autoType();
+        AutoType otherAuto = autoType();
+
+        // Auto types that were not deduced are only equal to themselves
+        assertEquals(auto, auto);
+        assertNotEquals(auto, otherAuto);
+
+        auto.setDeducedType(factory.builtinType(BuiltinKind.Int));
+        otherAuto.setDeducedType(factory.builtinType(BuiltinKind.Int));
+
+        assertEquals(auto, otherAuto);
+        assertEquals(auto.hashCode(), otherAuto.hashCode());
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.context;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TypeInternerTest {
+
+    @Test
+    public void testIntern() {
+        TypeInterner interner = new TypeInterner();
+        long version = interner.getVersion();
+
+        int intId = interner.intern("int", version);
+        int floatId = interner.intern("float", version);
+
+        assertEquals(intId, interner.intern(new String("int"), version));
+        assertNotEquals(intId, floatId);
+        assertEquals(TypeInterner.NO_KEY_ID, interner.intern(null, version));
+    }
+
+    @Test
+    public void testInvalidate() {
+        TypeInterner interner = new TypeInterner();
+        long version = interner.getVersion();
+
+        interner.intern("int", version);
+        interner.invalidate();
+
+        assertNotEquals(version, interner.getVersion());
+
+        // Keys computed with a previous version are not interned
+        assertEquals(TypeInterner.NO_KEY_ID, interner.intern("int", version));
+
+        // Each version starts with an empty table
+        long newVersion = interner.getVersion();
+        int floatId = interner.intern("float", newVersion);
+        int intId = interner.intern("int", newVersion);
+
+        assertNotEquals(floatId, intId);
+        assertEquals(intId, interner.intern("int", newVersion));
+    }
+}
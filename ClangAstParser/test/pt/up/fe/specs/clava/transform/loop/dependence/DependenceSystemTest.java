@@ -0,0 +1,125 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop.dependence;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import pt.up.fe.specs.clava.transform.loop.dependence.DependenceSystem.Result;
+
+public class DependenceSystemTest {
+
+    @Test
+    public void testGcd() {
+        // a[2*x] and a[2*y + 1] never touch the same element, even without bounds
+        DependenceSystem system = new DependenceSystem();
+        system.addEquality(expr(0, "x", 2, "y", -2).add(AffineExpr.constant(-1)));
+
+        assertEquals(Result.INDEPENDENT, system.solve());
+    }
+
+    @Test
+    public void testUnbounded() {
+        // Passes the GCD test, but the variables cannot be searched
+        DependenceSystem system = new DependenceSystem();
+        system.addEquality(expr(0, "x", 1, "y", -1));
+
+        assertEquals(Result.UNKNOWN, system.solve());
+    }
+
+    @Test
+    public void testBounds() {
+        // x - y == 10, with x and y in [0, 5]
+        DependenceSystem system = new DependenceSystem();
+        system.addEquality(expr(-10, "x", 1, "y", -1));
+        addRange(system, "x", 0, 5);
+        addRange(system, "y", 0, 5);
+
+        assertEquals(Result.INDEPENDENT, system.solve());
+    }
+
+    @Test
+    public void testSearchDependent() {
+        // x - y == 1, with x and y in [0, 9]
+        DependenceSystem system = new DependenceSystem();
+        system.addEquality(expr(-1, "x", 1, "y", -1));
+        addRange(system, "x", 0, 9);
+        addRange(system, "y", 0, 9);
+
+        assertEquals(Result.DEPENDENT, system.solve());
+        assertTrue(system.isExact());
+    }
+
+    @Test
+    public void testSearchIndependent() {
+        // x + y == 1 and x == y, with x and y in [0, 1]: the bounds do not exclude any value, only the search does
+        DependenceSystem system = new DependenceSystem();
+        system.addEquality(expr(-1, "x", 1, "y", 1));
+        system.addEquality(expr(0, "x", 1, "y", -1));
+        addRange(system, "x", 0, 1);
+        addRange(system, "y", 0, 1);
+
+        assertEquals(Result.INDEPENDENT, system.solve());
+    }
+
+    @Test
+    public void testRelaxed() {
+        // z does not appear in any equality, its constraints are removed
+        DependenceSystem system = new DependenceSystem();
+        system.addEquality(expr(0, "x", 1, "y", -1));
+        addRange(system, "x", 0, 3);
+        addRange(system, "y", 0, 3);
+        system.addInequality(expr(0, "z", 1, "x", -1));
+
+        assertEquals(Result.DEPENDENT, system.solve());
+        assertFalse(system.isExact());
+    }
+
+    @Test
+    public void testSearchBudget() {
+        // x == y and x + y == 2*z + 1 have no solution, but the search space is too large to find that out
+        DependenceSystem system = new DependenceSystem();
+        system.addEquality(expr(0, "x", 1, "y", -1));
+        system.addEquality(expr(-1, "x", 1, "y", 1).add(expr(0, "z", -2)));
+        addRange(system, "x", 0, 1000);
+        addRange(system, "y", 0, 1000);
+        addRange(system, "z", 0, 1000);
+
+        assertEquals(Result.UNKNOWN, system.solve());
+    }
+
+    /**
+     *
+     * @param constant
+     * @param terms
+     *            pairs of variable name and coefficient
+     * @return
+     */
+    private static AffineExpr expr(long constant, Object... terms) {
+        AffineExpr expr = AffineExpr.constant(constant);
+
+        for (int i = 0; i < terms.length; i += 2) {
+            long coefficient = ((Number) terms[i + 1]).longValue();
+            expr = expr.add(AffineExpr.variable((String) terms[i]).multiply(coefficient));
+        }
+
+        return expr;
+    }
+
+    private static void addRange(DependenceSystem system, String variable, long min, long max) {
+        system.addInequality(expr(-min, variable, 1));
+        system.addInequality(expr(max, variable, -1));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongMapTest {
+
+    @Test
+    public void testPutGet() {
+        LongMap<String> map = new LongMap<>();
+
+        assertNull(map.get(1));
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(0, "zero"));
+        assertNull(map.put(-1, "minus"));
+        assertNull(map.put(Long.MIN_VALUE, "min"));
+        assertNull(map.put(Long.MAX_VALUE, "max"));
+
+        assertEquals(5, map.size());
+        assertEquals("a", map.get(1));
+        assertEquals("zero", map.get(0));
+        assertEquals("minus", map.get(-1));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void testReplace() {
+        LongMap<String> map = new LongMap<>();
+
+        map.put(10, "a");
+        assertEquals("a", map.put(10, "b"));
+
+        assertEquals(1, map.size());
+        assertEquals("b", map.get(10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new LongMap<String>().put(1, null);
+    }
+
+    @Test
+    public void testResize() {
+        // Starts with the smallest capacity, grows several times
+        LongMap<Long> map = new LongMap<>(1);
+        Map<Long, Long> expected = new HashMap<>();
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            long value = random.nextLong();
+
+            assertEquals(expected.put(key, value), map.put(key, value));
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        // Keys that only differ in the upper bits, or that are consecutive, must not overwrite each other
+        LongMap<Integer> map = new LongMap<>(4);
+
+        for (int i = 0; i < 1000; i++) {
+            map.put((long) i << 32, i);
+            map.put(i, -i - 1);
+        }
+
+        assertEquals(1999, map.size());
+        for (int i = 1; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), map.get((long) i << 32));
+            assertEquals(Integer.valueOf(-i - 1), map.get(i));
+        }
+
+        // Key 0 was added twice
+        assertEquals(Integer.valueOf(-1), map.get(0));
+    }
+}
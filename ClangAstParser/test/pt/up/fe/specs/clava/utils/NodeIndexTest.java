@@ -0,0 +1,92 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import pt.up.fe.specs.clava.ast.decl.Decl;
+import pt.up.fe.specs.clava.ast.decl.FunctionDecl;
+import pt.up.fe.specs.clava.ast.extra.App;
+import pt.up.fe.specs.clava.ast.extra.TranslationUnit;
+import pt.up.fe.specs.clava.ast.type.FunctionProtoType;
+import pt.up.fe.specs.clava.ast.type.enums.BuiltinKind;
+import pt.up.fe.specs.clava.context.ClavaContext;
+import pt.up.fe.specs.clava.context.ClavaFactory;
+
+/**
+ * Lookups through the node index must return the same nodes as a pre-order traversal of the App.
+ */
+public class NodeIndexTest {
+
+    private ClavaFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new ClavaContext().getFactory();
+    }
+
+    private FunctionDecl function(String name) {
+        FunctionProtoType type = factory.functionProtoType(factory.builtinType(BuiltinKind.Int));
+        return factory.functionDecl(name, type);
+    }
+
+    private TranslationUnit tUnit(String filename, Decl... decls) {
+        return factory.translationUnit(new File(filename), Arrays.asList(decls));
+    }
+
+    @Test
+    public void testTreeOrder() {
+        FunctionDecl foo1 = function("foo");
+        FunctionDecl foo2 = function("foo");
+        TranslationUnit tUnit1 = tUnit("file1.c", function("bar"), foo1);
+        TranslationUnit tUnit2 = tUnit("file2.c", foo2);
+        App app = factory.app(Arrays.asList(tUnit1, tUnit2));
+
+        assertEquals(Arrays.asList(foo1, foo2), app.getNodeIndex().getFunctions("foo"));
+
+        // Added after the index was built, but comes first in the tree
+        FunctionDecl foo0 = function("foo");
+        tUnit1.addChild(0, foo0);
+
+        assertEquals(Arrays.asList(foo0, foo1, foo2), app.getNodeIndex().getFunctions("foo"));
+        assertSame(foo0, app.getFunctionDeclaration("foo", foo1.getFunctionType()).get());
+
+        // Moved to the end of the first file, still before the function of the second file
+        foo0.detach();
+        tUnit1.addChild(foo0);
+
+        assertEquals(Arrays.asList(foo1, foo0, foo2), app.getNodeIndex().getFunctions("foo"));
+    }
+
+    @Test
+    public void testTreeOrderOfIds() {
+        FunctionDecl foo = function("foo");
+        TranslationUnit tUnit1 = tUnit("file1.c", foo);
+        App app = factory.app(Arrays.asList(tUnit1));
+
+        assertSame(foo, app.getNode(foo.getId()));
+
+        // A copy that keeps the id, inserted before the original
+        FunctionDecl fooCopy = (FunctionDecl) foo.copy(true);
+        tUnit1.addChild(0, fooCopy);
+
+        assertSame(fooCopy, app.getNode(foo.getId()));
+    }
+}
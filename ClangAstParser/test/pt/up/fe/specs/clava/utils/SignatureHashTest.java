@@ -0,0 +1,143 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+
+package pt.up.fe.specs.clava.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.SourceRange;
+import pt.up.fe.specs.clava.ast.decl.Decl;
+import pt.up.fe.specs.clava.ast.decl.NamedDecl;
+import pt.up.fe.specs.clava.ast.expr.Expr;
+import pt.up.fe.specs.clava.ast.expr.ImplicitCastExpr;
+import pt.up.fe.specs.clava.ast.type.BuiltinType;
+import pt.up.fe.specs.clava.ast.type.Type;
+import pt.up.fe.specs.clava.ast.type.enums.BuiltinKind;
+import pt.up.fe.specs.clava.context.ClavaContext;
+import pt.up.fe.specs.clava.context.ClavaFactory;
+
+/**
+ * Signature hashes must be equal exactly when the signatures returned by {@link ClavaNode#getNodeSignature()} are
+ * equal.
+ */
+public class SignatureHashTest {
+
+    private ClavaFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new ClavaContext().getFactory();
+    }
+
+    private static SourceRange range(String filepath, int line, int col) {
+        return new SourceRange(filepath, line, col, line, col + 4);
+    }
+
+    private static void assertSameSignature(ClavaNode node1, ClavaNode node2) {
+        assertEquals(node1.getNodeSignature(), node2.getNodeSignature());
+        assertEquals(node1.getNodeSignatureHash(), node2.getNodeSignatureHash());
+    }
+
+    private static void assertDifferentSignature(ClavaNode node1, ClavaNode node2) {
+        assertNotEquals(node1.getNodeSignature(), node2.getNodeSignature());
+        assertNotEquals(node1.getNodeSignatureHash(), node2.getNodeSignatureHash());
+    }
+
+    private BuiltinType intType(String typeAsString) {
+        BuiltinType type = factory.builtinType(BuiltinKind.Int);
+        type.set(Type.TYPE_AS_STRING, typeAsString);
+        return type;
+    }
+
+    @Test
+    public void testLocation() {
+        ClavaNode node = factory.nullStmt().setLocation(range("/src/file.c", 1, 2));
+
+        assertSameSignature(node, factory.nullStmt().setLocation(range("/src/file.c", 1, 2)));
+        assertDifferentSignature(node, factory.nullStmt().setLocation(range("/src/file.c", 1, 3)));
+        assertDifferentSignature(node, factory.nullStmt().setLocation(range("/src/other.c", 1, 2)));
+
+        // Only the name of the file is part of the signature
+        assertSameSignature(node, factory.nullStmt().setLocation(range("/include/file.c", 1, 2)));
+
+        // Ranges where the start is equal to the end, and ranges that end in other files
+        SourceRange point = new SourceRange("/src/file.c", 1, 2, 1, 2);
+        SourceRange otherFile = new SourceRange("/src/file.c", 1, 2, "/src/other.c", 1, 6);
+        assertSameSignature(factory.nullStmt().setLocation(point), factory.nullStmt().setLocation(point));
+        assertDifferentSignature(node, factory.nullStmt().setLocation(point));
+        assertDifferentSignature(node, factory.nullStmt().setLocation(otherFile));
+
+        // Nodes of different classes
+        assertDifferentSignature(node, factory.breakStmt().setLocation(range("/src/file.c", 1, 2)));
+    }
+
+    @Test
+    public void testDecl() {
+        Decl decl1 = (Decl) factory.nullDecl().setLocation(range("file.c", 3, 1));
+        Decl decl2 = (Decl) factory.nullDecl().setLocation(range("file.c", 3, 1));
+
+        assertSameSignature(decl1, decl2);
+
+        decl2.set(Decl.IS_REFERENCED, !decl1.get(Decl.IS_REFERENCED));
+        assertDifferentSignature(decl1, decl2);
+    }
+
+    @Test
+    public void testNamedDecl() {
+        NamedDecl decl1 = (NamedDecl) factory.dummyNamedDecl("a").setLocation(range("file.c", 3, 1));
+
+        assertSameSignature(decl1, factory.dummyNamedDecl("a").setLocation(range("file.c", 3, 1)));
+        assertDifferentSignature(decl1, factory.dummyNamedDecl("b").setLocation(range("file.c", 3, 1)));
+
+        NamedDecl decl2 = (NamedDecl) factory.dummyNamedDecl("a").setLocation(range("file.c", 3, 1));
+        decl2.set(NamedDecl.QUALIFIED_PREFIX, "ns");
+        assertDifferentSignature(decl1, decl2);
+    }
+
+    @Test
+    public void testValueDecl() {
+        ClavaNode decl = factory.varDecl("a", intType("int")).setLocation(range("file.c", 5, 5));
+
+        // Types are compared by their string, not by identity
+        assertSameSignature(decl, factory.varDecl("a", intType("int")).setLocation(range("file.c", 5, 5)));
+        assertDifferentSignature(decl, factory.varDecl("a", intType("long")).setLocation(range("file.c", 5, 5)));
+        assertDifferentSignature(decl, factory.varDecl("b", intType("int")).setLocation(range("file.c", 5, 5)));
+    }
+
+    @Test
+    public void testImplicitCastExpr() {
+        Type type = intType("int");
+        Expr subExpr = factory.integerLiteral(1);
+
+        ClavaNode cast = newImplicitCast(type, subExpr);
+
+        assertSameSignature(cast, newImplicitCast(type, subExpr));
+        assertDifferentSignature(cast, newImplicitCast(intType("long"), subExpr));
+    }
+
+    private ImplicitCastExpr newImplicitCast(Type type, Expr subExpr) {
+        ImplicitCastExpr cast = new ImplicitCastExpr(factory.newDataStore(ImplicitCastExpr.class)
+                .put(Expr.TYPE, Optional.of(type)), Arrays.asList(subExpr.copy()));
+
+        cast.setLocation(range("file.c", 7, 9));
+        return cast;
+    }
+}
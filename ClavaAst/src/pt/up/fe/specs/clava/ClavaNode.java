@@ -39,14 +39,25 @@ import com.google.common.base.Preconditions;
 import pt.up.fe.specs.clava.ast.DataStoreToLegacy;
 import pt.up.fe.specs.clava.ast.LegacyToDataStore;
 import pt.up.fe.specs.clava.ast.comment.InlineComment;
+import pt.up.fe.specs.clava.ast.decl.Decl;
+import pt.up.fe.specs.clava.ast.decl.EnumConstantDecl;
+import pt.up.fe.specs.clava.ast.decl.NamedDecl;
+import pt.up.fe.specs.clava.ast.decl.NamespaceDecl;
+import pt.up.fe.specs.clava.ast.decl.NonTypeTemplateParmDecl;
+import pt.up.fe.specs.clava.ast.decl.TemplateDecl;
+import pt.up.fe.specs.clava.ast.decl.TypeDecl;
+import pt.up.fe.specs.clava.ast.decl.VarDecl;
 import pt.up.fe.specs.clava.ast.expr.Expr;
 import pt.up.fe.specs.clava.ast.extra.App;
 import pt.up.fe.specs.clava.ast.extra.TranslationUnit;
 import pt.up.fe.specs.clava.ast.stmt.CompoundStmt;
 import pt.up.fe.specs.clava.ast.stmt.Stmt;
+import pt.up.fe.specs.clava.ast.type.Type;
 import pt.up.fe.specs.clava.context.ClavaContext;
 import pt.up.fe.specs.clava.context.ClavaFactory;
+import pt.up.fe.specs.clava.utils.NodeIndex;
 import pt.up.fe.specs.clava.utils.NullNode;
+import pt.up.fe.specs.clava.utils.SignatureHash;
 import pt.up.fe.specs.clava.utils.StmtWithCondition;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.SpecsCollections;
@@ -70,6 +81,12 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
      */
     private static final Map<Class<? extends ClavaNode>, List<DataKey<?>>> KEYS_WITH_NODES = new ConcurrentHashMap<>();
 
+    /**
+     * Maps node classes to true if they override copyPrivate() (i.e., legacy nodes). Copies are done node by node, this
+     * avoids a reflective lookup (which usually throws NoSuchMethodException) for each copied node.
+     */
+    private static final Map<Class<? extends ClavaNode>, Boolean> OVERRIDES_COPY_PRIVATE = new ConcurrentHashMap<>();
+
     /// DATAKEYS BEGIN
 
     /**
@@ -124,7 +141,6 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
     }
 
     private final DataStore dataI;
-    private final DataClass<ClavaNode> dataClass;
     private boolean disableModification;
 
     public ClavaNode(ClavaNodeInfo nodeInfo, Collection<? extends ClavaNode> children) {
@@ -142,9 +158,6 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
 
         // Set definition of DataStore
         // this.dataI.setDefinition(getClass());
-
-        // To avoid implementing methods again in ClavaNode
-        this.dataClass = new GenericDataClass<>(this.dataI);
     }
 
     protected void setDisableModification(boolean disableModification) {
@@ -186,6 +199,19 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
         return this;
     }
 
+    /**
+     * Writes the code of this node to the given writer.
+     * 
+     * <p>
+     * By default, writes the result of {@link #getCode()}. Nodes that contain statements override this method, and
+     * implement getCode() over it, so that the code of nested statements is generated in a single pass.
+     * 
+     * @param writer
+     */
+    public void emitCode(CodeWriter writer) {
+        writer.append(getCode());
+    }
+
     public String getCode() {
         ClavaLog.info("getCode() not implemented for this node: " + this);
         throw new NotImplementedException(getClass());
@@ -414,10 +440,15 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
                 "InlineComment must not be a statement comment:" + inlineComment);
 
         getData().get(INLINE_COMMENTS).add(inlineComment);
+        invalidateCaches();
     }
 
     /**
      * By default, copying a node creates an new, unique id for the new copy.
+     * 
+     * <p>
+     * Children are copied eagerly. Subtrees are not shared between the original and the copy, since nodes keep a
+     * reference to their parent.
      */
     @Override
     public ClavaNode copy() {
@@ -464,8 +495,12 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
     }
 
     private boolean isCopyPrivateOverriden() {
+        return OVERRIDES_COPY_PRIVATE.computeIfAbsent(getClass(), ClavaNode::overridesCopyPrivate);
+    }
+
+    private static boolean overridesCopyPrivate(Class<? extends ClavaNode> nodeClass) {
         try {
-            Class<?> copyPrivateNoArgsClass = this.getClass().getDeclaredMethod("copyPrivate").getDeclaringClass();
+            Class<?> copyPrivateNoArgsClass = nodeClass.getDeclaredMethod("copyPrivate").getDeclaringClass();
             // System.out.println("COPY PRIVATE DECLARING CLASS:" + copyPrivateNoArgsClass);
             return !copyPrivateNoArgsClass.equals(ClavaNode.class);
         } catch (NoSuchMethodException e) {
@@ -488,6 +523,245 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
         return newInstance(keepId, getClass(), Collections.emptyList());
     }
 
+    /*
+     * Tree modification methods are overridden to keep the node index of the App up-to-date and to invalidate the
+     * cached keys of types and the cached code of translation units. All updates are idempotent, it does not matter if
+     * a modification passes through more than one of these methods.
+     */
+
+    @Override
+    public ClavaNode addChild(ClavaNode child) {
+        ClavaNode addedChild = super.addChild(child);
+
+        NodeIndex nodeIndex = invalidateCaches(null);
+
+        if (nodeIndex != null) {
+            nodeIndex.add(addedChild);
+        }
+
+        return addedChild;
+    }
+
+    @Override
+    public ClavaNode addChild(int index, ClavaNode child) {
+        ClavaNode addedChild = super.addChild(index, child);
+
+        NodeIndex nodeIndex = invalidateCaches(null);
+
+        if (nodeIndex != null) {
+            nodeIndex.add(addedChild);
+        }
+
+        return addedChild;
+    }
+
+    @Override
+    public ClavaNode setChild(int index, ClavaNode child) {
+        ClavaNode previousChild = super.setChild(index, child);
+
+        NodeIndex nodeIndex = invalidateCaches(null);
+
+        if (nodeIndex != null) {
+            if (previousChild != null) {
+                nodeIndex.remove(previousChild);
+            }
+
+            nodeIndex.add(getChild(index));
+        }
+
+        return previousChild;
+    }
+
+    @Override
+    public ClavaNode removeChild(int index) {
+        ClavaNode removedChild = super.removeChild(index);
+
+        NodeIndex nodeIndex = invalidateCaches(null);
+
+        if (nodeIndex != null) {
+            nodeIndex.remove(removedChild);
+        }
+
+        return removedChild;
+    }
+
+    @Override
+    public void setChildren(Collection<? extends ClavaNode> children) {
+        List<ClavaNode> previousChildren = new ArrayList<>(getChildren());
+
+        super.setChildren(children);
+
+        NodeIndex nodeIndex = invalidateCaches(null);
+
+        if (nodeIndex != null) {
+            previousChildren.forEach(nodeIndex::remove);
+            getChildren().forEach(nodeIndex::add);
+        }
+    }
+
+    /**
+     * 
+     * @param key
+     *            the key that was modified, or null if the children were modified
+     * @param isInTranslationUnit
+     *            true if the node is part of the tree of a translation unit
+     * @return true if the modification can change the code of a type, i.e., it is done over a type, over an
+     *         expression that is not part of a translation unit (expressions used by types, such as the size of
+     *         variable length arrays, are not), or changes a name that can appear in the code of a type
+     */
+    private boolean changesTypeKeys(DataKey<?> key, boolean isInTranslationUnit) {
+        if (this instanceof Type) {
+            return true;
+        }
+
+        if (this instanceof Expr) {
+            return !isInTranslationUnit;
+        }
+
+        if (key != NamedDecl.DECL_NAME) {
+            return false;
+        }
+
+        // Names of types, scopes and of declarations that can be referenced by the size of arrays. Fields and
+        // functions are not included
+        return this instanceof TypeDecl || this instanceof NamespaceDecl || this instanceof TemplateDecl
+                || this instanceof VarDecl || this instanceof EnumConstantDecl
+                || this instanceof NonTypeTemplateParmDecl;
+    }
+
+    /**
+     * Invalidates the cached code and analyses that can depend on this node. Should be called by modifications that are
+     * done in place over values of the node (e.g., adding elements to a list of the node), since they are not detected
+     * automatically.
+     */
+    public void invalidateCaches() {
+        invalidateCaches(null);
+    }
+
+    /**
+     * Called when this node or one of its descendants is modified. Nodes that cache information computed from their
+     * subtree should override this method to discard it.
+     */
+    protected void invalidateCachedData() {
+    }
+
+    /**
+     * Invalidates the cached data of this node and of its ancestors, and the cached code of the top-level declaration
+     * that contains this node. If the modification can change the code of other files (i.e., the node is not inside a
+     * translation unit, such as types, or it changes an attribute of a declaration, which can be used by references to
+     * the declaration), invalidates the cached code of all translation units. If the modification can change the code
+     * of a type, also invalidates the cached canonical keys of types.
+     * 
+     * @param key
+     *            the key that was modified, or null if the children were modified
+     * @return the node index of the App this node belongs to, or null if the node is not part of an App tree or
+     *         invalidation is suspended in the context of the node
+     */
+    private NodeIndex invalidateCaches(DataKey<?> key) {
+        // Nodes can be modified before being associated with a context (e.g., in constructors)
+        boolean hasContext = key != CONTEXT && dataI != null && dataI.hasValue(CONTEXT);
+
+        // Invalidation is suspended while parsing, when nodes are not attached to an App yet
+        if (hasContext && get(CONTEXT).isInvalidationSuspended()) {
+            return null;
+        }
+
+        boolean invalidate = hasContext && !(this instanceof App);
+
+        if (invalidate && this instanceof TranslationUnit) {
+            ((TranslationUnit) this).invalidateChildCode(null);
+            invalidate = false;
+        }
+
+        // Walks up to the root only once, to invalidate the ancestors and to find the node index
+        ClavaNode node = this;
+        ClavaNode topLevelNode = null;
+        TranslationUnit tunit = null;
+        while (true) {
+            if (invalidate && tunit == null) {
+                node.invalidateCachedData();
+            }
+
+            if (!node.hasParent()) {
+                break;
+            }
+
+            ClavaNode parent = node.getParent();
+            if (tunit == null && parent instanceof TranslationUnit) {
+                tunit = (TranslationUnit) parent;
+                topLevelNode = node;
+            }
+
+            node = parent;
+        }
+
+        NodeIndex nodeIndex = node instanceof App ? ((App) node).getNodeIndex() : null;
+
+        if (invalidate) {
+            boolean changesTypeKeys = changesTypeKeys(key, tunit != null);
+            if (changesTypeKeys) {
+                get(CONTEXT).get(ClavaContext.TYPE_INTERNER).invalidate();
+            }
+
+            // The node index follows references through types, but does not track their modifications
+            if (this instanceof Type && get(CONTEXT).hasApp()) {
+                get(CONTEXT).getApp().getNodeIndex().clear();
+            }
+
+            if (tunit != null) {
+                tunit.invalidateChildCode(topLevelNode);
+            }
+
+            // Changes to attributes of a declaration can change the code of the nodes that reference it
+            boolean isDeclAttribute = key != null && this instanceof Decl;
+
+            if (tunit == null || isDeclAttribute) {
+                invalidateOtherUnits(nodeIndex, isDeclAttribute && !changesTypeKeys);
+            }
+        }
+
+        // Index can be null while the App is being constructed
+        return nodeIndex;
+    }
+
+    /**
+     * Invalidates the cached code of other translation units, after a modification that can change it.
+     * 
+     * @param nodeIndex
+     *            the node index of the App of this node, or null
+     * @param onlyReferences
+     *            if true, the modification only changes the code of the nodes that reference this declaration
+     */
+    private void invalidateOtherUnits(NodeIndex nodeIndex, boolean onlyReferences) {
+        ClavaContext context = get(CONTEXT);
+
+        // Before there is an App, there is no generated code to invalidate
+        if (!context.hasApp()) {
+            return;
+        }
+
+        Optional<List<ClavaNode>> references = onlyReferences && nodeIndex != null
+                ? nodeIndex.getReferencesTry((Decl) this)
+                : Optional.empty();
+
+        // Without the references, invalidates the code of all translation units
+        if (!references.isPresent()) {
+            context.get(ClavaContext.CODE_VERSION).incrementAndGet();
+            return;
+        }
+
+        for (ClavaNode reference : references.get()) {
+            ClavaNode topLevelNode = reference;
+            while (topLevelNode.hasParent() && !(topLevelNode.getParent() instanceof TranslationUnit)) {
+                topLevelNode = topLevelNode.getParent();
+            }
+
+            if (topLevelNode.hasParent()) {
+                ((TranslationUnit) topLevelNode.getParent()).invalidateChildCode(topLevelNode);
+            }
+        }
+    }
+
     public boolean hasInlineComments() {
         return getInlineComments().isEmpty();
     }
@@ -505,6 +779,7 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
         List<InlineComment> comments = getInlineComments();
         List<InlineComment> copy = new ArrayList<>(comments);
         comments.clear();
+        invalidateCaches();
         return copy;
     }
 
@@ -685,23 +960,40 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
             return this;
         }
 
+        NodeIndex nodeIndex = invalidateCaches(key);
+
+        // Keys used by the node index of the App need to update it
+        if (nodeIndex != null && NodeIndex.isIndexedKey(key)) {
+            Object previousValue = dataI.getTry(key).orElse(null);
+            setValue(key, value);
+            nodeIndex.update(this, key, previousValue);
+
+            return this;
+        }
+
+        setValue(key, value);
+
+        return this;
+    }
+
+    private <T, E extends T> void setValue(DataKey<T> key, E value) {
         // If value is null, remove value, if present
         if (value == null) {
             if (dataI.hasValue(key)) {
                 dataI.remove(key);
             }
 
-            return this;
+            return;
         }
 
         dataI.put(key, value);
-
-        return this;
     }
 
     @Override
     public ClavaNode set(ClavaNode instance) {
-        return dataClass.set(instance);
+        getDataClass().set(instance);
+        invalidateCaches();
+        return this;
     }
 
     /**
@@ -716,7 +1008,16 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
 
     @Override
     public Collection<DataKey<?>> getDataKeysWithValues() {
-        return dataClass.getDataKeysWithValues();
+        return getDataClass().getDataKeysWithValues();
+    }
+
+    /**
+     * Created on demand instead of being kept in a field, since it is rarely used and there is one per node.
+     * 
+     * @return a DataClass view of the data of this node, to avoid implementing its methods again in ClavaNode
+     */
+    private DataClass<ClavaNode> getDataClass() {
+        return new GenericDataClass<>(dataI);
     }
 
     public ClavaContext getContext() {
@@ -1424,6 +1725,26 @@ public abstract class ClavaNode extends ATreeNode<ClavaNode>
         // return getClass().getSimpleName() + "_" + getLocation();
     }
 
+    /**
+     * A 64-bit hash of the signature of this node, computed without creating the signature String. Nodes with the same
+     * signature have the same hash.
+     * 
+     * @return
+     */
+    public long getNodeSignatureHash() {
+        long hash = SignatureHash.add(SignatureHash.SEED, getClass().getSimpleName());
+
+        for (DataKey<?> key : getSignatureKeys()) {
+            hash = SignatureHash.add(hash, (Object) get(key));
+        }
+
+        for (String customString : getSignatureCustomStrings()) {
+            hash = SignatureHash.add(hash, customString);
+        }
+
+        return SignatureHash.finish(hash);
+    }
+
     public SpecsList<DataKey<?>> getSignatureKeys() {
         return SpecsList.convert(new ArrayList<DataKey<?>>()).andAdd(LOCATION);
         // List<DataKey<?>> signatureKeys = new ArrayList<>();
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Indentation-aware writer used to generate code in a single pass.
+ *
+ * <p>
+ * Code written between {@link #pushIndentation(String)} and {@link #popIndentation()} is indented as if it was split
+ * into lines and each line prefixed with the indentation (including empty lines), and the last line break of that code
+ * is dropped. This is the same result as indenting the code returned by {@link ClavaNode#getCode()}, but without
+ * creating intermediate strings.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class CodeWriter {
+
+    private final Appendable output;
+    private final List<String> indentationStack;
+    private String currentIndentation;
+
+    // Line break that was written but not emitted yet, and the indentation level where it was written
+    private String pendingNewline;
+    private int pendingNewlineLevel;
+
+    // If true, the indentation must be written before the next character
+    private boolean atLineStart;
+
+    // Carriage return that might be part of a line break
+    private boolean pendingCarriageReturn;
+
+    private char lastChar;
+
+    public CodeWriter(Appendable output) {
+        this.output = output;
+        this.indentationStack = new ArrayList<>();
+        this.currentIndentation = "";
+
+        this.pendingNewline = null;
+        this.pendingNewlineLevel = 0;
+        this.atLineStart = false;
+        this.pendingCarriageReturn = false;
+        this.lastChar = 0;
+    }
+
+    /**
+     * Helper method that generates code into a String.
+     *
+     * @param emitter
+     * @return
+     */
+    public static String toCode(Consumer<CodeWriter> emitter) {
+        StringBuilder code = new StringBuilder();
+
+        CodeWriter writer = new CodeWriter(code);
+        emitter.accept(writer);
+        writer.flush();
+
+        return code.toString();
+    }
+
+    /**
+     * Code written after this call is indented with the given string, in addition to the current indentation.
+     *
+     * @param indentation
+     * @return
+     */
+    public CodeWriter pushIndentation(String indentation) {
+        indentationStack.add(indentation);
+        currentIndentation = currentIndentation + indentation;
+
+        return this;
+    }
+
+    /**
+     * Removes the last indentation. If the code written since the corresponding push ends with a line break, that line
+     * break is dropped.
+     *
+     * @return
+     */
+    public CodeWriter popIndentation() {
+        if (indentationStack.isEmpty()) {
+            throw new RuntimeException("No indentation to remove");
+        }
+
+        int level = indentationStack.size();
+
+        flushCarriageReturn();
+
+        if (pendingNewline != null && pendingNewlineLevel == level) {
+            pendingNewline = null;
+        }
+
+        String removedIndentation = indentationStack.remove(level - 1);
+        currentIndentation = currentIndentation.substring(0,
+                currentIndentation.length() - removedIndentation.length());
+
+        return this;
+    }
+
+    public CodeWriter append(CharSequence code) {
+        for (int i = 0; i < code.length(); i++) {
+            append(code.charAt(i));
+        }
+
+        return this;
+    }
+
+    public CodeWriter append(char c) {
+        lastChar = c;
+
+        if (c == '\r') {
+            flushCarriageReturn();
+            pendingCarriageReturn = true;
+            return this;
+        }
+
+        if (c == '\n') {
+            String newline = pendingCarriageReturn ? "\r\n" : "\n";
+            pendingCarriageReturn = false;
+
+            newLine(newline);
+            return this;
+        }
+
+        flushCarriageReturn();
+        write(c);
+
+        return this;
+    }
+
+    /**
+     *
+     * @return true if the last character that was written is a line break
+     */
+    public boolean endsWithNewline() {
+        return lastChar == '\n';
+    }
+
+    /**
+     * Writes any pending line break. Should be called after all code has been written.
+     */
+    public void flush() {
+        flushCarriageReturn();
+
+        if (pendingNewline != null) {
+            emit(pendingNewline);
+            pendingNewline = null;
+        }
+    }
+
+    private void newLine(String newline) {
+        // Empty lines are also indented
+        if (pendingNewline != null || atLineStart) {
+            prepareWrite();
+        }
+
+        pendingNewline = newline;
+        pendingNewlineLevel = indentationStack.size();
+    }
+
+    private void write(char c) {
+        prepareWrite();
+
+        try {
+            output.append(c);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write code", e);
+        }
+    }
+
+    /**
+     * Emits pending line breaks and indentation.
+     */
+    private void prepareWrite() {
+        if (pendingNewline != null) {
+            emit(pendingNewline);
+            pendingNewline = null;
+            atLineStart = true;
+        }
+
+        if (atLineStart) {
+            emit(currentIndentation);
+            atLineStart = false;
+        }
+    }
+
+    private void flushCarriageReturn() {
+        if (!pendingCarriageReturn) {
+            return;
+        }
+
+        pendingCarriageReturn = false;
+        write('\r');
+    }
+
+    private void emit(String string) {
+        try {
+            output.append(string);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write code", e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Maps the filepaths of source locations to integer ids.
+ *
+ * <p>
+ * Each filepath is canonicalized only the first time it is seen, and filepaths that have the same canonical path have
+ * the same id. Locations store the id instead of the filepath.
+ *
+ * <p>
+ * Ids are never reused, since locations of nodes can outlive the context that created them. The table has one entry
+ * per distinct file. The filepaths as given, which can have many spellings for the same file, are only cached up to a
+ * maximum number, and are canonicalized again after that.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class FileTable {
+
+    /**
+     * Id of locations without filepath.
+     */
+    public static final int NO_FILE = -1;
+
+    private static final int MAX_CACHED_FILEPATHS = 100_000;
+
+    private static final FileTable GLOBAL_TABLE = new FileTable();
+
+    /**
+     * Source locations are created in many places without access to a context, so the table is shared by all
+     * locations.
+     *
+     * @return the table used by SourceLocation and SourceRange
+     */
+    public static FileTable getGlobal() {
+        return GLOBAL_TABLE;
+    }
+
+    // Filepaths as given, before canonicalization
+    private final Map<String, Integer> filepathToId;
+
+    // Accessed only inside register()
+    private final Map<String, Integer> canonicalPathToId;
+
+    // Published after each registration, ids are obtained through the maps
+    private volatile String[] canonicalPaths;
+    private int numPaths;
+
+    public FileTable() {
+        this.filepathToId = new ConcurrentHashMap<>();
+        this.canonicalPathToId = new HashMap<>();
+        this.canonicalPaths = new String[64];
+        this.numPaths = 0;
+    }
+
+    /**
+     *
+     * @param filepath
+     * @return the id of the given filepath, or NO_FILE if the filepath is null
+     */
+    public int getId(String filepath) {
+        if (filepath == null) {
+            return NO_FILE;
+        }
+
+        Integer id = filepathToId.get(filepath);
+        if (id != null) {
+            return id;
+        }
+
+        // Filesystem access is done outside of the lock
+        int newId = register(SpecsIo.getCanonicalPath(new File(filepath)));
+
+        if (filepathToId.size() >= MAX_CACHED_FILEPATHS) {
+            filepathToId.clear();
+        }
+
+        filepathToId.putIfAbsent(filepath, newId);
+
+        return newId;
+    }
+
+    /**
+     *
+     * @param id
+     * @return the canonical filepath with the given id, or null if the id is NO_FILE
+     */
+    public String getFilepath(int id) {
+        if (id == NO_FILE) {
+            return null;
+        }
+
+        return canonicalPaths[id];
+    }
+
+    private synchronized int register(String canonicalPath) {
+        Integer id = canonicalPathToId.get(canonicalPath);
+        if (id != null) {
+            return id;
+        }
+
+        String[] paths = canonicalPaths;
+        if (numPaths == paths.length) {
+            paths = Arrays.copyOf(paths, paths.length * 2);
+        }
+
+        int newId = numPaths;
+        paths[newId] = canonicalPath;
+        numPaths++;
+
+        canonicalPathToId.put(canonicalPath, newId);
+
+        // Publish the new path
+        canonicalPaths = paths;
+
+        return newId;
+    }
+}
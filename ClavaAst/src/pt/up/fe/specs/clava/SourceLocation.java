@@ -15,8 +15,6 @@ package pt.up.fe.specs.clava;
 
 import java.io.File;
 
-import pt.up.fe.specs.util.SpecsIo;
-
 public class SourceLocation {
 
     private static final int INVALID_POSITION = -1;
@@ -35,7 +33,8 @@ public class SourceLocation {
         return INVALID_LOCATION;
     }
 
-    private final String filepath;
+    // Id in the FileTable
+    private final int fileId;
     private final int line;
     private final int column;
     private final boolean isMacro;
@@ -45,9 +44,20 @@ public class SourceLocation {
     }
 
     public SourceLocation(String filepath, int line, int col, boolean isMacro) {
-        // Normalize filepath
-        // this.filepath = filepath != null ? new File(filepath).getAbsolutePath() : null;
-        this.filepath = filepath != null ? SpecsIo.getCanonicalPath(new File(filepath)) : null;
+        // Filepath is normalized by the FileTable
+        this(FileTable.getGlobal().getId(filepath), line, col, isMacro);
+    }
+
+    /**
+     * 
+     * @param fileId
+     *            the id of the filepath in the global FileTable
+     * @param line
+     * @param col
+     * @param isMacro
+     */
+    public SourceLocation(int fileId, int line, int col, boolean isMacro) {
+        this.fileId = fileId;
         this.line = line;
         this.column = col;
         this.isMacro = isMacro;
@@ -58,7 +68,11 @@ public class SourceLocation {
     }
 
     public String getFilepath() {
-        return filepath;
+        return FileTable.getGlobal().getFilepath(fileId);
+    }
+
+    public int getFileId() {
+        return fileId;
     }
 
     public int getLine() {
@@ -74,7 +88,7 @@ public class SourceLocation {
         final int prime = 31;
         int result = 1;
         result = prime * result + column;
-        result = prime * result + ((filepath == null) ? 0 : filepath.hashCode());
+        result = prime * result + fileId;
         result = prime * result + line;
         return result;
     }
@@ -90,10 +104,7 @@ public class SourceLocation {
         SourceLocation other = (SourceLocation) obj;
         if (column != other.column)
             return false;
-        if (filepath == null) {
-            if (other.filepath != null)
-                return false;
-        } else if (!filepath.equals(other.filepath))
+        if (fileId != other.fileId)
             return false;
         if (line != other.line)
             return false;
@@ -103,7 +114,7 @@ public class SourceLocation {
     @Override
     public String toString() {
         String isMacroString = isMacro ? " (macro)" : "";
-        return new File(filepath).getName() + ":" + line + ":" + column + isMacroString;
+        return new File(getFilepath()).getName() + ":" + line + ":" + column + isMacroString;
     }
 
     public boolean isValid() {
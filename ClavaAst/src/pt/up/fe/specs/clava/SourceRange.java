@@ -34,8 +34,15 @@ public class SourceRange {
         return INVALID_SOURCE_RANGE;
     }
 
-    private final SourceLocation start;
-    private final SourceLocation end;
+    // Locations are stored as primitives, SourceLocation objects are created on demand
+    private final int startFileId;
+    private final int startLine;
+    private final int startColumn;
+    private final int endFileId;
+    private final int endLine;
+    private final int endColumn;
+    private final boolean isStartMacro;
+    private final boolean isEndMacro;
 
     public SourceRange(String filepath, int startLine, int startCol, int endLine, int endCol) {
         this(filepath, startLine, startCol, filepath, endLine, endCol);
@@ -50,44 +57,59 @@ public class SourceRange {
     }
 
     public SourceRange(SourceLocation start, SourceLocation end) {
-        this.start = start;
-        this.end = end;
+        this.startFileId = start.getFileId();
+        this.startLine = start.getLine();
+        this.startColumn = start.getColumn();
+        this.isStartMacro = start.isMacro();
+
+        this.endFileId = end.getFileId();
+        this.endLine = end.getLine();
+        this.endColumn = end.getColumn();
+        this.isEndMacro = end.isMacro();
     }
 
     public SourceRange(SourceRange sourceRange) {
-        this(sourceRange.start, sourceRange.end);
+        this.startFileId = sourceRange.startFileId;
+        this.startLine = sourceRange.startLine;
+        this.startColumn = sourceRange.startColumn;
+        this.isStartMacro = sourceRange.isStartMacro;
+
+        this.endFileId = sourceRange.endFileId;
+        this.endLine = sourceRange.endLine;
+        this.endColumn = sourceRange.endColumn;
+        this.isEndMacro = sourceRange.isEndMacro;
     }
 
     public SourceLocation getStart() {
-        return start;
+        return new SourceLocation(startFileId, startLine, startColumn, isStartMacro);
     }
 
     public SourceLocation getEnd() {
-        return end;
+        return new SourceLocation(endFileId, endLine, endColumn, isEndMacro);
     }
 
     public String getFilepath() {
         // Check start is null
-        if (start.getFilepath() == null) {
+        if (startFileId == FileTable.NO_FILE) {
             return null;
         }
 
         // Check end is null
-        if (end.getFilepath() == null) {
-            return start.getFilepath();
+        if (endFileId == FileTable.NO_FILE) {
+            return getStartFilepath();
         }
 
         // If filepaths are the same, just return one of them
-        if (start.getFilepath().equals(end.getFilepath())) {
-            return start.getFilepath();
+        if (startFileId == endFileId) {
+            return getStartFilepath();
         }
 
         // Filepaths are different, probably this means that one of them points to a macro definition
 
         // Filepaths are different, get source types
 
-        SourceType startType = SourceType.getType(start.getFilepath());
-        SourceType endType = SourceType.getType(end.getFilepath());
+        SourceType startType = SourceType.getType(getStartFilepath());
+        SourceType endType = SourceType.getType(getEndFilepath());
 
         // If one is a header file and the other an implementation file,
         // give priority to the implementation file. The idea is that
@@ -96,11 +118,11 @@ public class SourceRange {
 
         if (startType != endType) {
             if (startType == SourceType.IMPLEMENTATION) {
-                return start.getFilepath();
+                return getStartFilepath();
             }
 
             if (endType == SourceType.IMPLEMENTATION) {
-                return end.getFilepath();
+                return getEndFilepath();
             }
 
             throw new RuntimeException("Case not implemented:" + startType + " and " + endType);
@@ -118,11 +140,11 @@ public class SourceRange {
     }
 
     public String getStartFilepath() {
-        return start.getFilepath();
+        return FileTable.getGlobal().getFilepath(startFileId);
     }
 
     public String getEndFilepath() {
-        return end.getFilepath();
+        return FileTable.getGlobal().getFilepath(endFileId);
     }
 
     public String getFilename() {
@@ -130,44 +152,44 @@ public class SourceRange {
     }
 
     public Optional<String> getFilenameTry() {
-        if (start.getFilepath() == null) {
+        if (startFileId == FileTable.NO_FILE) {
             return Optional.empty();
         }
         // Preconditions.checkNotNull(start.getFilepath());
 
-        return Optional.of(new File(start.getFilepath()).getName());
+        return Optional.of(new File(getStartFilepath()).getName());
     }
 
     public File getStartFile() {
-        if (start.getFilepath() == null) {
+        if (startFileId == FileTable.NO_FILE) {
             return null;
         }
 
-        return new File(start.getFilepath());
+        return new File(getStartFilepath());
     }
 
     public File getEndFile() {
-        if (end.getFilepath() == null) {
+        if (endFileId == FileTable.NO_FILE) {
             return null;
         }
 
-        return new File(end.getFilepath());
+        return new File(getEndFilepath());
     }
 
     public int getStartLine() {
-        return start.getLine();
+        return startLine;
     }
 
     public int getStartCol() {
-        return start.getColumn();
+        return startColumn;
     }
 
     public int getEndLine() {
-        return end.getLine();
+        return endLine;
     }
 
     public int getEndCol() {
-        return end.getColumn();
+        return endColumn;
     }
 
     /**
@@ -180,7 +202,7 @@ public class SourceRange {
             return false;
         }
 
-        return !start.equals(end);
+        return !isStartEqualToEnd();
     }
 
     @Override
@@ -191,40 +213,66 @@ public class SourceRange {
 
         StringBuilder string = new StringBuilder();
 
-        string.append(start);
+        string.append(getStart());
 
-        if (start.equals(end)) {
+        if (isStartEqualToEnd()) {
             return string.toString();
         }
 
         string.append(" -> ");
 
         // If the filepath is the same, avoid printing the filepath twice
-        if (start.getFilepath() != null && start.getFilepath().equals(end.getFilepath())) {
-            string.append(end.getLine()).append(":").append(end.getColumn());
+        if (startFileId != FileTable.NO_FILE && startFileId == endFileId) {
+            string.append(endLine).append(":").append(endColumn);
             return string.toString();
         }
 
-        string.append(end);
+        string.append(getEnd());
         return string.toString();
     }
 
     public boolean isEmpty() {
-        return start.getFilepath() == null;
+        return startFileId == FileTable.NO_FILE;
     }
 
     public boolean isValid() {
-        boolean invalidLocation = !start.isValid() && !end.isValid();
+        boolean invalidLocation = !isValid(startLine, startColumn) && !isValid(endLine, endColumn);
 
         return !invalidLocation;
     }
 
+    private static boolean isValid(int line, int column) {
+        // Same as SourceLocation.isValid()
+        boolean invalidLocation = line == SourceLocation.getInvalidLoc() && line == column;
+
+        return !invalidLocation;
+    }
+
+    /**
+     * Same as start.equals(end), which does not consider the macro flag.
+     * 
+     * @return
+     */
+    private boolean isStartEqualToEnd() {
+        return startFileId == endFileId && startLine == endLine && startColumn == endColumn;
+    }
+
     @Override
     public int hashCode() {
+        // Same as combining the hashes of the start and end SourceLocation
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + locationHashCode(endFileId, endLine, endColumn);
+        result = prime * result + locationHashCode(startFileId, startLine, startColumn);
+        return result;
+    }
+
+    private static int locationHashCode(int fileId, int line, int column) {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((end == null) ? 0 : end.hashCode());
-        result = prime * result + ((start == null) ? 0 : start.hashCode());
+        result = prime * result + column;
+        result = prime * result + fileId;
+        result = prime * result + line;
         return result;
     }
 
@@ -237,15 +285,10 @@ public class SourceRange {
         if (getClass() != obj.getClass())
             return false;
         SourceRange other = (SourceRange) obj;
-        if (end == null) {
-            if (other.end != null)
-                return false;
-        } else if (!end.equals(other.end))
+        // Macro flags are not considered, as in SourceLocation
+        if (startFileId != other.startFileId || startLine != other.startLine || startColumn != other.startColumn)
             return false;
-        if (start == null) {
-            if (other.start != null)
-                return false;
-        } else if (!start.equals(other.start))
+        if (endFileId != other.endFileId || endLine != other.endLine || endColumn != other.endColumn)
             return false;
         return true;
     }
@@ -259,6 +259,22 @@ public class Types {
         return toComparable(type).getCode().hashCode();
     }
 
+    /**
+     * 
+     * @param type
+     * @return the key used to compare the given type with other types, or null if the type cannot be compared (e.g.,
+     *         auto type that was not deduced)
+     */
+    public static String getCanonicalKey(Type type) {
+        Type comparableType = toComparable(type);
+
+        if (comparableType == null) {
+            return null;
+        }
+
+        return comparableType.getCode();
+    }
+
     private static Type toComparable(Type type) {
         if (type instanceof AutoType) {
             return toComparable(((AutoType) type).getDeducedType().orElse(null));
@@ -28,6 +28,7 @@ import pt.up.fe.specs.clava.ast.LegacyToDataStore;
 import pt.up.fe.specs.clava.ast.attr.Attribute;
 import pt.up.fe.specs.clava.ast.attr.enums.AttributeKind;
 import pt.up.fe.specs.clava.ast.decl.data.DeclData;
+import pt.up.fe.specs.clava.transform.loop.LoopNest;
 import pt.up.fe.specs.util.collections.SpecsList;
 
 /**
@@ -88,6 +89,11 @@ public abstract class Decl extends ClavaNode {
 
     /// DATAKEYS END
 
+    /**
+     * Loops inside this declaration, calculated on demand.
+     */
+    private LoopNest loopNest;
+
     public Decl(DataStore data, Collection<? extends ClavaNode> children) {
         super(data, children);
     }
@@ -114,6 +120,24 @@ public abstract class Decl extends ClavaNode {
         return DataStoreToLegacy.getDecl(getData());
     }
 
+    /**
+     * 
+     * @return structural information of the loops inside this declaration, which is cached until this declaration or
+     *         one of its descendants is modified
+     */
+    public LoopNest getLoopNest() {
+        if (loopNest == null) {
+            loopNest = LoopNest.newInstance(this);
+        }
+
+        return loopNest;
+    }
+
+    @Override
+    protected void invalidateCachedData() {
+        loopNest = null;
+    }
+
     public boolean hasAttribute(AttributeKind kind) {
         return get(ATTRIBUTES).stream()
                 .filter(attr -> attr.get(Attribute.KIND) == kind)
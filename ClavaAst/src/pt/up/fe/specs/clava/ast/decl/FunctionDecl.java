@@ -772,13 +772,41 @@ public class FunctionDecl extends DeclaratorDecl {
             return Collections.emptyList();
         }
 
-        return app.getDescendantsStream()
-                .filter(CallExpr.class::isInstance)
-                .map(CallExpr.class::cast)
+        // Only calls to functions with the same name can correspond to this function
+        return app.getNodeIndex().getCalls(getDeclName()).stream()
                 .filter(this::isCorrespondingCall)
                 .collect(Collectors.toList());
     }
 
+    /**
+     *
+     * @return the functions that contain calls to this function declaration
+     */
+    public List<FunctionDecl> getCallers() {
+        return getCalls().stream()
+                .map(call -> call.getAncestorTry(FunctionDecl.class))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     *
+     * @return the functions called in the body of the definition of this function, as given by Clang
+     */
+    public List<FunctionDecl> getCallees() {
+        return getDefinition().flatMap(FunctionDecl::getBody)
+                .map(body -> body.getDescendantsStream()
+                        .filter(CallExpr.class::isInstance)
+                        .map(call -> ((CallExpr) call).getFunctionDecl())
+                        .filter(Optional::isPresent)
+                        .map(Optional::get)
+                        .distinct()
+                        .collect(Collectors.toList()))
+                .orElse(Collections.emptyList());
+    }
+
     public void setParameters(List<ParmVarDecl> params) {
         // Remove current parameters
         removeChildren(ParmVarDecl.class);
@@ -24,7 +24,6 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.suikasoft.jOptions.Datakey.DataKey;
 import org.suikasoft.jOptions.Datakey.KeyFactory;
@@ -33,6 +32,7 @@ import org.suikasoft.jOptions.Interfaces.DataStore;
 import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.ClavaNodes;
 import pt.up.fe.specs.clava.ClavaOptions;
+import pt.up.fe.specs.clava.CodeWriter;
 import pt.up.fe.specs.clava.SourceRange;
 import pt.up.fe.specs.clava.ast.decl.CXXRecordDecl;
 import pt.up.fe.specs.clava.ast.decl.FunctionDecl;
@@ -45,6 +45,7 @@ import pt.up.fe.specs.clava.language.Standard;
 import pt.up.fe.specs.clava.transform.call.CallInliner;
 import pt.up.fe.specs.clava.utils.ExternalDependencies;
 import pt.up.fe.specs.clava.utils.GlobalManager;
+import pt.up.fe.specs.clava.utils.NodeIndex;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsLogs;
 
@@ -84,15 +85,11 @@ public class App extends ClavaNode {
     private Map<File, String> sourceFoldernames;
 
     private GlobalManager globalManager;
-    private final Map<String, ClavaNode> nodesCache;
-    private final Map<String, FunctionDecl> functionDeclarationCache;
-    private final Map<String, FunctionDecl> functionDefinitionCache;
+    private final NodeIndex nodeIndex;
 
     private final IdNormalizer idNormalizer;
     private final CallInliner callInliner;
 
-    private FunctionDecl noFunctionFound = null;
-
     // private ExternalDependencies externalDependencies;
     // private Map<String, String> idsAlias;
     // private Map<String, List<Stmt>> inlineCache;
@@ -114,9 +111,7 @@ public class App extends ClavaNode {
         // sources = Collections.emptyList();
         sourceFiles = new HashMap<>();
         globalManager = new GlobalManager();
-        nodesCache = new HashMap<>();
-        functionDeclarationCache = new HashMap<>();
-        functionDefinitionCache = new HashMap<>();
+        nodeIndex = new NodeIndex(this);
         appData = DataStore.newInstance("Clava App Data");
     
         idNormalizer = new IdNormalizer();
@@ -144,9 +139,7 @@ public class App extends ClavaNode {
         // sources = Collections.emptyList();
         sourceFiles = new HashMap<>();
         globalManager = new GlobalManager();
-        nodesCache = new HashMap<>();
-        functionDeclarationCache = new HashMap<>();
-        functionDefinitionCache = new HashMap<>();
+        nodeIndex = new NodeIndex(this);
         // appData = DataStore.newInstance("Clava App Data");
 
         idNormalizer = new IdNormalizer();
@@ -166,11 +159,21 @@ public class App extends ClavaNode {
 
     /**
      * Clears cached data.
+     * 
+     * <p>
+     * The node index is kept up-to-date by the tree modification methods, this method is only needed if the tree is
+     * changed by other means.
      */
     public void clearCache() {
-        nodesCache.clear();
-        functionDeclarationCache.clear();
-        functionDefinitionCache.clear();
+        nodeIndex.clear();
+    }
+
+    /**
+     * 
+     * @return the index used for looking up nodes by id and declarations by name
+     */
+    public NodeIndex getNodeIndex() {
+        return nodeIndex;
     }
 
     /*
@@ -276,12 +279,11 @@ public class App extends ClavaNode {
 
     @Override
     public String getCode() {
-        // return getCode(null);
-        // }
-        //
-        // public String getCode() {
-        StringBuilder code = new StringBuilder();
+        return CodeWriter.toCode(this::emitCode);
+    }
 
+    @Override
+    public void emitCode(CodeWriter code) {
         for (TranslationUnit tu : getTranslationUnits()) {
 
             // String basepath = baseFolder != null ? SpecsIo.getRelativePath(new File(tu.getFolderpath()), baseFolder)
@@ -290,11 +292,9 @@ public class App extends ClavaNode {
             // code.append("/**** File '" + basepath + tu.getFilename() + "' ****/" + ln() + ln());
             code.append("/**** File '" + SpecsIo.normalizePath(tu.getRelativeFilepath()) + "' ****/"
                     + ln() + ln());
-            code.append(tu.getCode());
+            tu.emitCode(code);
             code.append(ln() + "/**** End File ****/" + ln() + ln());
         }
-
-        return code.toString();
     }
 
     // public void setSources(List<File> sources) {
@@ -341,9 +341,11 @@ public class App extends ClavaNode {
     public List<File> write(File destinationFolder) {
         List<File> writtenFiles = new ArrayList<>();
 
-        for (Entry<File, String> entry : getCode(destinationFolder).entrySet()) {
-            SpecsIo.write(entry.getKey(), entry.getValue());
-            writtenFiles.add(entry.getKey());
+        // Code is generated one file at a time
+        for (TranslationUnit tUnit : getTranslationUnits()) {
+            File destinationFile = tUnit.getDestinationFile(destinationFolder);
+            SpecsIo.write(destinationFile, tUnit.getCode());
+            writtenFiles.add(destinationFile);
         }
 
         return writtenFiles;
@@ -378,6 +380,15 @@ public class App extends ClavaNode {
     // return getAllSourcefiles(sources, false);
     // }
 
+    /**
+     * 
+     * @param modifiedFiles
+     * @return true if the given set of modified files can be used to filter the files that are generated from the AST
+     */
+    public boolean isModifiedFilesFilterEnabled(Set<String> modifiedFiles) {
+        return enableModifiedFilesFilter(getFiles(), modifiedFiles);
+    }
+
     private boolean enableModifiedFilesFilter(List<File> programFiles, Set<String> modifiedFiles) {
         // If set of files to generate is null, return false
         if (modifiedFiles == null) {
@@ -473,22 +484,50 @@ public class App extends ClavaNode {
         return new File(actualDestinationFolder, tUnit.getFilename());
     }
     */
-    private String getTuCode(TranslationUnit tUnit, boolean enableModifiedFilesFilter, Set<String> modifiedFiles) {
+    /**
+     * 
+     * @param tUnit
+     * @param enableModifiedFilesFilter
+     *            the result of {@link #isModifiedFilesFilterEnabled(Set)}
+     * @param modifiedFiles
+     * @return the code of the given translation unit, see {@link #emitTuCode(TranslationUnit, boolean, Set, CodeWriter)}
+     */
+    public String getTuCode(TranslationUnit tUnit, boolean enableModifiedFilesFilter, Set<String> modifiedFiles) {
+        return CodeWriter.toCode(writer -> emitTuCode(tUnit, enableModifiedFilesFilter, modifiedFiles, writer));
+    }
+
+    /**
+     * Writes the code of the given translation unit.
+     * 
+     * @param tUnit
+     * @param enableModifiedFilesFilter
+     *            the result of {@link #isModifiedFilesFilterEnabled(Set)}
+     * @param modifiedFiles
+     *            if the filter is enabled, the code of translation units that are not in this set is taken from the
+     *            original file
+     * @param writer
+     */
+    public void emitTuCode(TranslationUnit tUnit, boolean enableModifiedFilesFilter, Set<String> modifiedFiles,
+            CodeWriter writer) {
+
         // If modified files filter is not enable, generate code from the translation unit
         if (!enableModifiedFilesFilter) {
-            return tUnit.getCode();
+            tUnit.emitCode(writer);
+            return;
         }
 
         // If file was modified, generate code from the translation uni
         if (modifiedFiles.contains(tUnit.getFilename())) {
-            return tUnit.getCode();
+            tUnit.emitCode(writer);
+            return;
         }
 
         File originalFile = tUnit.getFile();
 
         // If the original file does not exist, generate code
         if (!originalFile.isFile()) {
-            return tUnit.getCode();
+            tUnit.emitCode(writer);
+            return;
         }
 
         // Otherwise, return the original file
@@ -496,7 +535,7 @@ public class App extends ClavaNode {
         // String relativeSource = tUnit.getRelativeFilepath(baseInputFolder);
         String relativeSource = tUnit.getRelativeFilepath();
         SpecsLogs.msgInfo("Using original source for file '" + relativeSource + "'");
-        return SpecsIo.read(originalFile);
+        writer.append(SpecsIo.read(originalFile));
     }
 
     /**
@@ -533,22 +572,7 @@ public class App extends ClavaNode {
         // Check if id is an alias
         String normalizedId = idNormalizer.normalize(id);
 
-        // Check if node was already asked
-        ClavaNode cachedNode = nodesCache.get(normalizedId);
-        if (cachedNode != null) {
-            return Optional.of(cachedNode);
-        }
-
-        Optional<ClavaNode> askedNode = getDescendantsAndSelfStream()
-                // .filter(node -> node.getId().isPresent())
-                // .filter(node -> node.getId().get().getExtendedId().equals(normalizedId))
-                .filter(node -> node.getExtendedId().isPresent())
-                .filter(node -> node.getExtendedId().get().equals(normalizedId))
-                .findFirst();
-
-        askedNode.ifPresent(node -> nodesCache.put(normalizedId, node));
-
-        return askedNode;
+        return nodeIndex.getNodes(normalizedId).stream().findFirst();
     }
 
     // private String normalizeId(String id) {
@@ -558,32 +582,20 @@ public class App extends ClavaNode {
     // }
 
     public Optional<FunctionDecl> getFunctionDeclaration(String declName, FunctionType functionType) {
-        return getFunctionDeclaration(declName, functionType, functionDeclarationCache, false);
+        return getFunctionDeclaration(declName, functionType, false);
     }
 
     public Optional<FunctionDecl> getFunctionDefinition(String declName, FunctionType functionType) {
-        return getFunctionDeclaration(declName, functionType, functionDefinitionCache, true);
+        return getFunctionDeclaration(declName, functionType, true);
     }
 
     private Optional<FunctionDecl> getFunctionDeclaration(String declName, FunctionType functionType,
-            Map<String, FunctionDecl> cache, boolean hasBody) {
+            boolean hasBody) {
 
         // ClavaLog.debug("Looking for function declaration for " + declName);
 
-        // Check if node was already asked
-        FunctionDecl cachedNode = cache.get(getFunctionId(declName, functionType));
-        if (cachedNode != null) {
-            // Check if no function is available
-            if (cachedNode == getNoFunctionFound()) {
-                return Optional.empty();
-            }
-
-            return Optional.of(cachedNode);
-        }
-
-        Optional<FunctionDecl> functionDeclaration = getDescendantsStream()
-                .filter(FunctionDecl.class::isInstance)
-                .map(FunctionDecl.class::cast)
+        // Candidates come from the index, already filtered by name
+        return nodeIndex.getFunctions(declName).stream()
                 // Check hasBody flag
                 .filter(fdecl -> fdecl.hasBody() == hasBody)
                 // Filter by name
@@ -596,15 +608,6 @@ public class App extends ClavaNode {
                 .findFirst()
                 // Normalize FunctionDecl before returning
                 .map(fdecl -> (FunctionDecl) ClavaNodes.normalizeDecl(fdecl));
-
-        // Store return in cache
-        cache.put(getFunctionId(declName, functionType), functionDeclaration.orElse(getNoFunctionFound()));
-
-        return functionDeclaration;
-    }
-
-    private static String getFunctionId(String declName, FunctionType functionType) {
-        return functionType.getCode(declName);
     }
 
     /**
@@ -614,9 +617,7 @@ public class App extends ClavaNode {
      */
     @Deprecated
     public CXXRecordDecl getCXXRecordDecl(String declName) {
-        return getDescendantsStream().filter(child -> child instanceof CXXRecordDecl)
-                .map(child -> (CXXRecordDecl) child)
-                .filter(recordDecl -> recordDecl.getDeclName().equals(declName))
+        return nodeIndex.getRecords(declName).stream()
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Could not find CXXRecordDecl with name '" + declName + "'"));
 
@@ -630,23 +631,9 @@ public class App extends ClavaNode {
     }
 
     public Optional<CXXRecordDecl> getCXXRecordDeclTry(String namespace, String declName) {
-        // Iterate over translation units, NamespaceDecl and CXXRecordDecl without namespace are directly under TUs
-        Stream<ClavaNode> cxxRecordCandidates = getTranslationUnits().stream()
-                .flatMap(tu -> tu.getChildrenStream());
-
-        // If there is a namespace, filter the stream for the corresponding NamespaceDecl first
-        if (namespace != null) {
-            cxxRecordCandidates = cxxRecordCandidates
-                    .filter(child -> child instanceof NamespaceDecl)
-                    .map(namespaceDecl -> (NamespaceDecl) namespaceDecl)
-                    .filter(namespaceDecl -> namespaceDecl.getDeclName().equals(namespace))
-                    .flatMap(namespaceDecl -> namespaceDecl.getChildrenStream());
-        }
-
-        // Find CXXRecordDecl
-        return cxxRecordCandidates.filter(child -> child instanceof CXXRecordDecl)
-                .map(child -> (CXXRecordDecl) child)
-                .filter(recordDecl -> recordDecl.getDeclName().equals(declName))
+        // NamespaceDecl and CXXRecordDecl without namespace are directly under TUs
+        return nodeIndex.getRecords(declName).stream()
+                .filter(recordDecl -> isTopLevelRecord(recordDecl, namespace))
                 .findFirst();
         // .orElseThrow(() -> new RuntimeException(
         // "Could not find CXXRecordDecl with name '" + (namespace == null ? "" : namespace + "::")
@@ -654,6 +641,23 @@ public class App extends ClavaNode {
 
     }
 
+    private boolean isTopLevelRecord(CXXRecordDecl recordDecl, String namespace) {
+        if (!recordDecl.hasParent()) {
+            return false;
+        }
+
+        ClavaNode parent = recordDecl.getParent();
+
+        if (namespace == null) {
+            return parent instanceof TranslationUnit;
+        }
+
+        return parent instanceof NamespaceDecl
+                && ((NamespaceDecl) parent).getDeclName().equals(namespace)
+                && parent.hasParent()
+                && parent.getParent() instanceof TranslationUnit;
+    }
+
     /**
      * Helper method that accepts a RecordType.
      *
@@ -796,17 +800,6 @@ public class App extends ClavaNode {
         // return appData.get(ClavaOptions.STANDARD);
     }
 
-    private FunctionDecl getNoFunctionFound() {
-        if (noFunctionFound == null) {
-            noFunctionFound = getFactory().functionDecl("No Function Found",
-                    getFactory().dummyType("dummy function type"));
-        }
-
-        return noFunctionFound;
-        // private static final FunctionDecl NO_FUNCTION_FOUND = ClavaNodeFactory.dummyFunctionDecl("No Function
-        // Found");
-
-    }
 
     public TranslationUnit getTranslationUnit(SourceRange location) {
         for (TranslationUnit unit : getTranslationUnits()) {
@@ -15,7 +15,9 @@ package pt.up.fe.specs.clava.ast.extra;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -26,12 +28,14 @@ import org.suikasoft.jOptions.Interfaces.DataStore;
 
 import pt.up.fe.specs.clava.ClavaLog;
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.CodeWriter;
 import pt.up.fe.specs.clava.SourceRange;
 import pt.up.fe.specs.clava.ast.decl.FunctionDecl;
 import pt.up.fe.specs.clava.ast.decl.IncludeDecl;
 import pt.up.fe.specs.clava.ast.decl.NamedDecl;
 import pt.up.fe.specs.clava.ast.extra.data.Language;
 import pt.up.fe.specs.clava.ast.stmt.DeclStmt;
+import pt.up.fe.specs.clava.context.ClavaContext;
 import pt.up.fe.specs.clava.utils.IncludeManager;
 import pt.up.fe.specs.clava.utils.SourceType;
 import pt.up.fe.specs.util.SpecsIo;
@@ -99,6 +103,10 @@ public class TranslationUnit extends ClavaNode {
 
     private final Lazy<Boolean> isCxxUnit;
 
+    // Code of the top-level nodes, valid while the code version of the context does not change
+    private Map<ClavaNode, String> childrenCode;
+    private long childrenCodeVersion;
+
     // private String relativePath;
 
     public TranslationUnit(DataStore data, Collection<? extends ClavaNode> children) {
@@ -114,6 +122,9 @@ public class TranslationUnit extends ClavaNode {
         // includes = new IncludeManager(includesList, this);
 
         isCxxUnit = Lazy.newInstance(this::testIsCXXUnit);
+
+        childrenCode = new IdentityHashMap<>();
+        childrenCodeVersion = -1;
     }
 
     // @Override
@@ -377,19 +388,93 @@ public class TranslationUnit extends ClavaNode {
 
     @Override
     public String getCode() {
+        return CodeWriter.toCode(this::emitCode);
+    }
 
-        String body = getChildrenStream()
-                // String body = getDecls().stream()
-                // .map(child -> child.getCode())
-                .map(this::getChildCode)
-                .collect(Collectors.joining(ln()));
-
+    @Override
+    public void emitCode(CodeWriter writer) {
         // If header file, add include guards
-        if (isHeaderFile()) {
-            body = addIncludeGuards(body);
+        String filenameId = isHeaderFile() ? getIncludeGuardId() : null;
+
+        if (filenameId != null) {
+            writer.append("#ifndef ").append(filenameId).append(ln());
+            writer.append("#define ").append(filenameId).append(ln() + ln());
         }
 
-        return body;
+        boolean isFirst = true;
+        for (ClavaNode child : getChildren()) {
+            if (isFirst) {
+                isFirst = false;
+            } else {
+                writer.append(ln());
+            }
+
+            // Inline comments need to be added to the first non-empty line of the code
+            if (child.getInlineCommentsCode().isEmpty()) {
+                writer.append(getTopLevelCode(child));
+            } else {
+                writer.append(getChildCode(child));
+            }
+        }
+
+        if (filenameId != null) {
+            writer.append(ln() + "#endif" + ln());
+        }
+    }
+
+    /**
+     * The code of top-level nodes is cached, and only generated again after a modification inside that node (see
+     * {@link ClavaNode#invalidateCaches()}).
+     * 
+     * @param child
+     * @return the code of the given child of this translation unit
+     */
+    private String getTopLevelCode(ClavaNode child) {
+        long version = getContext().get(ClavaContext.CODE_VERSION).get();
+
+        synchronized (childrenCode) {
+            if (childrenCodeVersion != version) {
+                childrenCode.clear();
+                childrenCodeVersion = version;
+            }
+
+            String code = childrenCode.get(child);
+            if (code != null) {
+                return code;
+            }
+        }
+
+        String code = CodeWriter.toCode(child::emitCode);
+
+        synchronized (childrenCode) {
+            // Only caches if there were no modifications to other files while generating the code
+            if (childrenCodeVersion == version) {
+                childrenCode.put(child, code);
+            }
+        }
+
+        return code;
+    }
+
+    /**
+     * Invalidates the cached code of a top-level node of this translation unit.
+     * 
+     * @param child
+     *            a child of this translation unit, or null to invalidate the code of all children
+     */
+    public void invalidateChildCode(ClavaNode child) {
+        // Can be called by the constructor of ClavaNode, before the fields of this class are initialized
+        if (childrenCode == null) {
+            return;
+        }
+
+        synchronized (childrenCode) {
+            if (child == null) {
+                childrenCode.clear();
+            } else {
+                childrenCode.remove(child);
+            }
+        }
     }
 
     /**
@@ -494,9 +579,7 @@ public class TranslationUnit extends ClavaNode {
         return code;
     }
 
-    private String addIncludeGuards(String body) {
-        StringBuilder builder = new StringBuilder();
-
+    private String getIncludeGuardId() {
         // Replace '.' with '_' and surround id with "_", to avoid problems such as the id starting with a number
         String filenameId = "_" + getFilename().replace(".", "_") + "_";
 
@@ -507,12 +590,7 @@ public class TranslationUnit extends ClavaNode {
         // filenameId = filenameId + UUID.randomUUID().toString().substring(0, 3);
         filenameId = filenameId.toUpperCase();
 
-        builder.append("#ifndef ").append(filenameId).append(ln());
-        builder.append("#define ").append(filenameId).append(ln() + ln());
-        builder.append(body);
-        builder.append(ln() + "#endif" + ln());
-
-        return builder.toString();
+        return filenameId;
     }
 
     public String getFilename() {
@@ -142,6 +142,8 @@ public class OmpClausePragma extends OmpPragma {
 
         clausesList.add(clause);
         // clauses.put(kind, clause);
+
+        invalidateCaches();
     }
 
     @Override
@@ -166,7 +168,7 @@ public class OmpClausePragma extends OmpPragma {
     @Override
     public void removeClause(OmpClauseKind kind) {
         get(CLAUSES).remove(kind);
-
+        invalidateCaches();
     }
 
     @Override
@@ -190,6 +192,7 @@ public class OmpClausePragma extends OmpPragma {
         }
 
         get(CLAUSES).put(firstKind, ompClauseList);
+        invalidateCaches();
     }
 
     @Override
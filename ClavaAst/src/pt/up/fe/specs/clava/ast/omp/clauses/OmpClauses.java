@@ -197,6 +197,7 @@ public class OmpClauses {
 
         // Clause exists, modify kind
         scheduleClause.setKind(kind);
+        ompPragma.invalidateCaches();
     }
 
     public Optional<String> getScheduleChunkSize() {
@@ -215,6 +216,7 @@ public class OmpClauses {
                         "Cannot set schedule chunk size because no schedule clause exists yet"));
 
         scheduleClause.setChunkSize(chunkSize);
+        ompPragma.invalidateCaches();
     }
 
     public List<ScheduleModifier> getScheduleModifiers() {
@@ -234,6 +236,7 @@ public class OmpClauses {
                         "Cannot set schedule modifiers because no schedule clause exists yet"));
 
         scheduleClause.setModifiers(modifiers);
+        ompPragma.invalidateCaches();
     }
 
     public Optional<String> getCollapse() {
@@ -23,6 +23,7 @@ import org.suikasoft.jOptions.Interfaces.DataStore;
 
 import pt.up.fe.specs.clava.ClavaLog;
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.CodeWriter;
 import pt.up.fe.specs.clava.ast.LegacyToDataStore;
 import pt.up.fe.specs.clava.ast.comment.InlineComment;
 import pt.up.fe.specs.clava.ast.expr.Expr;
@@ -74,7 +75,50 @@ public class CompoundStmt extends Stmt {
         return getCode(false);
     }
 
+    @Override
+    public void emitCode(CodeWriter writer) {
+        List<Stmt> statements = getStatements();
+
+        // If naked, and has only zero or one statements
+        if (get(IS_NAKED) && statements.size() < 2) {
+
+            if (statements.isEmpty()) {
+                writer.append(";");
+                return;
+            }
+
+            Stmt statement = statements.get(0);
+
+            writer.append(" ");
+            statement.emitCode(writer);
+            writer.append(statement.getInlineCommentsCode());
+            return;
+        }
+
+        // If not the direct child of another CompoundStmt (not a scope), add a space
+        boolean hasCompoundStmtParent = getParent() instanceof CompoundStmt;
+        writer.append(hasCompoundStmtParent ? "{" : " {");
+
+        writer.append(getInlineCommentsCode());
+        writer.append(ln());
+
+        for (Stmt stmt : statements) {
+            writer.pushIndentation(getTab());
+            stmt.emitCode(writer);
+            writer.popIndentation();
+
+            writer.append(stmt.getInlineCommentsCode());
+            writer.append(ln());
+        }
+
+        writer.append("}" + ln());
+    }
+
     public String getCode(boolean inline) {
+        // Code that is not inlined is generated in a single pass
+        if (!inline) {
+            return CodeWriter.toCode(this::emitCode);
+        }
 
         List<Stmt> statements = getStatements();
 
@@ -19,6 +19,7 @@ import java.util.Optional;
 import org.suikasoft.jOptions.Interfaces.DataStore;
 
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.CodeWriter;
 
 public class DoStmt extends LoopStmt {
 
@@ -55,13 +56,14 @@ public class DoStmt extends LoopStmt {
 
     @Override
     public String getCode() {
-        StringBuilder code = new StringBuilder();
-
-        code.append("do ").append(getBody().getCode()).append("while (")
-                .append(getCondition().getCode()).append(");");
-
-        return code.toString();
+        return CodeWriter.toCode(this::emitCode);
+    }
 
+    @Override
+    public void emitCode(CodeWriter code) {
+        code.append("do ");
+        getBody().emitCode(code);
+        code.append("while (").append(getCondition().getCode()).append(");");
     }
 
 }
@@ -14,7 +14,9 @@
 package pt.up.fe.specs.clava.ast.stmt;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -22,12 +24,14 @@ import org.suikasoft.jOptions.Interfaces.DataStore;
 
 import pt.up.fe.specs.clava.ClavaLog;
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.CodeWriter;
 import pt.up.fe.specs.clava.ast.decl.VarDecl;
 import pt.up.fe.specs.clava.ast.expr.BinaryOperator;
 import pt.up.fe.specs.clava.ast.expr.Expr;
 import pt.up.fe.specs.clava.ast.expr.UnaryOperator;
 import pt.up.fe.specs.clava.ast.expr.enums.BinaryOperatorKind;
 import pt.up.fe.specs.clava.ast.expr.enums.UnaryOperatorKind;
+import pt.up.fe.specs.clava.transform.loop.LoopAnalysisUtils;
 import pt.up.fe.specs.util.SpecsStrings;
 import pt.up.fe.specs.util.treenode.NodeInsertUtils;
 
@@ -36,6 +40,11 @@ public class ForStmt extends LoopStmt {
     private static final Set<BinaryOperatorKind> RELATIONAL_OPS = EnumSet.of(BinaryOperatorKind.LE,
             BinaryOperatorKind.LT, BinaryOperatorKind.GE, BinaryOperatorKind.GT);
 
+    /**
+     * Names of the variables written by the increment, calculated on demand.
+     */
+    private List<String> controlVarNames;
+
     public ForStmt(DataStore data, Collection<? extends ClavaNode> children) {
         super(data, children);
     }
@@ -94,8 +103,11 @@ public class ForStmt extends LoopStmt {
 
     @Override
     public String getCode() {
-        StringBuilder code = new StringBuilder();
+        return CodeWriter.toCode(this::emitCode);
+    }
 
+    @Override
+    public void emitCode(CodeWriter code) {
         // If the first parent that is not a CompountStmt is not a ForStmt
 
         code.append("for(");
@@ -119,9 +131,7 @@ public class ForStmt extends LoopStmt {
         code.append(incCode);
         // getInc().ifPresent(inc -> code.append(inc.getCode()));
         code.append(")");
-        code.append(getBody().getCode());
-
-        return code.toString();
+        getBody().emitCode(code);
     }
 
     @Override
@@ -152,6 +162,25 @@ public class ForStmt extends LoopStmt {
         setChild(2, literalStmt);
     }
 
+    /**
+     * 
+     * @return the names of the variables written by the increment of the loop, which is cached until the loop is
+     *         modified
+     */
+    public List<String> getControlVarNames() {
+        if (controlVarNames == null) {
+            controlVarNames = Collections.unmodifiableList(LoopAnalysisUtils.getControlVarNames(this));
+        }
+
+        return controlVarNames;
+    }
+
+    @Override
+    protected void invalidateCachedData() {
+        super.invalidateCachedData();
+        controlVarNames = null;
+    }
+
     public Optional<BinaryOperator> getCondOperator() {
         return getCond()
                 .map(cond -> cond.getChild(0))
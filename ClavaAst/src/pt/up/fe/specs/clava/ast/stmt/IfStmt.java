@@ -19,6 +19,7 @@ import java.util.Optional;
 import org.suikasoft.jOptions.Interfaces.DataStore;
 
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.CodeWriter;
 import pt.up.fe.specs.clava.ast.decl.VarDecl;
 import pt.up.fe.specs.clava.ast.expr.Expr;
 import pt.up.fe.specs.clava.utils.StmtWithCondition;
@@ -100,20 +101,31 @@ public class IfStmt extends Stmt implements StmtWithCondition {
 
     @Override
     public String getCode() {
+        return CodeWriter.toCode(this::emitCode);
+    }
 
-        StringBuilder code = new StringBuilder();
-
+    @Override
+    public void emitCode(CodeWriter code) {
         String conditionCode = getDeclCondition().map(VarDecl::getCode).orElse(getCondition().getCode());
 
-        String thenCode = getThen().map(CompoundStmt::getCode).orElse(";\n");
+        code.append("if(").append(conditionCode).append(")");
+
+        if (getThen().isPresent()) {
+            getThen().get().emitCode(code);
+        } else {
+            code.append(";\n");
+        }
+
         // If then does not end with newline, add one
-        thenCode = thenCode.endsWith(ln()) ? thenCode : thenCode + ln();
+        if (!code.endsWithNewline()) {
+            code.append(ln());
+        }
 
-        code.append("if(").append(conditionCode).append(")").append(thenCode);
         // CompoundStmt takes care of prefixing a space before the statement code
-        getElse().ifPresent(elseStmt -> code.append("else" + elseStmt.getCode()));
-
-        return code.toString();
+        getElse().ifPresent(elseStmt -> {
+            code.append("else");
+            elseStmt.emitCode(code);
+        });
     }
 
     /*
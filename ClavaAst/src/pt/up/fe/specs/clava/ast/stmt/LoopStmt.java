@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.suikasoft.jOptions.Interfaces.DataStore;
@@ -27,6 +28,8 @@ import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.ast.decl.Decl;
 import pt.up.fe.specs.clava.ast.decl.FunctionDecl;
 import pt.up.fe.specs.clava.ast.extra.TranslationUnit;
+import pt.up.fe.specs.clava.transform.loop.LoopNest;
+import pt.up.fe.specs.clava.transform.loop.dependence.LoopDependences;
 import pt.up.fe.specs.clava.utils.StmtWithCondition;
 
 public abstract class LoopStmt extends Stmt implements StmtWithCondition {
@@ -38,7 +41,7 @@ public abstract class LoopStmt extends Stmt implements StmtWithCondition {
 
         isParallel = false;
         iterations = DEFAULT_ITERATIONS;
-        rank = null;
+        dependences = null;
     }
 
     public static int getDefaultIterations() {
@@ -47,7 +50,7 @@ public abstract class LoopStmt extends Stmt implements StmtWithCondition {
 
     private boolean isParallel;
     private int iterations;
-    private List<Integer> rank;
+    private LoopDependences dependences;
 
     // public LoopStmt(ClavaNodeInfo info, Collection<? extends ClavaNode> children) {
     // super(info, children);
@@ -87,12 +90,56 @@ public abstract class LoopStmt extends Stmt implements StmtWithCondition {
     }
 
     public List<Integer> getRank() {
-        // Calculate rank if it has not been initialized yet
-        if (rank == null) {
-            rank = calculateRank();
+        // Use the cached loop nest of the declaration, if the loop can be reached from it
+        return getLoopNest()
+                .flatMap(loopNest -> loopNest.getRank(this))
+                .orElseGet(this::calculateRank);
+    }
+
+    /**
+     * 
+     * @return the number of loops around this loop
+     */
+    public int getNestedLevel() {
+        LoopNest loopNest = getLoopNest().orElse(null);
+
+        if (loopNest == null) {
+            return (int) getAscendantsStream().filter(LoopStmt.class::isInstance).count();
         }
 
-        return rank;
+        // Loops around the declaration (e.g., a lambda inside a loop) are not part of the loop nest
+        Decl decl = getAncestor(Decl.class);
+        int outerLoops = (int) decl.getAscendantsStream().filter(LoopStmt.class::isInstance).count();
+
+        return loopNest.getLevel(this) + outerLoops;
+    }
+
+    /**
+     * 
+     * @return true if there are no loops inside this loop
+     */
+    public boolean isInnermost() {
+        return getLoopNest()
+                .map(loopNest -> loopNest.isInnermost(this))
+                .orElseGet(() -> !getDescendantsStream().filter(LoopStmt.class::isInstance).findFirst().isPresent());
+    }
+
+    /**
+     * 
+     * @return true if there are no loops around this loop
+     */
+    public boolean isOutermost() {
+        return getNestedLevel() == 0;
+    }
+
+    /**
+     * 
+     * @return the loop nest of the nearest declaration ancestor, or empty if this loop is not inside a declaration
+     */
+    private Optional<LoopNest> getLoopNest() {
+        return getAncestorTry(Decl.class)
+                .map(Decl::getLoopNest)
+                .filter(loopNest -> loopNest.contains(this));
     }
 
     private List<Integer> calculateRank() {
@@ -117,7 +164,7 @@ public abstract class LoopStmt extends Stmt implements StmtWithCondition {
         ClavaNode ancestorRankNode = getAncestorRankNode();
 
         // Create list of rank siblings.
-        List<LoopStmt> rankSiblings = buildRankSiblings(ancestorRankNode);
+        List<LoopStmt> rankSiblings = LoopNest.getRankSiblings(ancestorRankNode);
 
         // Return index of own node
         int indexOfLoop = rankSiblings.indexOf(this);
@@ -147,40 +194,23 @@ public abstract class LoopStmt extends Stmt implements StmtWithCondition {
         */
     }
 
-    private List<LoopStmt> buildRankSiblings(ClavaNode ancestorRankNode) {
-        List<LoopStmt> rankSiblings = new ArrayList<>();
-
-        for (ClavaNode child : ancestorRankNode.getChildren()) {
-            buildRankSiblingsPrivate(child, rankSiblings);
+    /**
+     * The dependences carried by this loop between accesses to arrays. The result is cached until the loop or one of
+     * its descendants is modified.
+     * 
+     * @return
+     */
+    public LoopDependences getDependences() {
+        if (dependences == null) {
+            dependences = LoopDependences.analyze(this);
         }
 
-        return rankSiblings;
+        return dependences;
     }
 
-    private void buildRankSiblingsPrivate(ClavaNode node, List<LoopStmt> rankSiblings) {
-        // If not a statement, stop looking
-        if (!(node instanceof Stmt)) {
-            return;
-        }
-
-        // If LoopStmt, add to list and stop looking
-        if (node instanceof LoopStmt) {
-            rankSiblings.add((LoopStmt) node);
-            return;
-        }
-
-        // Continue looking in the children of the stmt
-        node.getChildrenStream().forEach(child -> buildRankSiblingsPrivate(child, rankSiblings));
-        /*
-        // If an aggregate statement, continue looking in its children
-        if (node instanceof Stmt && ((Stmt) node).isAggregateStmt()) {
-            node.getChildrenStream().forEach(child -> buildRankSiblingsPrivate(child, rankSiblings));
-            return;
-        }
-        
-        // For all other kinds of nodes, stop looking
-        return;
-        */
+    @Override
+    protected void invalidateCachedData() {
+        dependences = null;
     }
 
     private ClavaNode getAncestorRankNode() {
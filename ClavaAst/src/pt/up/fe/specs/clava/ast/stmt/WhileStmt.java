@@ -19,6 +19,7 @@ import java.util.Optional;
 import org.suikasoft.jOptions.Interfaces.DataStore;
 
 import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.CodeWriter;
 import pt.up.fe.specs.clava.ClavaNodes;
 import pt.up.fe.specs.clava.ast.decl.VarDecl;
 import pt.up.fe.specs.clava.ast.expr.Expr;
@@ -67,14 +68,16 @@ public class WhileStmt extends LoopStmt {
 
     @Override
     public String getCode() {
-        StringBuilder code = new StringBuilder();
+        return CodeWriter.toCode(this::emitCode);
+    }
 
+    @Override
+    public void emitCode(CodeWriter code) {
         // String conditionCode = getWhileCondition().getCode();
         String conditionCode = getStmtCondition().map(ClavaNode::getCode).orElse("");
 
-        code.append("while(").append(conditionCode).append(")").append(getThen().getCode());
-
-        return code.toString();
+        code.append("while(").append(conditionCode).append(")");
+        getThen().emitCode(code);
     }
 
     @Override
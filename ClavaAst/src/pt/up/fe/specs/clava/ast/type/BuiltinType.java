@@ -79,7 +79,7 @@ public class BuiltinType extends Type {
     }
 
     public BuiltinType setKindLiteral(String literalKind) {
-        getData().put(KIND_LITERAL, literalKind);
+        set(KIND_LITERAL, literalKind);
         return this;
     }
 
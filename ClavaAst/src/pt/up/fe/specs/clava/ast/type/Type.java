@@ -33,6 +33,8 @@ import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.Types;
 import pt.up.fe.specs.clava.ast.decl.data.templates.TemplateArgument;
 import pt.up.fe.specs.clava.ast.type.enums.TypeDependency;
+import pt.up.fe.specs.clava.context.ClavaContext;
+import pt.up.fe.specs.clava.context.TypeInterner;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 /**
@@ -72,6 +74,38 @@ public abstract class Type extends ClavaNode {
 
     // private TypeData data;
 
+    /**
+     * The id and hash of the canonical key of a type, and the version of the TypeInterner they were computed with.
+     * Immutable, so that they are always published together.
+     */
+    private static final class CanonicalKey {
+
+        // Version of keys that could not be interned, because the version changed while computing the key
+        private static final long NO_VERSION = -1;
+
+        private final int id;
+        private final int hash;
+        private final long version;
+
+        public CanonicalKey(int id, int hash, long version) {
+            this.id = id;
+            this.hash = hash;
+            this.version = version;
+        }
+
+        /**
+         * 
+         * @param other
+         * @return true if the ids of both keys were interned in the same version, and can be compared
+         */
+        public boolean isComparable(CanonicalKey other) {
+            return version != NO_VERSION && version == other.version;
+        }
+    }
+
+    // Cached canonical key, valid while the version of the TypeInterner does not change
+    private volatile CanonicalKey canonicalKey;
+
     public Type(DataStore data, Collection<? extends ClavaNode> children) {
         super(data, children);
     }
@@ -235,16 +269,20 @@ public abstract class Type extends ClavaNode {
     }
 
     protected <T, E extends T> ClavaNode set(DataKey<T> key, E value, boolean createCopy) {
-        Type typeToChange = createCopy ? copy() : this;
+        // Changes in place can change the code of the type, and must invalidate the cached keys and code
+        if (!createCopy) {
+            return super.set(key, value);
+        }
 
-        // Type typeCopy = copy();
+        // The copy is not referenced by other nodes yet
+        Type typeCopy = copy();
         if (value == null) {
-            typeToChange.getData().remove(key);
+            typeCopy.getData().remove(key);
         } else {
-            typeToChange.getData().put(key, value);
+            typeCopy.getData().put(key, value);
         }
 
-        return typeToChange;
+        return typeCopy;
     }
 
     /**
@@ -681,8 +719,49 @@ public abstract class Type extends ClavaNode {
         return Optional.empty();
     }
 
+    /**
+     * 
+     * @return the id of the canonical key of this type in the context, types with the same id are equal
+     */
+    public int getCanonicalId() {
+        return getCanonicalKey().id;
+    }
+
+    private CanonicalKey getCanonicalKey() {
+        TypeInterner interner = getContext().get(ClavaContext.TYPE_INTERNER);
+        long version = interner.getVersion();
+
+        CanonicalKey key = canonicalKey;
+        if (key != null && key.version == version) {
+            return key;
+        }
+
+        String code = Types.getCanonicalKey(this);
+        int hash = code == null ? 0 : code.hashCode();
+        int id = interner.intern(code, version);
+
+        // If the version changed in the meantime, the key is not cached
+        if (interner.getVersion() != version) {
+            return new CanonicalKey(id, hash, CanonicalKey.NO_VERSION);
+        }
+
+        key = new CanonicalKey(id, hash, version);
+        canonicalKey = key;
+
+        return key;
+    }
+
+    private boolean hasContext() {
+        return hasValue(CONTEXT);
+    }
+
     @Override
     public int hashCode() {
+        if (hasContext()) {
+            // Updates the cached key, if needed
+            return getCanonicalKey().hash;
+        }
+
         return Types.hashCode(this);
         // final int prime = 31;
         // int result = prime;
@@ -710,7 +789,28 @@ public abstract class Type extends ClavaNode {
             return false;
         }
 
-        return Types.isEqual(this, ((Type) obj));
+        if (this == obj) {
+            return true;
+        }
+
+        Type other = (Type) obj;
+
+        // Types of the same context can be compared by the id of their canonical keys
+        if (hasContext() && other.hasContext() && getContext() == other.getContext()) {
+            CanonicalKey key = getCanonicalKey();
+            CanonicalKey otherKey = other.getCanonicalKey();
+
+            if (key.isComparable(otherKey)) {
+                // Types without a canonical key (e.g., auto types that were not deduced) are only equal to themselves
+                if (key.id == TypeInterner.NO_KEY_ID || otherKey.id == TypeInterner.NO_KEY_ID) {
+                    return false;
+                }
+
+                return key.id == otherKey.id;
+            }
+        }
+
+        return Types.isEqual(this, other);
         // System.out.println("THIS CODE:" + getCode());
         // System.out.println("OTHER CODE:" + ((Type) obj).getCode());
         // return getCode().equals(((Type) obj).getCode());
@@ -19,6 +19,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.suikasoft.jOptions.DataStore.ADataClass;
 import org.suikasoft.jOptions.Datakey.DataKey;
@@ -28,7 +30,6 @@ import pt.up.fe.specs.clava.ast.LegacyToDataStore;
 import pt.up.fe.specs.clava.ast.extra.App;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.SpecsCollections;
-import pt.up.fe.specs.util.utilities.CachedItems;
 
 public class ClavaContext extends ADataClass<ClavaContext> {
 
@@ -58,8 +59,20 @@ public class ClavaContext extends ADataClass<ClavaContext> {
     public final static DataKey<ClavaMetrics> METRICS = KeyFactory
             .object("metrics", ClavaMetrics.class);
 
-    public final static DataKey<CachedItems<String, String>> CACHED_FILEPATHS = KeyFactory
-            .generic("cachedFilepaths", () -> new CachedItems<String, String>(string -> string, true));
+    /**
+     * Canonical keys of types, used for comparing types.
+     */
+    public final static DataKey<TypeInterner> TYPE_INTERNER = KeyFactory
+            .object("typeInterner", TypeInterner.class)
+            .setDefault(() -> new TypeInterner());
+
+    /**
+     * Version of the generated code of all translation units. Incremented by modifications that can change the code of
+     * any file, which invalidates the code cached by the translation units.
+     */
+    public final static DataKey<AtomicLong> CODE_VERSION = KeyFactory
+            .object("codeVersion", AtomicLong.class)
+            .setDefault(() -> new AtomicLong(0));
 
     /**
      * If set, represents the root folder where we are working on.
@@ -82,6 +95,9 @@ public class ClavaContext extends ADataClass<ClavaContext> {
 
     private final List<App> appStack;
 
+    // Number of active calls to suspendInvalidation()
+    private final AtomicInteger invalidationSuspensions;
+
     public ClavaContext() {
 
         // this.data = DataStore.newInstance(getClass());
@@ -89,6 +105,9 @@ public class ClavaContext extends ADataClass<ClavaContext> {
         // Set arguments
         set(ARGUMENTS, new HashMap<>());
 
+        // Set explicitly, the generator is shared between threads and should not be lazily created
+        set(ID_GENERATOR, new ClavaIdGenerator());
+
         // Initialize factory
         set(FACTORY, new ClavaFactory(this));
 
@@ -98,9 +117,13 @@ public class ClavaContext extends ADataClass<ClavaContext> {
 
         set(METRICS, new ClavaMetrics());
 
-        set(CACHED_FILEPATHS, new CachedItems<>(string -> string, true));
+        set(TYPE_INTERNER, new TypeInterner());
+
+        set(CODE_VERSION, new AtomicLong(0));
 
         appStack = new ArrayList<>();
+
+        invalidationSuspensions = new AtomicInteger(0);
     }
 
     // public ClavaContext(ClavaContext context) {
@@ -140,6 +163,10 @@ public class ClavaContext extends ADataClass<ClavaContext> {
         return app;
     }
 
+    public boolean hasApp() {
+        return !appStack.isEmpty();
+    }
+
     public App getApp() {
         if (appStack.isEmpty()) {
             throw new RuntimeException("No App has been set yet");
@@ -147,6 +174,34 @@ public class ClavaContext extends ADataClass<ClavaContext> {
 
         return SpecsCollections.last(appStack);
     }
+
+    /**
+     * Suspends the invalidation of caches done by the modifications of nodes of this context, until
+     * {@link #resumeInvalidation()} is called. Used while parsing, when the modified nodes are not attached to an App.
+     * Nodes attached to an App should not be modified while invalidation is suspended, since the node index of the App
+     * is not updated either.
+     */
+    public void suspendInvalidation() {
+        invalidationSuspensions.incrementAndGet();
+    }
+
+    /**
+     * Resumes the invalidation of caches. When the last suspension ends, invalidates the cached keys of types and the
+     * cached code of all translation units, which might have been computed while invalidation was suspended.
+     */
+    public void resumeInvalidation() {
+        int suspensions = invalidationSuspensions.decrementAndGet();
+        SpecsCheck.checkArgument(suspensions >= 0, () -> "Invalidation of caches was not suspended");
+
+        if (suspensions == 0) {
+            get(TYPE_INTERNER).invalidate();
+            get(CODE_VERSION).incrementAndGet();
+        }
+    }
+
+    public boolean isInvalidationSuspended() {
+        return invalidationSuspensions.get() > 0;
+    }
     // public <T> T get(DataKey<T> key) {
     // return this.data.get(key);
     // }
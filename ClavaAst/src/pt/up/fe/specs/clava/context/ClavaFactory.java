@@ -23,8 +23,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.suikasoft.jOptions.Interfaces.DataStore;
+import org.suikasoft.jOptions.storedefinition.StoreDefinition;
 import org.suikasoft.jOptions.storedefinition.StoreDefinitions;
 
 import pt.up.fe.specs.clava.ClavaNode;
@@ -151,6 +153,19 @@ public class ClavaFactory {
         PREFIX_MAP.put(Comment.class, COMMENT_ID_PREFIX);
     }
 
+    /**
+     * The class map is not thread-safe, the prefix of each class is looked up once and then read from this map.
+     */
+    private static final Map<Class<? extends ClavaNode>, String> ID_PREFIXES = new ConcurrentHashMap<>();
+
+    /**
+     * The definition of a node class is built by reflection over its keys, and is shared by all nodes of that class.
+     */
+    private static final Map<Class<? extends ClavaNode>, StoreDefinition> STORE_DEFINITIONS;
+    static {
+        STORE_DEFINITIONS = new ConcurrentHashMap<>();
+    }
+
     private final ClavaContext context;
     private final DataStore baseData;
     private final ClassesService classesService;
@@ -165,14 +180,29 @@ public class ClavaFactory {
         this.classesService = new ClassesService();
     }
 
+    /**
+     * 
+     * @param nodeClass
+     * @return the keys of the given node class, which are the slots of the DataStore of its nodes
+     */
+    public static StoreDefinition getStoreDefinition(Class<? extends ClavaNode> nodeClass) {
+        return STORE_DEFINITIONS.computeIfAbsent(nodeClass, StoreDefinitions::fromInterface);
+    }
+
+    private static String getIdPrefix(Class<? extends ClavaNode> nodeClass) {
+        synchronized (PREFIX_MAP) {
+            return PREFIX_MAP.get(nodeClass);
+        }
+    }
+
     // public DataStore newDataStore(String idPrefix) {
     public DataStore newDataStore(Class<? extends ClavaNode> nodeClass) {
 
         // Get the correct prefix for the given class
-        String idPrefix = PREFIX_MAP.get(nodeClass);
+        String idPrefix = ID_PREFIXES.computeIfAbsent(nodeClass, ClavaFactory::getIdPrefix);
 
         // DataStore data = DataStore.newInstance("ClavaFactory Node");
-        DataStore data = DataStore.newInstance(StoreDefinitions.fromInterface(nodeClass), true);
+        DataStore data = DataStore.newInstance(getStoreDefinition(nodeClass), true);
 
         // Add base node, if present
         if (baseData != null) {
@@ -267,11 +297,12 @@ public class ClavaFactory {
     }
 
     public BuiltinType builtinType(String literalKind) {
-        BuiltinKind kind = BuiltinKind.newInstance(literalKind);
-        BuiltinType type = builtinType(kind);
-        type.setKindLiteral(literalKind);
+        // Set when creating the node, setting it in the new type would invalidate the keys of all types
+        DataStore data = newDataStore(BuiltinType.class)
+                .put(BuiltinType.KIND, BuiltinKind.newInstance(literalKind))
+                .put(BuiltinType.KIND_LITERAL, literalKind);
 
-        return type;
+        return new BuiltinType(data, Collections.emptyList());
     }
 
     public BuiltinType builtinType(BuiltinKind kind) {
@@ -13,29 +13,61 @@
 
 package pt.up.fe.specs.clava.context;
 
-import pt.up.fe.specs.util.collections.AccumulatorMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Generates ids for new nodes. Can be shared between threads without locking.
+ * 
+ * <p>
+ * Each prefix has its own counter, starting at 1. When used by a single thread, the generated ids are always the same.
+ *
+ * @author JoaoBispo
+ *
+ */
 public class ClavaIdGenerator {
 
     // private static final String TYPE_ID_PREFIX = "type_";
     // private static final String DECL_ID_PREFIX = "decl_";
 
-    private final AccumulatorMap<String> acc;
+    private final Map<String, AtomicInteger> counters;
 
     public ClavaIdGenerator() {
-        this.acc = new AccumulatorMap<>();
+        this.counters = new ConcurrentHashMap<>();
     }
 
     public ClavaIdGenerator(ClavaIdGenerator idGenerator) {
-        this.acc = new AccumulatorMap<>(idGenerator.acc);
+        this();
+
+        idGenerator.counters.forEach((prefix, counter) -> counters.put(prefix, new AtomicInteger(counter.get())));
     }
 
     public String next(String prefix) {
-        Integer suffixValue = acc.add(prefix);
+        int suffixValue = nextInt(prefix);
 
         return prefix + suffixValue;
     }
 
+    /**
+     * 
+     * @param prefix
+     * @return the next integer value for the given prefix, starting at 1
+     */
+    public int nextInt(String prefix) {
+        return getCounter(prefix).incrementAndGet();
+    }
+
+    private AtomicInteger getCounter(String prefix) {
+        // Counters are only created a few times, avoid computeIfAbsent in the common case
+        AtomicInteger counter = counters.get(prefix);
+        if (counter != null) {
+            return counter;
+        }
+
+        return counters.computeIfAbsent(prefix, key -> new AtomicInteger(0));
+    }
+
     /*
     public String nextTypeId() {
         return next(TYPE_ID_PREFIX);
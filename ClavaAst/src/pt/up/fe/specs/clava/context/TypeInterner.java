@@ -0,0 +1,95 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Assigns an integer id to each distinct canonical key of a type, so that types can be compared by id.
+ *
+ * <p>
+ * Types cache their canonical key together with the current version of the interner. Any modification that can change
+ * the code of a type increments the version, invalidating all cached keys. Ids are only comparable between keys of the
+ * same version, each version starts with an empty table, so the keys of previous versions can be collected.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class TypeInterner {
+
+    /**
+     * Id of types that do not have a canonical key (e.g., auto types that were not deduced).
+     */
+    public static final int NO_KEY_ID = -1;
+
+    /**
+     * The keys interned in a version.
+     */
+    private static class Generation {
+        private final long version;
+        private final Map<String, Integer> keyToId;
+        private final AtomicInteger nextId;
+
+        public Generation(long version) {
+            this.version = version;
+            this.keyToId = new ConcurrentHashMap<>();
+            this.nextId = new AtomicInteger(0);
+        }
+    }
+
+    private final AtomicReference<Generation> generation;
+
+    public TypeInterner() {
+        this.generation = new AtomicReference<>(new Generation(0));
+    }
+
+    /**
+     *
+     * @param key
+     * @param version
+     *            the version that was current when the key was computed
+     * @return the id of the given canonical key, which is the same for equal keys of the same version, or NO_KEY_ID if
+     *         the key is null or the version is no longer current
+     */
+    public int intern(String key, long version) {
+        if (key == null) {
+            return NO_KEY_ID;
+        }
+
+        Generation current = generation.get();
+        if (current.version != version) {
+            return NO_KEY_ID;
+        }
+
+        return current.keyToId.computeIfAbsent(key, k -> current.nextId.getAndIncrement());
+    }
+
+    /**
+     *
+     * @return the current version, cached keys computed with a different version are no longer valid
+     */
+    public long getVersion() {
+        return generation.get().version;
+    }
+
+    /**
+     * Invalidates all cached keys, and discards the interned keys.
+     */
+    public void invalidate() {
+        generation.updateAndGet(current -> new Generation(current.version + 1));
+    }
+}
@@ -13,6 +13,9 @@
 
 package pt.up.fe.specs.clava.transform;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.ClavaRule;
 import pt.up.fe.specs.util.treenode.transform.TransformQueue;
@@ -34,4 +37,29 @@ public interface SimplePreClavaRule extends ClavaRule {
     }
 
     void applySimple(ClavaNode node, TransformQueue<ClavaNode> queue);
+
+    /**
+     * The classes of the nodes this rule can change. Rules that return a non-empty collection can be applied together
+     * with other rules in a single traversal of the tree, and are only called for nodes that are instances of one of
+     * the classes.
+     * 
+     * <p>
+     * By default returns an empty collection, meaning the rule can change any node and is applied in its own
+     * traversal.
+     * 
+     * @return
+     */
+    default Collection<Class<? extends ClavaNode>> getHandledClasses() {
+	return Collections.emptyList();
+    }
+
+    /**
+     * Rules whose changes must be applied to the tree before this rule runs. A rule is never applied in the same
+     * traversal as one of its dependencies.
+     * 
+     * @return
+     */
+    default Collection<Class<? extends ClavaRule>> getDependencies() {
+	return Collections.emptyList();
+    }
 }
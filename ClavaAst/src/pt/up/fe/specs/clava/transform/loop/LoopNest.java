@@ -0,0 +1,181 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ast.decl.Decl;
+import pt.up.fe.specs.clava.ast.stmt.LoopStmt;
+import pt.up.fe.specs.clava.ast.stmt.Stmt;
+
+/**
+ * Structural information of the loops inside a declaration (e.g., a function), calculated in a single pass.
+ *
+ * <p>
+ * Instances are cached by Decl.getLoopNest(), and discarded when the declaration or one of its descendants is
+ * modified.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class LoopNest {
+
+    private static class LoopInfo {
+        private final int level;
+        private final boolean isInnermost;
+        private List<Integer> rank;
+
+        public LoopInfo(int level, boolean isInnermost) {
+            this.level = level;
+            this.isInnermost = isInnermost;
+            this.rank = null;
+        }
+    }
+
+    private final Map<LoopStmt, LoopInfo> loops;
+
+    private LoopNest() {
+        this.loops = new IdentityHashMap<>();
+    }
+
+    public static LoopNest newInstance(Decl root) {
+        LoopNest loopNest = new LoopNest();
+
+        for (ClavaNode child : root.getChildren()) {
+            loopNest.addLoops(child, 0);
+        }
+
+        loopNest.addRanks(root, Collections.emptyList());
+
+        return loopNest;
+    }
+
+    /**
+     *
+     * @param node
+     * @param level
+     * @return true if the node or one of its descendants is a loop
+     */
+    private boolean addLoops(ClavaNode node, int level) {
+        boolean isLoop = node instanceof LoopStmt;
+        int childrenLevel = isLoop ? level + 1 : level;
+
+        boolean hasLoops = false;
+        for (ClavaNode child : node.getChildren()) {
+            hasLoops |= addLoops(child, childrenLevel);
+        }
+
+        if (isLoop) {
+            loops.put((LoopStmt) node, new LoopInfo(level, !hasLoops));
+        }
+
+        return isLoop || hasLoops;
+    }
+
+    private void addRanks(ClavaNode rankNode, List<Integer> parentRank) {
+        List<LoopStmt> rankSiblings = getRankSiblings(rankNode);
+
+        for (int i = 0; i < rankSiblings.size(); i++) {
+            LoopStmt loop = rankSiblings.get(i);
+
+            List<Integer> rank = new ArrayList<>(parentRank.size() + 1);
+            rank.addAll(parentRank);
+            // Loop ranks start at 1
+            rank.add(i + 1);
+
+            loops.get(loop).rank = Collections.unmodifiableList(rank);
+
+            addRanks(loop, rank);
+        }
+    }
+
+    /**
+     * The loops that share a rank node are the loops that can be reached from the node only through statements, without
+     * passing through another loop.
+     *
+     * @param rankNode
+     *            the nearest loop ancestor of the loops, or if there is none, the nearest declaration ancestor
+     * @return the loops that have the given rank node, in the order they appear in the code
+     */
+    public static List<LoopStmt> getRankSiblings(ClavaNode rankNode) {
+        List<LoopStmt> rankSiblings = new ArrayList<>();
+
+        for (ClavaNode child : rankNode.getChildren()) {
+            getRankSiblings(child, rankSiblings);
+        }
+
+        return rankSiblings;
+    }
+
+    private static void getRankSiblings(ClavaNode node, List<LoopStmt> rankSiblings) {
+        // If not a statement, stop looking
+        if (!(node instanceof Stmt)) {
+            return;
+        }
+
+        // If LoopStmt, add to list and stop looking
+        if (node instanceof LoopStmt) {
+            rankSiblings.add((LoopStmt) node);
+            return;
+        }
+
+        // Continue looking in the children of the stmt
+        for (ClavaNode child : node.getChildren()) {
+            getRankSiblings(child, rankSiblings);
+        }
+    }
+
+    public boolean contains(LoopStmt loop) {
+        return loops.containsKey(loop);
+    }
+
+    /**
+     *
+     * @param loop
+     * @return the number of loops around the given loop, inside the root declaration
+     */
+    public int getLevel(LoopStmt loop) {
+        return getInfo(loop).level;
+    }
+
+    public boolean isInnermost(LoopStmt loop) {
+        return getInfo(loop).isInnermost;
+    }
+
+    /**
+     *
+     * @param loop
+     * @return the rank of the loop, or empty if the loop cannot be reached from the root through statements (e.g., a
+     *         loop inside a lambda)
+     */
+    public Optional<List<Integer>> getRank(LoopStmt loop) {
+        return Optional.ofNullable(getInfo(loop).rank);
+    }
+
+    private LoopInfo getInfo(LoopStmt loop) {
+        LoopInfo info = loops.get(loop);
+
+        if (info == null) {
+            throw new RuntimeException("Loop is not inside the root of this loop nest: " + loop.getLocation());
+        }
+
+        return info;
+    }
+}
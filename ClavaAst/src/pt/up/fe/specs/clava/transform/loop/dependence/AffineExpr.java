@@ -0,0 +1,235 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop.dependence;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ClavaNodes;
+import pt.up.fe.specs.clava.ast.expr.BinaryOperator;
+import pt.up.fe.specs.clava.ast.expr.CastExpr;
+import pt.up.fe.specs.clava.ast.expr.DeclRefExpr;
+import pt.up.fe.specs.clava.ast.expr.Expr;
+import pt.up.fe.specs.clava.ast.expr.IntegerLiteral;
+import pt.up.fe.specs.clava.ast.expr.UnaryOperator;
+
+/**
+ * An integer expression of the form c0 + c1*v1 + ... + cn*vn, where v1...vn are names of variables.
+ *
+ * <p>
+ * Operations throw ArithmeticException if a coefficient overflows.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class AffineExpr {
+
+    private final Map<String, Long> coefficients;
+    private final long constant;
+
+    private AffineExpr(Map<String, Long> coefficients, long constant) {
+        this.coefficients = coefficients;
+        this.constant = constant;
+    }
+
+    public static AffineExpr constant(long value) {
+        return new AffineExpr(Collections.emptyMap(), value);
+    }
+
+    public static AffineExpr variable(String name) {
+        Map<String, Long> coefficients = new TreeMap<>();
+        coefficients.put(name, 1L);
+
+        return new AffineExpr(coefficients, 0);
+    }
+
+    /**
+     * Supports integer literals, references to variables, +, -, and multiplications where one of the operands is a
+     * constant.
+     *
+     * @param expr
+     * @return the affine form of the expression, or empty if the expression is not affine
+     */
+    public static Optional<AffineExpr> parse(Expr expr) {
+        try {
+            return Optional.ofNullable(parsePrivate(expr));
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static AffineExpr parsePrivate(ClavaNode node) {
+        node = ClavaNodes.normalize(node);
+
+        if (node instanceof CastExpr) {
+            return parsePrivate(((CastExpr) node).getSubExpr());
+        }
+
+        if (node instanceof IntegerLiteral) {
+            return constant(((IntegerLiteral) node).getValue().longValueExact());
+        }
+
+        if (node instanceof DeclRefExpr) {
+            return variable(((DeclRefExpr) node).getRefName());
+        }
+
+        if (node instanceof UnaryOperator) {
+            UnaryOperator unaryOp = (UnaryOperator) node;
+            AffineExpr subExpr = parsePrivate(unaryOp.getSubExpr());
+
+            if (subExpr == null) {
+                return null;
+            }
+
+            switch (unaryOp.getOp()) {
+            case Plus:
+                return subExpr;
+            case Minus:
+                return subExpr.negate();
+            default:
+                return null;
+            }
+        }
+
+        if (node instanceof BinaryOperator) {
+            BinaryOperator binaryOp = (BinaryOperator) node;
+
+            AffineExpr lhs = parsePrivate(binaryOp.getLhs());
+            if (lhs == null) {
+                return null;
+            }
+
+            AffineExpr rhs = parsePrivate(binaryOp.getRhs());
+            if (rhs == null) {
+                return null;
+            }
+
+            switch (binaryOp.getOp()) {
+            case Add:
+                return lhs.add(rhs);
+            case Sub:
+                return lhs.add(rhs.negate());
+            case Mul:
+                if (lhs.isConstant()) {
+                    return rhs.multiply(lhs.getConstant());
+                }
+
+                if (rhs.isConstant()) {
+                    return lhs.multiply(rhs.getConstant());
+                }
+
+                return null;
+            default:
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    public long getConstant() {
+        return constant;
+    }
+
+    /**
+     *
+     * @param variable
+     * @return the coefficient of the given variable, or 0 if the variable does not appear in the expression
+     */
+    public long getCoefficient(String variable) {
+        return coefficients.getOrDefault(variable, 0L);
+    }
+
+    /**
+     *
+     * @return the variables with a coefficient different from zero
+     */
+    public Set<String> getVariables() {
+        return Collections.unmodifiableSet(coefficients.keySet());
+    }
+
+    public boolean isConstant() {
+        return coefficients.isEmpty();
+    }
+
+    public AffineExpr add(AffineExpr other) {
+        Map<String, Long> newCoefficients = new TreeMap<>(coefficients);
+
+        for (Entry<String, Long> entry : other.coefficients.entrySet()) {
+            long coefficient = Math.addExact(getCoefficient(entry.getKey()), entry.getValue());
+
+            if (coefficient == 0) {
+                newCoefficients.remove(entry.getKey());
+            } else {
+                newCoefficients.put(entry.getKey(), coefficient);
+            }
+        }
+
+        return new AffineExpr(newCoefficients, Math.addExact(constant, other.constant));
+    }
+
+    public AffineExpr multiply(long factor) {
+        if (factor == 0) {
+            return constant(0);
+        }
+
+        Map<String, Long> newCoefficients = new TreeMap<>();
+        for (Entry<String, Long> entry : coefficients.entrySet()) {
+            newCoefficients.put(entry.getKey(), Math.multiplyExact(entry.getValue(), factor));
+        }
+
+        return new AffineExpr(newCoefficients, Math.multiplyExact(constant, factor));
+    }
+
+    public AffineExpr negate() {
+        return multiply(-1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (Entry<String, Long> entry : coefficients.entrySet()) {
+            long coefficient = entry.getValue();
+
+            if (builder.length() > 0) {
+                builder.append(coefficient < 0 ? " - " : " + ");
+            } else if (coefficient < 0) {
+                builder.append("-");
+            }
+
+            long absCoefficient = Math.abs(coefficient);
+            if (absCoefficient != 1) {
+                builder.append(absCoefficient).append("*");
+            }
+
+            builder.append(entry.getKey());
+        }
+
+        if (builder.length() == 0) {
+            return Long.toString(constant);
+        }
+
+        if (constant != 0) {
+            builder.append(constant < 0 ? " - " : " + ").append(Math.abs(constant));
+        }
+
+        return builder.toString();
+    }
+}
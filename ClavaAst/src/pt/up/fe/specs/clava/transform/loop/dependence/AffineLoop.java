@@ -0,0 +1,216 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop.dependence;
+
+import java.util.List;
+import java.util.Optional;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ClavaNodes;
+import pt.up.fe.specs.clava.ast.expr.BinaryOperator;
+import pt.up.fe.specs.clava.ast.expr.DeclRefExpr;
+import pt.up.fe.specs.clava.ast.expr.Expr;
+import pt.up.fe.specs.clava.ast.expr.UnaryOperator;
+import pt.up.fe.specs.clava.ast.expr.enums.ExprUse;
+import pt.up.fe.specs.clava.ast.stmt.ForStmt;
+
+/**
+ * A for loop in canonical form, where the iteration variable goes from 'start' to 'end' (inclusive) by a constant
+ * step, and the bounds are affine expressions.
+ *
+ * @author JoaoBispo
+ *
+ */
+class AffineLoop {
+
+    private final ForStmt loop;
+    private final String variable;
+    private final AffineExpr start;
+    private final AffineExpr end;
+    private final long step;
+
+    private AffineLoop(ForStmt loop, String variable, AffineExpr start, AffineExpr end, long step) {
+        this.loop = loop;
+        this.variable = variable;
+        this.start = start;
+        this.end = end;
+        this.step = step;
+    }
+
+    /**
+     *
+     * @param loop
+     * @return the canonical form of the loop, or empty if the loop is not in canonical form
+     */
+    public static Optional<AffineLoop> newInstance(ForStmt loop) {
+        try {
+            return Optional.ofNullable(newInstancePrivate(loop));
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static AffineLoop newInstancePrivate(ForStmt loop) {
+        List<String> controlVars = loop.getControlVarNames();
+        if (controlVars.size() != 1) {
+            return null;
+        }
+
+        String variable = controlVars.get(0);
+
+        AffineExpr start = loop.getInitValueExpr().flatMap(AffineExpr::parse).orElse(null);
+        if (start == null) {
+            return null;
+        }
+
+        Long step = loop.getInc().map(inc -> getStep(inc.getChild(0), variable)).orElse(null);
+        if (step == null || step == 0) {
+            return null;
+        }
+
+        BinaryOperator condOp = loop.getCondOperator().orElse(null);
+        if (condOp == null || !isVariable(condOp.getLhs(), variable)) {
+            return null;
+        }
+
+        AffineExpr bound = AffineExpr.parse(condOp.getRhs()).orElse(null);
+        if (bound == null) {
+            return null;
+        }
+
+        AffineExpr end;
+        switch (condOp.getOp()) {
+        case LT:
+            end = step > 0 ? bound.add(AffineExpr.constant(-1)) : null;
+            break;
+        case LE:
+            end = step > 0 ? bound : null;
+            break;
+        case GT:
+            end = step < 0 ? bound.add(AffineExpr.constant(1)) : null;
+            break;
+        case GE:
+            end = step < 0 ? bound : null;
+            break;
+        default:
+            end = null;
+        }
+
+        if (end == null) {
+            return null;
+        }
+
+        // The iteration variable can only be modified by the increment
+        boolean isModifiedInBody = loop.getBody().getDescendantsStream()
+                .filter(DeclRefExpr.class::isInstance)
+                .map(DeclRefExpr.class::cast)
+                .anyMatch(ref -> ref.getRefName().equals(variable) && ref.use() != ExprUse.READ);
+
+        if (isModifiedInBody) {
+            return null;
+        }
+
+        return new AffineLoop(loop, variable, start, end, step);
+    }
+
+    /**
+     * Supports var++, ++var, var--, --var, var += c, var -= c, and var = var + c.
+     *
+     * @param incExpr
+     * @param variable
+     * @return the step of the increment, or null if not supported
+     */
+    private static Long getStep(ClavaNode incExpr, String variable) {
+        incExpr = ClavaNodes.normalize(incExpr);
+
+        if (incExpr instanceof UnaryOperator) {
+            UnaryOperator unaryOp = (UnaryOperator) incExpr;
+
+            if (!isVariable(unaryOp.getSubExpr(), variable)) {
+                return null;
+            }
+
+            switch (unaryOp.getOp()) {
+            case PreInc:
+            case PostInc:
+                return 1L;
+            case PreDec:
+            case PostDec:
+                return -1L;
+            default:
+                return null;
+            }
+        }
+
+        if (!(incExpr instanceof BinaryOperator)) {
+            return null;
+        }
+
+        BinaryOperator binaryOp = (BinaryOperator) incExpr;
+        if (!isVariable(binaryOp.getLhs(), variable)) {
+            return null;
+        }
+
+        AffineExpr rhs = AffineExpr.parse(binaryOp.getRhs()).orElse(null);
+        if (rhs == null) {
+            return null;
+        }
+
+        switch (binaryOp.getOp()) {
+        case AddAssign:
+            return rhs.isConstant() ? rhs.getConstant() : null;
+        case SubAssign:
+            return rhs.isConstant() ? -rhs.getConstant() : null;
+        case Assign:
+            // var = var + c
+            boolean isIncrement = rhs.getVariables().size() == 1 && rhs.getCoefficient(variable) == 1;
+            return isIncrement ? rhs.getConstant() : null;
+        default:
+            return null;
+        }
+    }
+
+    private static boolean isVariable(Expr expr, String variable) {
+        ClavaNode node = ClavaNodes.normalize(expr);
+        return node instanceof DeclRefExpr && ((DeclRefExpr) node).getRefName().equals(variable);
+    }
+
+    public ForStmt getLoop() {
+        return loop;
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+
+    /**
+     *
+     * @return the first value of the iteration variable
+     */
+    public AffineExpr getStart() {
+        return start;
+    }
+
+    /**
+     *
+     * @return the bound of the iteration variable in the direction of the step (inclusive)
+     */
+    public AffineExpr getEnd() {
+        return end;
+    }
+
+    public long getStep() {
+        return step;
+    }
+}
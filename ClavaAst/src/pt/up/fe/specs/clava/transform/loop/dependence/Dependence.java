@@ -0,0 +1,86 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop.dependence;
+
+import pt.up.fe.specs.clava.ast.expr.Expr;
+
+/**
+ * A dependence carried by a loop, between an access in an earlier iteration (the source) and an access in a later
+ * iteration (the sink) to the same element of an array.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class Dependence {
+
+    public enum DependenceKind {
+        /**
+         * Source writes, sink reads (read-after-write).
+         */
+        FLOW,
+        /**
+         * Source reads, sink writes (write-after-read).
+         */
+        ANTI,
+        /**
+         * Source and sink write (write-after-write).
+         */
+        OUTPUT;
+    }
+
+    private final String array;
+    private final DependenceKind kind;
+    private final Expr source;
+    private final Expr sink;
+    private final boolean isProven;
+
+    public Dependence(String array, DependenceKind kind, Expr source, Expr sink, boolean isProven) {
+        this.array = array;
+        this.kind = kind;
+        this.source = source;
+        this.sink = sink;
+        this.isProven = isProven;
+    }
+
+    public String getArray() {
+        return array;
+    }
+
+    public DependenceKind getKind() {
+        return kind;
+    }
+
+    public Expr getSource() {
+        return source;
+    }
+
+    public Expr getSink() {
+        return sink;
+    }
+
+    /**
+     *
+     * @return true if a pair of iterations where the dependence occurs was found, false if the dependence is assumed
+     *         because the analysis could not prove that the accesses are independent
+     */
+    public boolean isProven() {
+        return isProven;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " dependence on '" + array + "' from '" + source.getCode() + "' to '" + sink.getCode() + "'"
+                + (isProven ? "" : " (assumed)");
+    }
+}
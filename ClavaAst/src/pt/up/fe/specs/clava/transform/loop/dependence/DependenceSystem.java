@@ -0,0 +1,397 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop.dependence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A system of affine equalities (expr == 0) and inequalities (expr >= 0) over integer variables, which represents the
+ * iteration pairs where two accesses touch the same element.
+ *
+ * <p>
+ * The system is first tested with the GCD test and with the bounds of the variables (similar to the Banerjee test). If
+ * those tests are inconclusive and all variables are bounded, the system is solved by a bounded exhaustive search.
+ *
+ * @author JoaoBispo
+ *
+ */
+class DependenceSystem {
+
+    enum Result {
+        /**
+         * The system has no integer solution.
+         */
+        INDEPENDENT,
+        /**
+         * An integer solution was found.
+         */
+        DEPENDENT,
+        /**
+         * It was not possible to decide if the system has a solution.
+         */
+        UNKNOWN;
+    }
+
+    /**
+     * Maximum number of nodes visited by the exhaustive search.
+     */
+    private static final int SEARCH_BUDGET = 100_000;
+
+    /**
+     * Number of rounds of the propagation of bounds between variables.
+     */
+    private static final int PROPAGATION_ROUNDS = 10;
+
+    private final Map<String, Integer> variables;
+    private final List<Constraint> constraints;
+    private boolean isExact;
+
+    public DependenceSystem() {
+        this.variables = new HashMap<>();
+        this.constraints = new ArrayList<>();
+        this.isExact = true;
+    }
+
+    public void addEquality(AffineExpr expr) {
+        constraints.add(newConstraint(expr, true));
+    }
+
+    public void addInequality(AffineExpr expr) {
+        constraints.add(newConstraint(expr, false));
+    }
+
+    /**
+     *
+     * @return true if the last solution was found without relaxing the system
+     */
+    public boolean isExact() {
+        return isExact;
+    }
+
+    private Constraint newConstraint(AffineExpr expr, boolean isEquality) {
+        for (String variable : expr.getVariables()) {
+            variables.putIfAbsent(variable, variables.size());
+        }
+
+        Constraint constraint = new Constraint(isEquality, expr.getConstant());
+        for (String variable : expr.getVariables()) {
+            constraint.coefficients.put(variables.get(variable), expr.getCoefficient(variable));
+        }
+
+        return constraint;
+    }
+
+    public Result solve() {
+        isExact = true;
+
+        List<Constraint> system = relax();
+
+        if (!gcdTest(system)) {
+            return Result.INDEPENDENT;
+        }
+
+        Interval[] ranges = new Interval[variables.size()];
+        Arrays.fill(ranges, Interval.UNBOUNDED);
+
+        if (!propagateBounds(system, ranges)) {
+            return Result.INDEPENDENT;
+        }
+
+        // Variables that remain in the system must be bounded to be searched
+        for (Constraint constraint : system) {
+            for (int variable : constraint.coefficients.keySet()) {
+                if (!ranges[variable].isBounded()) {
+                    return Result.UNKNOWN;
+                }
+            }
+        }
+
+        int[] order = system.stream()
+                .flatMapToInt(constraint -> constraint.coefficients.keySet().stream().mapToInt(Integer::intValue))
+                .distinct()
+                .toArray();
+
+        Search search = new Search(system, ranges, order);
+        return search.run();
+    }
+
+    /**
+     * Removes the variables that do not appear in any equality, together with the inequalities where they appear.
+     * Removing constraints can only add solutions, so the result of the relaxed system is only exact if no constraint
+     * is removed.
+     */
+    private List<Constraint> relax() {
+        List<Constraint> system = new ArrayList<>(constraints);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int variable = 0; variable < variables.size(); variable++) {
+                int currentVariable = variable;
+
+                boolean inEquality = system.stream()
+                        .anyMatch(constraint -> constraint.isEquality
+                                && constraint.coefficients.containsKey(currentVariable));
+
+                if (inEquality) {
+                    continue;
+                }
+
+                if (system.removeIf(constraint -> constraint.coefficients.containsKey(currentVariable))) {
+                    isExact = false;
+                    changed = true;
+                }
+            }
+        }
+
+        return system;
+    }
+
+    /**
+     *
+     * @return false if one of the equalities has no integer solution
+     */
+    private static boolean gcdTest(List<Constraint> system) {
+        for (Constraint constraint : system) {
+            if (!constraint.isEquality) {
+                continue;
+            }
+
+            long gcd = 0;
+            for (long coefficient : constraint.coefficients.values()) {
+                gcd = gcd(gcd, Math.abs(coefficient));
+            }
+
+            if (gcd == 0) {
+                if (constraint.constant != 0) {
+                    return false;
+                }
+
+                continue;
+            }
+
+            if (constraint.constant % gcd != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long temp = a % b;
+            a = b;
+            b = temp;
+        }
+
+        return a;
+    }
+
+    /**
+     * Tightens the ranges of the variables using the constraints.
+     *
+     * @return false if the ranges show that the system has no solution
+     */
+    private static boolean propagateBounds(List<Constraint> system, Interval[] ranges) {
+        for (int round = 0; round < PROPAGATION_ROUNDS; round++) {
+            boolean changed = false;
+
+            for (Constraint constraint : system) {
+                if (!constraint.isFeasible(ranges)) {
+                    return false;
+                }
+
+                for (int variable : constraint.coefficients.keySet()) {
+                    Interval newRange = ranges[variable].intersect(constraint.getBounds(variable, ranges));
+
+                    if (newRange.isEmpty()) {
+                        return false;
+                    }
+
+                    if (!newRange.equals(ranges[variable])) {
+                        ranges[variable] = newRange;
+                        changed = true;
+                    }
+                }
+            }
+
+            if (!changed) {
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    private static class Constraint {
+
+        private final boolean isEquality;
+        private final long constant;
+        private final Map<Integer, Long> coefficients;
+
+        public Constraint(boolean isEquality, long constant) {
+            this.isEquality = isEquality;
+            this.constant = constant;
+            this.coefficients = new HashMap<>();
+        }
+
+        /**
+         *
+         * @return the interval of values of the expression, given the ranges of the variables
+         */
+        public Interval getRange(Interval[] ranges) {
+            return getRange(ranges, -1);
+        }
+
+        private Interval getRange(Interval[] ranges, int excludedVariable) {
+            Interval range = Interval.of(constant);
+
+            for (Map.Entry<Integer, Long> entry : coefficients.entrySet()) {
+                if (entry.getKey() == excludedVariable) {
+                    continue;
+                }
+
+                range = range.add(ranges[entry.getKey()].multiply(entry.getValue()));
+            }
+
+            return range;
+        }
+
+        public boolean isFeasible(Interval[] ranges) {
+            Interval range = getRange(ranges);
+            return isEquality ? range.contains(0) : range.getMax() == null || range.getMax() >= 0;
+        }
+
+        /**
+         *
+         * @return the values of the given variable that can satisfy the constraint, given the ranges of the other
+         *         variables
+         */
+        public Interval getBounds(int variable, Interval[] ranges) {
+            long coefficient = coefficients.get(variable);
+            Interval rest = getRange(ranges, variable);
+
+            // coefficient * x + rest >= 0, i.e. coefficient * x >= -max(rest)
+            Interval bounds = lowerBound(coefficient, rest.getMax());
+
+            if (isEquality) {
+                // coefficient * x + rest <= 0, i.e. -coefficient * x >= min(rest)
+                Interval upper = lowerBound(-coefficient, rest.getMin() == null ? null : negate(rest.getMin()));
+                bounds = bounds.intersect(upper);
+            }
+
+            return bounds;
+        }
+
+        /**
+         * Bounds of x such that coefficient * x >= -value.
+         */
+        private static Interval lowerBound(long coefficient, Long value) {
+            if (value == null) {
+                return Interval.UNBOUNDED;
+            }
+
+            if (coefficient > 0) {
+                // x >= ceil(-value / coefficient)
+                Long limit = negate(Math.floorDiv(value, coefficient));
+                return new Interval(limit, null);
+            }
+
+            // x <= floor(value / -coefficient)
+            return new Interval(null, Math.floorDiv(value, -coefficient));
+        }
+
+        private static Long negate(long value) {
+            return value == Long.MIN_VALUE ? null : -value;
+        }
+    }
+
+    /**
+     * Depth-first search over the values of the variables, which prunes the assignments where a constraint cannot be
+     * satisfied by the ranges of the variables that are not assigned yet.
+     */
+    private static class Search {
+
+        private final List<Constraint> system;
+        private final Interval[] ranges;
+        private final int[] order;
+        private int steps;
+
+        public Search(List<Constraint> system, Interval[] ranges, int[] order) {
+            this.system = system;
+            this.ranges = ranges;
+            this.order = order;
+            this.steps = 0;
+        }
+
+        public Result run() {
+            try {
+                return search(0) ? Result.DEPENDENT : Result.INDEPENDENT;
+            } catch (SearchBudgetException e) {
+                return Result.UNKNOWN;
+            }
+        }
+
+        private boolean search(int depth) {
+            steps++;
+            if (steps > SEARCH_BUDGET) {
+                throw new SearchBudgetException();
+            }
+
+            for (Constraint constraint : system) {
+                if (!constraint.isFeasible(ranges)) {
+                    return false;
+                }
+            }
+
+            // All variables assigned and all constraints satisfied
+            if (depth == order.length) {
+                return true;
+            }
+
+            int variable = order[depth];
+            Interval range = ranges[variable];
+
+            for (long value = range.getMin(); value <= range.getMax(); value++) {
+                ranges[variable] = Interval.of(value);
+
+                boolean found = search(depth + 1);
+
+                if (found) {
+                    ranges[variable] = range;
+                    return true;
+                }
+
+                if (value == Long.MAX_VALUE) {
+                    break;
+                }
+            }
+
+            ranges[variable] = range;
+            return false;
+        }
+    }
+
+    private static class SearchBudgetException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop.dependence;
+
+import java.util.Objects;
+
+/**
+ * An interval of integers, where a null bound represents infinity.
+ *
+ * <p>
+ * Results that overflow are widened to infinity, the result always contains all possible values.
+ *
+ * @author JoaoBispo
+ *
+ */
+class Interval {
+
+    public static final Interval UNBOUNDED = new Interval(null, null);
+    public static final Interval ZERO = new Interval(0L, 0L);
+
+    private final Long min;
+    private final Long max;
+
+    public Interval(Long min, Long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public static Interval of(long value) {
+        return new Interval(value, value);
+    }
+
+    /**
+     *
+     * @return the lower bound, or null if there is no lower bound
+     */
+    public Long getMin() {
+        return min;
+    }
+
+    /**
+     *
+     * @return the upper bound, or null if there is no upper bound
+     */
+    public Long getMax() {
+        return max;
+    }
+
+    public boolean isBounded() {
+        return min != null && max != null;
+    }
+
+    public boolean isEmpty() {
+        return min != null && max != null && min > max;
+    }
+
+    public boolean contains(long value) {
+        return (min == null || min <= value) && (max == null || value <= max);
+    }
+
+    public Interval add(Interval other) {
+        return new Interval(add(min, other.min), add(max, other.max));
+    }
+
+    public Interval add(long value) {
+        return add(of(value));
+    }
+
+    public Interval intersect(Interval other) {
+        return new Interval(max(min, other.min), min(max, other.max));
+    }
+
+    /**
+     * Null (no bound) is ignored. Not written as a conditional expression, which would unbox null operands.
+     */
+    private static Long max(Long a, Long b) {
+        if (a == null) {
+            return b;
+        }
+
+        if (b == null) {
+            return a;
+        }
+
+        return Math.max(a, b);
+    }
+
+    private static Long min(Long a, Long b) {
+        if (a == null) {
+            return b;
+        }
+
+        if (b == null) {
+            return a;
+        }
+
+        return Math.min(a, b);
+    }
+
+    public Interval multiply(long factor) {
+        if (factor == 0) {
+            return ZERO;
+        }
+
+        Long newMin = multiply(min, factor);
+        Long newMax = multiply(max, factor);
+
+        return factor > 0 ? new Interval(newMin, newMax) : new Interval(newMax, newMin);
+    }
+
+    private static Long add(Long a, Long b) {
+        if (a == null || b == null) {
+            return null;
+        }
+
+        try {
+            return Math.addExact(a, b);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static Long multiply(Long a, long b) {
+        if (a == null) {
+            return null;
+        }
+
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof Interval)) {
+            return false;
+        }
+
+        Interval other = (Interval) obj;
+        return Objects.equals(min, other.min) && Objects.equals(max, other.max);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(min, max);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + (min == null ? "-inf" : min) + ", " + (max == null ? "+inf" : max) + "]";
+    }
+}
@@ -0,0 +1,679 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.transform.loop.dependence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ClavaNodes;
+import pt.up.fe.specs.clava.ast.attr.enums.AttributeKind;
+import pt.up.fe.specs.clava.ast.decl.DeclaratorDecl;
+import pt.up.fe.specs.clava.ast.decl.FunctionDecl;
+import pt.up.fe.specs.clava.ast.decl.VarDecl;
+import pt.up.fe.specs.clava.ast.decl.enums.StorageClass;
+import pt.up.fe.specs.clava.ast.expr.ArraySubscriptExpr;
+import pt.up.fe.specs.clava.ast.expr.CallExpr;
+import pt.up.fe.specs.clava.ast.expr.DeclRefExpr;
+import pt.up.fe.specs.clava.ast.expr.Expr;
+import pt.up.fe.specs.clava.ast.expr.MemberExpr;
+import pt.up.fe.specs.clava.ast.expr.UnaryOperator;
+import pt.up.fe.specs.clava.ast.expr.enums.ExprUse;
+import pt.up.fe.specs.clava.ast.expr.enums.UnaryOperatorKind;
+import pt.up.fe.specs.clava.ast.stmt.ForStmt;
+import pt.up.fe.specs.clava.ast.stmt.LoopStmt;
+import pt.up.fe.specs.clava.ast.type.Type;
+import pt.up.fe.specs.clava.transform.loop.dependence.Dependence.DependenceKind;
+import pt.up.fe.specs.clava.transform.loop.dependence.DependenceSystem.Result;
+
+/**
+ * The dependences carried by a loop between accesses to arrays, calculated without external tools.
+ *
+ * <p>
+ * Supports for loops in canonical form whose subscripts are affine expressions of the iteration variables of the loop
+ * and of the for loops inside it, and of variables that are not modified inside the loop.
+ *
+ * <p>
+ * Pairs of accesses that cannot be analyzed (e.g., a non-affine subscript), and pairs of accesses to different arrays
+ * where one of them is accessed through a pointer (which may alias the other array), are reported as dependences that
+ * are not proven. A loop is not considered parallel if it writes scalars declared outside the loop, writes through
+ * pointers, or calls functions that are not known to be pure.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class LoopDependences {
+
+    private static final String OUTER_COUNTER = "i0";
+    private static final String DISTANCE = "d";
+    private static final String SOURCE_PREFIX = "s";
+    private static final String SINK_PREFIX = "t";
+    private static final String SYMBOL_PREFIX = "#";
+
+    /**
+     * Functions without side-effects, that can be called inside the loop. Functions declared with the attributes 'pure'
+     * or 'const' are also accepted.
+     */
+    private static final Set<String> PURE_FUNCTIONS = new HashSet<>(Arrays.asList("sqrt", "log", "fabs", "pow", "cos",
+            "sin", "exp", "floor", "ceil", "abs"));
+
+    private final LoopStmt loop;
+    private final String unanalyzableReason;
+    private final List<Dependence> dependences;
+    private final List<ArraySubscriptExpr> unanalyzedAccesses;
+    private final List<Expr> scalarWrites;
+    private final List<Expr> pointerWrites;
+    private final List<CallExpr> unknownCalls;
+
+    private LoopDependences(LoopStmt loop, String unanalyzableReason, List<Dependence> dependences,
+            List<ArraySubscriptExpr> unanalyzedAccesses, List<Expr> scalarWrites, List<Expr> pointerWrites,
+            List<CallExpr> unknownCalls) {
+
+        this.loop = loop;
+        this.unanalyzableReason = unanalyzableReason;
+        this.dependences = Collections.unmodifiableList(dependences);
+        this.unanalyzedAccesses = Collections.unmodifiableList(unanalyzedAccesses);
+        this.scalarWrites = Collections.unmodifiableList(scalarWrites);
+        this.pointerWrites = Collections.unmodifiableList(pointerWrites);
+        this.unknownCalls = Collections.unmodifiableList(unknownCalls);
+    }
+
+    private static LoopDependences newUnanalyzable(LoopStmt loop, String reason) {
+        return new LoopDependences(loop, reason, Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+    }
+
+    /**
+     * Prefer LoopStmt.getDependences(), which caches the result until the loop is modified.
+     *
+     * @param loop
+     * @return the dependences carried by the given loop
+     */
+    public static LoopDependences analyze(LoopStmt loop) {
+        if (!(loop instanceof ForStmt)) {
+            return newUnanalyzable(loop, "only for loops are supported");
+        }
+
+        AffineLoop affineLoop = AffineLoop.newInstance((ForStmt) loop).orElse(null);
+        if (affineLoop == null) {
+            return newUnanalyzable(loop, "loop is not in canonical form");
+        }
+
+        return new Analysis(affineLoop).analyze();
+    }
+
+    public LoopStmt getLoop() {
+        return loop;
+    }
+
+    public boolean isAnalyzable() {
+        return unanalyzableReason == null;
+    }
+
+    /**
+     *
+     * @return the reason why the loop could not be analyzed, or empty if the loop was analyzed
+     */
+    public Optional<String> getUnanalyzableReason() {
+        return Optional.ofNullable(unanalyzableReason);
+    }
+
+    public List<Dependence> getDependences() {
+        return dependences;
+    }
+
+    /**
+     *
+     * @return accesses that were not considered because the accessed array could not be determined (e.g., (p + 1)[i])
+     */
+    public List<ArraySubscriptExpr> getUnanalyzedAccesses() {
+        return unanalyzedAccesses;
+    }
+
+    /**
+     *
+     * @return writes to scalars (or to fields of structs) declared outside the loop, which are shared between
+     *         iterations
+     */
+    public List<Expr> getScalarWrites() {
+        return scalarWrites;
+    }
+
+    /**
+     *
+     * @return writes through dereferenced pointers (e.g., *p = 0, p->x = 0), which may alias any access
+     */
+    public List<Expr> getPointerWrites() {
+        return pointerWrites;
+    }
+
+    /**
+     *
+     * @return calls to functions that are not known to be pure, which may access the same memory in different
+     *         iterations
+     */
+    public List<CallExpr> getUnknownCalls() {
+        return unknownCalls;
+    }
+
+    /**
+     *
+     * @return true if the loop was analyzed, no dependences carried by the loop were found, and the loop does not
+     *         write shared scalars, write through pointers or call functions that are not known to be pure
+     */
+    public boolean isParallel() {
+        return isAnalyzable() && dependences.isEmpty() && unanalyzedAccesses.isEmpty() && scalarWrites.isEmpty()
+                && pointerWrites.isEmpty() && unknownCalls.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        if (!isAnalyzable()) {
+            return "Unanalyzable loop: " + unanalyzableReason;
+        }
+
+        return "Dependences: " + dependences + ", unanalyzed accesses: " + unanalyzedAccesses.size()
+                + ", scalar writes: " + scalarWrites.size() + ", pointer writes: " + pointerWrites.size()
+                + ", unknown calls: " + unknownCalls.size();
+    }
+
+    private static class ArrayAccess {
+
+        private final ArraySubscriptExpr expr;
+        private final String array;
+        private final boolean isPointer;
+        private final ExprUse use;
+        private final List<AffineExpr> subscripts;
+        private final List<AffineLoop> innerLoops;
+
+        public ArrayAccess(ArraySubscriptExpr expr, String array, boolean isPointer, ExprUse use,
+                List<AffineExpr> subscripts, List<AffineLoop> innerLoops) {
+
+            this.expr = expr;
+            this.array = array;
+            this.isPointer = isPointer;
+            this.use = use;
+            this.subscripts = subscripts;
+            this.innerLoops = innerLoops;
+        }
+
+        public boolean isRead() {
+            return use != ExprUse.WRITE;
+        }
+
+        public boolean isWrite() {
+            return use != ExprUse.READ;
+        }
+    }
+
+    private static class Analysis {
+
+        private final AffineLoop loop;
+        private final Set<String> modifiedNames;
+        private final Map<ForStmt, Optional<AffineLoop>> affineLoops;
+
+        public Analysis(AffineLoop loop) {
+            this.loop = loop;
+            this.modifiedNames = getModifiedNames(loop.getLoop());
+            this.affineLoops = new IdentityHashMap<>();
+        }
+
+        /**
+         *
+         * @return the names of the variables that are declared or can be modified inside the loop
+         */
+        private static Set<String> getModifiedNames(ForStmt loop) {
+            Set<String> names = new HashSet<>();
+
+            for (DeclRefExpr ref : loop.getDescendants(DeclRefExpr.class)) {
+                ClavaNode parent = ClavaNodes.getParentNormalized(ref);
+                boolean isAddressTaken = parent instanceof UnaryOperator
+                        && ((UnaryOperator) parent).getOp() == UnaryOperatorKind.AddrOf;
+
+                if (isAddressTaken || ClavaNodes.use(ref) != ExprUse.READ) {
+                    names.add(ref.getRefName());
+                }
+            }
+
+            for (VarDecl varDecl : loop.getDescendants(VarDecl.class)) {
+                names.add(varDecl.getDeclName());
+            }
+
+            return names;
+        }
+
+        public LoopDependences analyze() {
+            ForStmt forStmt = loop.getLoop();
+
+            // The init is executed once, before the iterations
+            List<ClavaNode> roots = new ArrayList<>();
+            roots.add(forStmt.getBody());
+            forStmt.getCond().ifPresent(roots::add);
+            forStmt.getInc().ifPresent(roots::add);
+
+            List<ArrayAccess> accesses = new ArrayList<>();
+            List<ArraySubscriptExpr> unanalyzedAccesses = new ArrayList<>();
+
+            for (ClavaNode root : roots) {
+                for (ArraySubscriptExpr expr : root.getDescendants(ArraySubscriptExpr.class)) {
+                    // Only consider the complete access of multi-dimensional arrays (e.g., a[i][j], not a[i])
+                    ClavaNode parent = ClavaNodes.getParentNormalized(expr);
+                    if (parent instanceof ArraySubscriptExpr
+                            && ClavaNodes.normalize(((ArraySubscriptExpr) parent).getLhs()) == expr) {
+                        continue;
+                    }
+
+                    String array = getArrayName(expr);
+                    if (array == null) {
+                        unanalyzedAccesses.add(expr);
+                        continue;
+                    }
+
+                    accesses.add(newAccess(expr, array));
+                }
+            }
+
+            List<Dependence> dependences = new ArrayList<>();
+
+            for (int i = 0; i < accesses.size(); i++) {
+                for (int j = i; j < accesses.size(); j++) {
+                    ArrayAccess first = accesses.get(i);
+                    ArrayAccess second = accesses.get(j);
+
+                    if (!first.isWrite() && !second.isWrite()) {
+                        continue;
+                    }
+
+                    if (!first.array.equals(second.array)) {
+                        // Arrays accessed through pointers may be the same array
+                        if (first.isPointer || second.isPointer) {
+                            dependences.add(newAliasDependence(first, second));
+                        }
+
+                        continue;
+                    }
+
+                    test(first, second).ifPresent(dependences::add);
+
+                    // Test of an access with itself is symmetric
+                    if (i != j) {
+                        test(second, first).ifPresent(dependences::add);
+                    }
+                }
+            }
+
+            List<Expr> scalarWrites = new ArrayList<>();
+            List<Expr> pointerWrites = new ArrayList<>();
+            List<CallExpr> unknownCalls = new ArrayList<>();
+
+            for (ClavaNode root : roots) {
+                for (Expr expr : root.getDescendants(Expr.class)) {
+                    if (expr instanceof CallExpr) {
+                        if (!isPure((CallExpr) expr)) {
+                            unknownCalls.add((CallExpr) expr);
+                        }
+
+                        continue;
+                    }
+
+                    if (!isWrite(expr)) {
+                        continue;
+                    }
+
+                    if (expr instanceof UnaryOperator && ((UnaryOperator) expr).getOp() == UnaryOperatorKind.Deref) {
+                        pointerWrites.add(expr);
+                        continue;
+                    }
+
+                    if (expr instanceof MemberExpr) {
+                        addMemberWrite((MemberExpr) expr, scalarWrites, pointerWrites);
+                        continue;
+                    }
+
+                    if (expr instanceof DeclRefExpr && isShared((DeclRefExpr) expr)) {
+                        scalarWrites.add(expr);
+                    }
+                }
+            }
+
+            return new LoopDependences(forStmt, null, dependences, unanalyzedAccesses, scalarWrites, pointerWrites,
+                    unknownCalls);
+        }
+
+        /**
+         *
+         * @return true if the expression is written, or if its address is taken (e.g., to be passed to a function that
+         *         writes it)
+         */
+        private static boolean isWrite(Expr expr) {
+            ClavaNode parent = ClavaNodes.getParentNormalized(expr);
+            if (parent instanceof UnaryOperator && ((UnaryOperator) parent).getOp() == UnaryOperatorKind.AddrOf) {
+                return true;
+            }
+
+            return ClavaNodes.use(expr) != ExprUse.READ;
+        }
+
+        /**
+         * Classifies the write of a field according to the base of the access (e.g., s.x, p->x or a[i].x).
+         */
+        private void addMemberWrite(MemberExpr memberExpr, List<Expr> scalarWrites, List<Expr> pointerWrites) {
+            ClavaNode base = memberExpr;
+            while (base instanceof MemberExpr) {
+                if (((MemberExpr) base).isArrow()) {
+                    pointerWrites.add(memberExpr);
+                    return;
+                }
+
+                base = ClavaNodes.normalize(((MemberExpr) base).getBase());
+            }
+
+            if (base instanceof DeclRefExpr) {
+                if (isShared((DeclRefExpr) base)) {
+                    scalarWrites.add(memberExpr);
+                }
+
+                return;
+            }
+
+            // Fields of array elements, or of other expressions, are not analyzed
+            pointerWrites.add(memberExpr);
+        }
+
+        /**
+         *
+         * @return true if the variable is not the iteration variable of the loop, and is not a local variable declared
+         *         inside the loop
+         */
+        private boolean isShared(DeclRefExpr ref) {
+            // Canonical form guarantees that the iteration variable is only modified by the increment
+            if (ref.getRefName().equals(loop.getVariable())) {
+                return false;
+            }
+
+            DeclaratorDecl decl = ref.getVariableDeclaration().orElse(null);
+            if (!(decl instanceof VarDecl)) {
+                return true;
+            }
+
+            // Static and extern variables are shared even if declared inside the loop
+            StorageClass storageClass = decl.get(VarDecl.STORAGE_CLASS);
+            if (storageClass == StorageClass.STATIC || storageClass == StorageClass.EXTERN) {
+                return true;
+            }
+
+            return !isInside(decl, loop.getLoop());
+        }
+
+        private static boolean isInside(ClavaNode node, ClavaNode ancestor) {
+            ClavaNode currentNode = node.getParent();
+
+            while (currentNode != null) {
+                if (currentNode == ancestor) {
+                    return true;
+                }
+
+                currentNode = currentNode.getParent();
+            }
+
+            return false;
+        }
+
+        /**
+         *
+         * @return true if the called function is known to have no side-effects
+         */
+        private static boolean isPure(CallExpr call) {
+            FunctionDecl function = call.getFunctionDecl().orElse(null);
+            if (function == null) {
+                return false;
+            }
+
+            if (PURE_FUNCTIONS.contains(function.getDeclName())) {
+                return true;
+            }
+
+            return isPureDecl(function) || call.getDeclaration().map(Analysis::isPureDecl).orElse(false);
+        }
+
+        private static boolean isPureDecl(FunctionDecl function) {
+            return function.hasAttribute(AttributeKind.Pure) || function.hasAttribute(AttributeKind.Const);
+        }
+
+        /**
+         *
+         * @return a dependence that is assumed because the accesses might be to the same array
+         */
+        private static Dependence newAliasDependence(ArrayAccess first, ArrayAccess second) {
+            ArrayAccess source = first.isWrite() ? first : second;
+            ArrayAccess sink = source == first ? second : first;
+
+            DependenceKind kind = sink.isWrite() ? DependenceKind.OUTPUT : DependenceKind.FLOW;
+
+            return new Dependence(source.array, kind, source.expr, sink.expr, false);
+        }
+
+        private static String getArrayName(ArraySubscriptExpr expr) {
+            ClavaNode base = ClavaNodes.normalize(expr.getLhs());
+
+            while (base instanceof ArraySubscriptExpr) {
+                base = ClavaNodes.normalize(((ArraySubscriptExpr) base).getLhs());
+            }
+
+            if (base instanceof DeclRefExpr) {
+                return ((DeclRefExpr) base).getRefName();
+            }
+
+            if (base instanceof MemberExpr) {
+                return ((MemberExpr) base).getCode();
+            }
+
+            return null;
+        }
+
+        private ArrayAccess newAccess(ArraySubscriptExpr expr, String array) {
+            List<AffineExpr> subscripts = new ArrayList<>();
+            for (Expr subscript : expr.getSubscripts()) {
+                subscripts.add(AffineExpr.parse(subscript).orElse(null));
+            }
+
+            // For loops between the access and the analyzed loop, from the outermost to the innermost
+            List<AffineLoop> innerLoops = new ArrayList<>();
+            ClavaNode currentNode = expr.getParent();
+            while (currentNode != loop.getLoop()) {
+                if (currentNode instanceof ForStmt) {
+                    // Loops that are not in canonical form modify their variables, which makes subscripts that use
+                    // them non-affine
+                    getAffineLoop((ForStmt) currentNode).ifPresent(affineLoop -> innerLoops.add(0, affineLoop));
+                }
+
+                currentNode = currentNode.getParent();
+            }
+
+            return new ArrayAccess(expr, array, isPointer(expr), ClavaNodes.use(expr), subscripts, innerLoops);
+        }
+
+        /**
+         *
+         * @return true if the accessed array is a pointer (e.g., a parameter declared as int a[]), or if its type is
+         *         unknown
+         */
+        private static boolean isPointer(ArraySubscriptExpr expr) {
+            ClavaNode base = ClavaNodes.normalize(expr.getLhs());
+
+            while (base instanceof ArraySubscriptExpr) {
+                base = ClavaNodes.normalize(((ArraySubscriptExpr) base).getLhs());
+            }
+
+            Type type = ((Expr) base).getExprTypeTry().orElse(null);
+            return type == null || type.desugarAll().isPointer();
+        }
+
+        private Optional<AffineLoop> getAffineLoop(ForStmt forStmt) {
+            return affineLoops.computeIfAbsent(forStmt, AffineLoop::newInstance);
+        }
+
+        /**
+         * Tests if there is a dependence from the source access, in an earlier iteration of the loop, to the sink
+         * access.
+         *
+         * @return the dependence, or empty if the accesses are independent
+         */
+        private Optional<Dependence> test(ArrayAccess source, ArrayAccess sink) {
+            DependenceKind kind = source.isWrite() && sink.isRead() ? DependenceKind.FLOW
+                    : source.isRead() && sink.isWrite() ? DependenceKind.ANTI : DependenceKind.OUTPUT;
+
+            Dependence assumed = new Dependence(source.array, kind, source.expr, sink.expr, false);
+
+            if (source.subscripts.size() != sink.subscripts.size()) {
+                return Optional.of(assumed);
+            }
+
+            try {
+                DependenceSystem system = buildSystem(source, sink);
+                if (system == null) {
+                    return Optional.of(assumed);
+                }
+
+                Result result = system.solve();
+
+                if (result == Result.INDEPENDENT) {
+                    return Optional.empty();
+                }
+
+                boolean isProven = result == Result.DEPENDENT && system.isExact();
+                return Optional.of(new Dependence(source.array, kind, source.expr, sink.expr, isProven));
+            } catch (ArithmeticException e) {
+                return Optional.of(assumed);
+            }
+        }
+
+        /**
+         *
+         * @return the system whose solutions are the iterations where both accesses touch the same element, or null
+         *         if one of the accesses is not affine
+         */
+        private DependenceSystem buildSystem(ArrayAccess source, ArrayAccess sink) {
+            DependenceSystem system = new DependenceSystem();
+
+            // The sink executes 'd + 1' iterations after the source
+            AffineExpr sourceCounter = AffineExpr.variable(OUTER_COUNTER);
+            AffineExpr sinkCounter = sourceCounter.add(AffineExpr.variable(DISTANCE)).add(AffineExpr.constant(1));
+            system.addInequality(AffineExpr.variable(DISTANCE));
+
+            Map<String, AffineExpr> sourceBindings = bindLoops(source, sourceCounter, SOURCE_PREFIX, system);
+            Map<String, AffineExpr> sinkBindings = bindLoops(sink, sinkCounter, SINK_PREFIX, system);
+
+            if (sourceBindings == null || sinkBindings == null) {
+                return null;
+            }
+
+            for (int i = 0; i < source.subscripts.size(); i++) {
+                AffineExpr sourceSubscript = resolve(source.subscripts.get(i), sourceBindings);
+                AffineExpr sinkSubscript = resolve(sink.subscripts.get(i), sinkBindings);
+
+                if (sourceSubscript == null || sinkSubscript == null) {
+                    return null;
+                }
+
+                system.addEquality(sourceSubscript.add(sinkSubscript.negate()));
+            }
+
+            return system;
+        }
+
+        /**
+         * Expresses the iteration variables of the loops around the access in terms of iteration counters (i.e.,
+         * start + step * counter), and adds the bounds of the counters to the system.
+         *
+         * @return the values of the iteration variables, or null if the bounds of a loop are not affine
+         */
+        private Map<String, AffineExpr> bindLoops(ArrayAccess access, AffineExpr outerCounter, String prefix,
+                DependenceSystem system) {
+
+            Map<String, AffineExpr> bindings = new HashMap<>();
+
+            if (!bindLoop(loop, outerCounter, bindings, system)) {
+                return null;
+            }
+
+            for (int i = 0; i < access.innerLoops.size(); i++) {
+                if (!bindLoop(access.innerLoops.get(i), AffineExpr.variable(prefix + (i + 1)), bindings, system)) {
+                    return null;
+                }
+            }
+
+            return bindings;
+        }
+
+        private boolean bindLoop(AffineLoop affineLoop, AffineExpr counter, Map<String, AffineExpr> bindings,
+                DependenceSystem system) {
+
+            AffineExpr start = resolve(affineLoop.getStart(), bindings);
+            AffineExpr end = resolve(affineLoop.getEnd(), bindings);
+
+            if (start == null || end == null) {
+                return false;
+            }
+
+            AffineExpr value = start.add(counter.multiply(affineLoop.getStep()));
+
+            // counter >= 0, and value does not go past the end
+            system.addInequality(counter);
+            system.addInequality(affineLoop.getStep() > 0 ? end.add(value.negate()) : value.add(end.negate()));
+
+            bindings.put(affineLoop.getVariable(), value);
+
+            return true;
+        }
+
+        /**
+         * Replaces the iteration variables with their values, and the other variables with symbols that have the same
+         * value for both accesses.
+         *
+         * @return the resolved expression, or null if the expression uses a variable that can change inside the loop
+         */
+        private AffineExpr resolve(AffineExpr expr, Map<String, AffineExpr> bindings) {
+            if (expr == null) {
+                return null;
+            }
+
+            AffineExpr resolved = AffineExpr.constant(expr.getConstant());
+
+            for (String variable : expr.getVariables()) {
+                AffineExpr value = bindings.get(variable);
+
+                if (value == null) {
+                    if (modifiedNames.contains(variable)) {
+                        return null;
+                    }
+
+                    value = AffineExpr.variable(SYMBOL_PREFIX + variable);
+                }
+
+                resolved = resolved.add(value.multiply(expr.getCoefficient(variable)));
+            }
+
+            return resolved;
+        }
+    }
+}
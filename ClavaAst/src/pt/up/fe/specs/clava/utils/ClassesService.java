@@ -15,9 +15,9 @@ package pt.up.fe.specs.clava.utils;
 
 import java.lang.reflect.Constructor;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import org.suikasoft.jOptions.Interfaces.DataStore;
@@ -38,7 +38,8 @@ public class ClassesService {
 
     public ClassesService(CustomClassnameMapper customClassMap) {
         this.customClassMap = customClassMap;
-        this.autoClassMap = new HashMap<>();
+        // Shared between parsing threads, through the static instance
+        this.autoClassMap = new ConcurrentHashMap<>();
     }
 
     public ClassesService() {
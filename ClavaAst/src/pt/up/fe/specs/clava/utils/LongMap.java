@@ -0,0 +1,127 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.utils;
+
+/**
+ * Map with primitive long keys, implemented with open addressing and linear probing.
+ *
+ * <p>
+ * Keys are not boxed and there is no object per entry. Null values are not supported, and entries cannot be removed
+ * (values can be replaced instead). Not thread-safe for writes, concurrent reads are safe when there are no writes.
+ *
+ * @author JoaoBispo
+ *
+ * @param <V>
+ */
+public class LongMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public LongMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+
+        init(capacity);
+    }
+
+    private void init(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.size = 0;
+        this.mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = index(key);
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return (V) values[index];
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @return the previous value associated with the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("LongMap does not support null values");
+        }
+
+        int index = index(key);
+
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previousValue = (V) values[index];
+                values[index] = value;
+                return previousValue;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        size++;
+
+        if (size > values.length * MAX_LOAD) {
+            resize();
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        long[] previousKeys = keys;
+        Object[] previousValues = values;
+
+        init(previousValues.length * 2);
+
+        for (int i = 0; i < previousValues.length; i++) {
+            if (previousValues[i] != null) {
+                put(previousKeys[i], (V) previousValues[i]);
+            }
+        }
+    }
+
+    private int index(long key) {
+        // Keys might not be well distributed in the lower bits
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,551 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.suikasoft.jOptions.Datakey.DataKey;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ClavaNodes;
+import pt.up.fe.specs.clava.ast.decl.CXXRecordDecl;
+import pt.up.fe.specs.clava.ast.decl.Decl;
+import pt.up.fe.specs.clava.ast.decl.FunctionDecl;
+import pt.up.fe.specs.clava.ast.decl.NamedDecl;
+import pt.up.fe.specs.clava.ast.expr.CallExpr;
+import pt.up.fe.specs.clava.ast.extra.App;
+
+/**
+ * Index of the nodes of an App, by id, of FunctionDecl and CXXRecordDecl nodes, by name, of CallExpr nodes, by the
+ * name of the called function, and of the nodes that reference a declaration in their fields, by declaration.
+ * References through nodes that are not part of the tree (e.g., the declaration of a record type) are attributed to
+ * the node of the tree that has them in its fields.
+ *
+ * <p>
+ * The index is built the first time it is queried, and afterwards is updated by the tree modification methods of
+ * ClavaNode. Adding a node that is already indexed has no effect. Modifications in place of nodes that are not part
+ * of the tree are not tracked, and must clear the index.
+ *
+ * <p>
+ * Queries return the nodes in the order of a pre-order traversal of the App, independently of the order in which they
+ * were indexed.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class NodeIndex {
+
+    private final App app;
+
+    private final Map<String, NodeSet<ClavaNode>> idToNodes;
+    private final Map<String, NodeSet<FunctionDecl>> nameToFunctions;
+    private final Map<String, NodeSet<CXXRecordDecl>> nameToRecords;
+    private final Map<String, NodeSet<CallExpr>> calleeNameToCalls;
+    private final Map<Decl, NodeSet<ClavaNode>> declToReferences;
+
+    // Declarations reached through the fields of nodes that are not part of the tree, computed once per node
+    private final Map<ClavaNode, List<Decl>> outOfTreeDecls;
+
+    private boolean isBuilt;
+
+    public NodeIndex(App app) {
+        this.app = app;
+
+        this.idToNodes = new HashMap<>();
+        this.nameToFunctions = new HashMap<>();
+        this.nameToRecords = new HashMap<>();
+        this.calleeNameToCalls = new HashMap<>();
+        this.declToReferences = new IdentityHashMap<>();
+        this.outOfTreeDecls = new IdentityHashMap<>();
+
+        this.isBuilt = false;
+    }
+
+    /**
+     *
+     * @param key
+     * @return true if changing the value of the given key changes the position of the node in the index
+     */
+    public static boolean isIndexedKey(DataKey<?> key) {
+        return key == ClavaNode.ID || key == NamedDecl.DECL_NAME || key == CallExpr.DIRECT_CALLEE
+                || isReferenceKey(key);
+    }
+
+    /**
+     * 
+     * @param key
+     * @return true if the values of the key can be declarations
+     */
+    private static boolean isReferenceKey(DataKey<?> key) {
+        Class<?> valueClass = key.getValueClass();
+
+        return ClavaNode.class.isAssignableFrom(valueClass) || Optional.class.isAssignableFrom(valueClass)
+                || List.class.isAssignableFrom(valueClass);
+    }
+
+    /**
+     * Discards the current index, which will be built again in the next query.
+     */
+    public void clear() {
+        idToNodes.clear();
+        nameToFunctions.clear();
+        nameToRecords.clear();
+        calleeNameToCalls.clear();
+        declToReferences.clear();
+        outOfTreeDecls.clear();
+
+        isBuilt = false;
+    }
+
+    /**
+     * Adds the given node and its descendants to the index. Does nothing if the index has not been built yet.
+     *
+     * @param node
+     */
+    public void add(ClavaNode node) {
+        if (!isBuilt) {
+            return;
+        }
+
+        node.getDescendantsAndSelfStream().forEach(this::addNode);
+    }
+
+    /**
+     * Removes the given node and its descendants from the index. Does nothing if the index has not been built yet.
+     *
+     * @param node
+     */
+    public void remove(ClavaNode node) {
+        if (!isBuilt) {
+            return;
+        }
+
+        node.getDescendantsAndSelfStream().forEach(this::removeNode);
+    }
+
+    /**
+     * Updates the position of a single node in the index, after one of its indexed keys changed.
+     *
+     * @param node
+     * @param key
+     * @param previousValue
+     */
+    public void update(ClavaNode node, DataKey<?> key, Object previousValue) {
+        if (!isBuilt) {
+            return;
+        }
+
+        if (isReferenceKey(key)) {
+            getReferencedDecls(previousValue).forEach(decl -> remove(declToReferences, decl, node));
+
+            // Other keys of the node can reference the same declarations
+            addReferences(node);
+        }
+
+        if (key == ClavaNode.ID) {
+            remove(idToNodes, (String) previousValue, node);
+        } else if (key == NamedDecl.DECL_NAME) {
+            if (node instanceof FunctionDecl) {
+                remove(nameToFunctions, (String) previousValue, (FunctionDecl) node);
+            }
+
+            if (node instanceof CXXRecordDecl) {
+                remove(nameToRecords, (String) previousValue, (CXXRecordDecl) node);
+            }
+
+            // Calls are indexed by the name of the function they call
+            if (node instanceof FunctionDecl) {
+                NodeSet<CallExpr> calls = calleeNameToCalls.remove((String) previousValue);
+                if (calls != null) {
+                    calls.getNodes().forEach(call -> add(calleeNameToCalls, getCalleeName(call), call));
+                }
+            }
+        } else if (key == CallExpr.DIRECT_CALLEE) {
+            remove(calleeNameToCalls, getDirectCalleeName(previousValue), (CallExpr) node);
+        } else {
+            return;
+        }
+
+        addNode(node);
+    }
+
+    /**
+     *
+     * @param id
+     * @return the nodes with the given id
+     */
+    public List<ClavaNode> getNodes(String id) {
+        build();
+        return toList(idToNodes.get(id));
+    }
+
+    /**
+     *
+     * @param declName
+     * @return the FunctionDecl nodes with the given name
+     */
+    public List<FunctionDecl> getFunctions(String declName) {
+        build();
+        return toList(nameToFunctions.get(declName));
+    }
+
+    /**
+     *
+     * @param declName
+     * @return the CXXRecordDecl nodes with the given name
+     */
+    public List<CXXRecordDecl> getRecords(String declName) {
+        build();
+        return toList(nameToRecords.get(declName));
+    }
+
+    /**
+     *
+     * @param calleeName
+     * @return the CallExpr nodes that call a function with the given name
+     */
+    public List<CallExpr> getCalls(String calleeName) {
+        build();
+        return toList(calleeNameToCalls.get(calleeName));
+    }
+
+    /**
+     *
+     * @param decl
+     * @return the nodes of the App that reference the given declaration in their fields
+     */
+    public List<ClavaNode> getReferences(Decl decl) {
+        build();
+        return toList(declToReferences.get(decl));
+    }
+
+    /**
+     * Does not build the index, if it was not built yet.
+     *
+     * @param decl
+     * @return the nodes of the App that reference the given declaration in their fields, or empty if the index has not
+     *         been built yet
+     */
+    public Optional<List<ClavaNode>> getReferencesTry(Decl decl) {
+        if (!isBuilt) {
+            return Optional.empty();
+        }
+
+        return Optional.of(toList(declToReferences.get(decl)));
+    }
+
+    private void build() {
+        if (isBuilt) {
+            return;
+        }
+
+        isBuilt = true;
+        add(app);
+    }
+
+    private void addNode(ClavaNode node) {
+        add(idToNodes, node.getId(), node);
+
+        if (node instanceof FunctionDecl) {
+            FunctionDecl functionDecl = (FunctionDecl) node;
+            add(nameToFunctions, functionDecl.getDeclName(), functionDecl);
+        }
+
+        if (node instanceof CXXRecordDecl) {
+            CXXRecordDecl recordDecl = (CXXRecordDecl) node;
+            add(nameToRecords, recordDecl.getDeclName(), recordDecl);
+        }
+
+        if (node instanceof CallExpr) {
+            CallExpr call = (CallExpr) node;
+            add(calleeNameToCalls, getCalleeName(call), call);
+        }
+
+        addReferences(node);
+    }
+
+    private void addReferences(ClavaNode node) {
+        for (DataKey<?> key : node.getKeysWithNodes()) {
+            getReferencedDecls(node.get(key)).forEach(decl -> add(declToReferences, decl, node));
+        }
+    }
+
+    private void removeNode(ClavaNode node) {
+        remove(idToNodes, node.getId(), node);
+
+        if (node instanceof FunctionDecl) {
+            FunctionDecl functionDecl = (FunctionDecl) node;
+            remove(nameToFunctions, functionDecl.getDeclName(), functionDecl);
+        }
+
+        if (node instanceof CXXRecordDecl) {
+            CXXRecordDecl recordDecl = (CXXRecordDecl) node;
+            remove(nameToRecords, recordDecl.getDeclName(), recordDecl);
+        }
+
+        if (node instanceof CallExpr) {
+            CallExpr call = (CallExpr) node;
+            remove(calleeNameToCalls, getCalleeName(call), call);
+        }
+
+        for (DataKey<?> key : node.getKeysWithNodes()) {
+            getReferencedDecls(node.get(key)).forEach(decl -> remove(declToReferences, decl, node));
+        }
+    }
+
+    /**
+     *
+     * @param value
+     *            the value of a key, or null
+     * @return the declarations in the value, and the declarations reached through the nodes of the value that are not
+     *         part of the tree
+     */
+    private List<Decl> getReferencedDecls(Object value) {
+        List<ClavaNode> nodes = getNodes(value);
+        if (nodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Decl> decls = new ArrayList<>();
+        for (ClavaNode node : nodes) {
+            if (node instanceof Decl) {
+                decls.add((Decl) node);
+            } else if (isOutOfTree(node)) {
+                decls.addAll(getOutOfTreeDecls(node));
+            }
+        }
+
+        return decls;
+    }
+
+    private List<Decl> getOutOfTreeDecls(ClavaNode node) {
+        List<Decl> decls = outOfTreeDecls.get(node);
+        if (decls != null) {
+            return decls;
+        }
+
+        // Breaks cycles between nodes that are not part of the tree
+        outOfTreeDecls.put(node, Collections.emptyList());
+
+        List<ClavaNode> fields = new ArrayList<>(node.getChildren());
+        for (DataKey<?> key : node.getKeysWithNodes()) {
+            fields.addAll(getNodes(node.get(key)));
+        }
+
+        Map<Decl, Decl> reachedDecls = new IdentityHashMap<>();
+        for (ClavaNode field : fields) {
+            if (field instanceof Decl) {
+                reachedDecls.put((Decl) field, (Decl) field);
+            } else if (isOutOfTree(field)) {
+                getOutOfTreeDecls(field).forEach(decl -> reachedDecls.put(decl, decl));
+            }
+        }
+
+        decls = reachedDecls.isEmpty() ? Collections.emptyList() : new ArrayList<>(reachedDecls.keySet());
+        outOfTreeDecls.put(node, decls);
+
+        return decls;
+    }
+
+    private static boolean isOutOfTree(ClavaNode node) {
+        return !node.hasParent() && !(node instanceof App);
+    }
+
+    /**
+     *
+     * @param value
+     *            the value of a key, or null
+     * @return the nodes in the value, which can be a node, an Optional or a List
+     */
+    private static List<ClavaNode> getNodes(Object value) {
+        if (value instanceof ClavaNode) {
+            return Arrays.asList((ClavaNode) value);
+        }
+
+        if (value instanceof Optional) {
+            return getNodes(((Optional<?>) value).orElse(null));
+        }
+
+        if (value instanceof List) {
+            List<ClavaNode> nodes = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                if (element instanceof ClavaNode) {
+                    nodes.add((ClavaNode) element);
+                }
+            }
+
+            return nodes;
+        }
+
+        return Collections.emptyList();
+    }
+
+    private static String getCalleeName(CallExpr call) {
+        return call.getFunctionDecl().map(FunctionDecl::getDeclName).orElse(null);
+    }
+
+    /**
+     *
+     * @param directCallee
+     *            a value of the key CallExpr.DIRECT_CALLEE, or null
+     * @return the name of the function, or null if there is no function
+     */
+    private static String getDirectCalleeName(Object directCallee) {
+        if (!(directCallee instanceof Optional)) {
+            return null;
+        }
+
+        return ((Optional<?>) directCallee)
+                .filter(FunctionDecl.class::isInstance)
+                .map(decl -> ClavaNodes.normalizeDecl((FunctionDecl) decl))
+                .map(decl -> ((FunctionDecl) decl).getDeclName())
+                .orElse(null);
+    }
+
+    private static <T extends ClavaNode> List<T> toList(NodeSet<T> nodes) {
+        if (nodes == null) {
+            return Collections.emptyList();
+        }
+
+        List<T> list = new ArrayList<>(nodes.getNodes());
+
+        // Nodes added after the index was built are at the end of the set
+        if (list.size() > 1) {
+            Map<ClavaNode, int[]> paths = new IdentityHashMap<>();
+            list.forEach(node -> paths.put(node, getTreePath(node)));
+            list.sort((node1, node2) -> comparePaths(paths.get(node1), paths.get(node2)));
+        }
+
+        return list;
+    }
+
+    /**
+     *
+     * @param node
+     * @return the index of each node in the path from the root to the given node, in its parent
+     */
+    private static int[] getTreePath(ClavaNode node) {
+        int depth = 0;
+        for (ClavaNode current = node; current.hasParent(); current = current.getParent()) {
+            depth++;
+        }
+
+        int[] path = new int[depth];
+        ClavaNode current = node;
+        for (int i = depth - 1; i >= 0; i--) {
+            path[i] = current.indexOfSelf();
+            current = current.getParent();
+        }
+
+        return path;
+    }
+
+    private static int comparePaths(int[] path1, int[] path2) {
+        int length = Math.min(path1.length, path2.length);
+        for (int i = 0; i < length; i++) {
+            if (path1[i] != path2[i]) {
+                return Integer.compare(path1[i], path2[i]);
+            }
+        }
+
+        // Ancestors come before their descendants
+        return Integer.compare(path1.length, path2.length);
+    }
+
+    private static <K, T extends ClavaNode> void add(Map<K, NodeSet<T>> index, K key, T node) {
+        if (key == null || "".equals(key)) {
+            return;
+        }
+
+        index.computeIfAbsent(key, k -> new NodeSet<>()).add(node);
+    }
+
+    private static <K, T extends ClavaNode> void remove(Map<K, NodeSet<T>> index, K key, T node) {
+        if (key == null) {
+            return;
+        }
+
+        NodeSet<T> nodes = index.get(key);
+        if (nodes == null) {
+            return;
+        }
+
+        nodes.remove(node);
+
+        if (nodes.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Nodes of an entry of the index, compared by identity and kept in the order they were added.
+     *
+     * @param <T>
+     */
+    private static class NodeSet<T extends ClavaNode> {
+
+        private final Map<NodeKey, T> nodes;
+
+        public NodeSet() {
+            this.nodes = new LinkedHashMap<>(2);
+        }
+
+        public void add(T node) {
+            nodes.putIfAbsent(new NodeKey(node), node);
+        }
+
+        public void remove(T node) {
+            nodes.remove(new NodeKey(node));
+        }
+
+        public boolean isEmpty() {
+            return nodes.isEmpty();
+        }
+
+        public Collection<T> getNodes() {
+            return nodes.values();
+        }
+    }
+
+    /**
+     * Compares nodes by identity.
+     */
+    private static final class NodeKey {
+
+        private final ClavaNode node;
+
+        public NodeKey(ClavaNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(node);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof NodeKey && ((NodeKey) obj).node == node;
+        }
+    }
+}
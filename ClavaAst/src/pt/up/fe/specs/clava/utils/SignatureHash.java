@@ -0,0 +1,149 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.utils;
+
+import java.io.File;
+
+import pt.up.fe.specs.clava.SourceLocation;
+import pt.up.fe.specs.clava.SourceRange;
+import pt.up.fe.specs.util.providers.StringProvider;
+
+/**
+ * Incremental 64-bit hash of node signatures, computed without building the signature string.
+ *
+ * <p>
+ * Values that have the same string representation in a signature have the same hash (e.g., source ranges only
+ * consider the name of the file, as in {@link SourceRange#toString()}).
+ *
+ * @author JoaoBispo
+ *
+ */
+public class SignatureHash {
+
+    public static final long SEED = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private static final long SEPARATOR = 0x5f;
+    private static final int INVALID_RANGE = 0x1;
+    private static final int SAME_FILE_END = 0x2;
+    private static final int OTHER_FILE_END = 0x3;
+
+    private SignatureHash() {
+    }
+
+    public static long add(long hash, CharSequence string) {
+        return add(hash, string, 0);
+    }
+
+    public static long add(long hash, int value) {
+        hash = (hash ^ value) * PRIME;
+        return separator(hash);
+    }
+
+    public static long add(long hash, boolean value) {
+        return add(hash, value ? 1 : 0);
+    }
+
+    /**
+     * Adds a value of a signature key.
+     *
+     * @param hash
+     * @param value
+     * @return
+     */
+    public static long add(long hash, Object value) {
+        if (value instanceof SourceRange) {
+            return add(hash, (SourceRange) value);
+        }
+
+        if (value instanceof StringProvider) {
+            return add(hash, ((StringProvider) value).getString());
+        }
+
+        if (value instanceof CharSequence) {
+            return add(hash, (CharSequence) value);
+        }
+
+        return add(hash, value.toString());
+    }
+
+    public static long add(long hash, SourceRange range) {
+        if (!range.isValid()) {
+            return add(hash, INVALID_RANGE);
+        }
+
+        SourceLocation start = range.getStart();
+        SourceLocation end = range.getEnd();
+
+        hash = add(hash, start);
+
+        if (start.equals(end)) {
+            return hash;
+        }
+
+        if (start.getFilepath() != null && start.getFilepath().equals(end.getFilepath())) {
+            hash = add(hash, SAME_FILE_END);
+            hash = add(hash, end.getLine());
+            return add(hash, end.getColumn());
+        }
+
+        hash = add(hash, OTHER_FILE_END);
+        return add(hash, end);
+    }
+
+    /**
+     * Final mixing step, should be applied once after all values have been added.
+     *
+     * @param hash
+     * @return
+     */
+    public static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    private static long add(long hash, SourceLocation location) {
+        String filepath = location.getFilepath();
+
+        // Only the name of the file
+        if (filepath == null) {
+            hash = add(hash, INVALID_RANGE);
+        } else {
+            int nameStart = Math.max(filepath.lastIndexOf('/'), filepath.lastIndexOf(File.separatorChar)) + 1;
+            hash = add(hash, filepath, nameStart);
+        }
+
+        hash = add(hash, location.getLine());
+        hash = add(hash, location.getColumn());
+        return add(hash, location.isMacro());
+    }
+
+    private static long add(long hash, CharSequence string, int startIndex) {
+        for (int i = startIndex; i < string.length(); i++) {
+            hash = (hash ^ string.charAt(i)) * PRIME;
+        }
+
+        return separator(hash);
+    }
+
+    private static long separator(long hash) {
+        return (hash ^ SEPARATOR) * PRIME;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.utils;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Map with weakly referenced keys, which are compared by identity (==) instead of equals().
+ *
+ * <p>
+ * Unlike WeakHashMap, keys that override equals()/hashCode() (e.g., types) are never merged, and keys whose hash
+ * changes while they are in the map can still be found. An entry is removed once its key is no longer reachable.
+ * Values that strongly reference their own key keep the entry alive.
+ *
+ * <p>
+ * Not thread-safe.
+ *
+ * @author JoaoBispo
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class WeakIdentityMap<K, V> {
+
+    private final Map<IdentityKey, V> map;
+    private final ReferenceQueue<Object> queue;
+
+    public WeakIdentityMap() {
+        this.map = new HashMap<>();
+        this.queue = new ReferenceQueue<>();
+    }
+
+    public V get(K key) {
+        expunge();
+        return map.get(new LookupKey(key));
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @return the previous value associated with the key, or null if there was none
+     */
+    public V put(K key, V value) {
+        expunge();
+        return map.put(new WeakKey(key, queue), value);
+    }
+
+    /**
+     *
+     * @param key
+     * @return the value that was associated with the key, or null if there was none
+     */
+    public V remove(K key) {
+        expunge();
+        return map.remove(new LookupKey(key));
+    }
+
+    public boolean isEmpty() {
+        expunge();
+        return map.isEmpty();
+    }
+
+    public int size() {
+        expunge();
+        return map.size();
+    }
+
+    /**
+     *
+     * @return the entries whose keys are still reachable, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public List<Entry<K, V>> getEntries() {
+        expunge();
+
+        List<Entry<K, V>> entries = new ArrayList<>(map.size());
+        for (Entry<IdentityKey, V> entry : map.entrySet()) {
+            Object key = entry.getKey().getReferent();
+
+            // Key was collected but not enqueued yet
+            if (key == null) {
+                continue;
+            }
+
+            entries.add(new SimpleImmutableEntry<>((K) key, entry.getValue()));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Removes the entries whose keys were collected.
+     */
+    private void expunge() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null) {
+            // Cleared keys are only equal to themselves
+            map.remove(reference);
+        }
+    }
+
+    private interface IdentityKey {
+        Object getReferent();
+    }
+
+    private static final class WeakKey extends WeakReference<Object> implements IdentityKey {
+
+        private final int hash;
+
+        public WeakKey(Object key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = System.identityHashCode(key);
+        }
+
+        @Override
+        public Object getReferent() {
+            return get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof IdentityKey)) {
+                return false;
+            }
+
+            Object referent = get();
+            return referent != null && referent == ((IdentityKey) obj).getReferent();
+        }
+    }
+
+    /**
+     * Key used for queries, avoids creating a weak reference on each access.
+     */
+    private static final class LookupKey implements IdentityKey {
+
+        private final Object key;
+
+        public LookupKey(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object getReferent() {
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IdentityKey && key == ((IdentityKey) obj).getReferent();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+int square(int a) {
+   return a * a;
+}
+
+int cube(int a) {
+   return a * square(a);
+}
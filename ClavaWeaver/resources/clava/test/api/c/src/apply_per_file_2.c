@@ -0,0 +1,10 @@
+int square(int a);
+int cube(int a);
+
+int sum(int a, int b) {
+   return a + b;
+}
+
+int main() {
+   return sum(square(2), cube(3));
+}
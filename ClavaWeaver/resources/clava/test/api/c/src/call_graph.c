@@ -0,0 +1,17 @@
+void leaf() {
+}
+
+void helper() {
+	leaf();
+}
+
+void other() {
+	int x = 0;
+}
+
+int main() {
+	helper();
+	leaf();
+
+	return 0;
+}
@@ -0,0 +1,8 @@
+int foo(int a) {
+   return a + 1;
+}
+
+int bar() {
+   int b = foo(1);
+   return b;
+}
@@ -0,0 +1,7 @@
+int foo(int a);
+
+int baz() {
+   return foo(2);
+}
+
+float *p;
@@ -0,0 +1,49 @@
+int foo(int a, int b) {
+	int result = 0;
+
+	// Comment before nested scopes
+	{
+		int x = a;
+		{
+			/**
+			 * Comment with
+			 * several lines
+			 */
+			int y = b; // Inline comment
+			result = x + y;
+		}
+	}
+
+	#pragma custom outer
+	for(int i = 0; i < a; i++) {
+		#pragma custom inner
+		for(int j = 0; j < b; j++) {
+			result += i * j;
+		}
+	}
+
+	// Else-if chain
+	if(a > b) {
+		result = 1;
+	} else if(a < b) {
+		result = 2;
+	} else if(a == 0) {
+		if(b == 0) {
+			result = 3;
+		} else {
+			result = 4;
+		}
+	} else {
+		result = 5;
+	}
+
+	while(result > 10) {
+		result--;
+	}
+
+	do {
+		result++;
+	} while(result < 0);
+
+	return result;
+}
@@ -0,0 +1,4 @@
+int inc(int a) {
+   int b = a + 1;
+   return b;
+}
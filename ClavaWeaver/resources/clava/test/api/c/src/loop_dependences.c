@@ -0,0 +1,65 @@
+int foo(int x);
+double fabs(double x);
+
+void parallel_copy() {
+	int i;
+	int a[100], b[100];
+
+	for(i = 0; i < 100; i++) {
+		a[i] = b[i];
+	}
+}
+
+void carried() {
+	int a[100];
+
+	for(int i = 1; i < 100; i++) {
+		a[i] = a[i - 1];
+	}
+}
+
+void scalar_write() {
+	int a[100];
+	int sum = 0;
+
+	for(int i = 0; i < 100; i++) {
+		sum += a[i];
+	}
+}
+
+void private_scalar() {
+	int a[100], b[100];
+
+	for(int i = 0; i < 100; i++) {
+		int tmp = b[i];
+		a[i] = tmp * 2;
+	}
+}
+
+void unknown_call() {
+	int a[100], b[100];
+
+	for(int i = 0; i < 100; i++) {
+		a[i] = foo(b[i]);
+	}
+}
+
+void pure_call() {
+	double a[100], b[100];
+
+	for(int i = 0; i < 100; i++) {
+		a[i] = fabs(b[i]);
+	}
+}
+
+void may_alias(float *p, float *q, int n) {
+	for(int i = 0; i < n; i++) {
+		p[i] = q[i];
+	}
+}
+
+void pointer_write(int *p) {
+	for(int i = 0; i < 100; i++) {
+		*p = i;
+	}
+}
@@ -18,10 +18,7 @@ import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 
@@ -43,7 +40,7 @@ public class ClavaWeaverData {
 
     // Parsed program state
     // private final Deque<App> apps;
-    private final Deque<Map<ClavaNode, Map<String, Object>>> userValuesStack;
+    private final Deque<UserFields> userValuesStack;
     private final Set<File> manuallyWrittenFiles;
     private Collection<File> generatedFiles;
     private ClavaContext context;
@@ -106,8 +103,7 @@ public class ClavaWeaverData {
         // apps.push(app);
 
         // Preserve previous user values
-        Map<ClavaNode, Map<String, Object>> userValuesCopy = getUserValuesCopy(app, previousApp.orElse(null),
-                userValuesStack.peek());
+        UserFields userValuesCopy = getUserValuesCopy(app, previousApp.orElse(null), userValuesStack.peek());
 
         userValuesStack.push(userValuesCopy);
 
@@ -122,43 +118,28 @@ public class ClavaWeaverData {
 
     }
 
-    public Map<ClavaNode, Map<String, Object>> getUserValues() {
+    public UserFields getUserValues() {
         return userValuesStack.peek();
     }
 
-    private Map<ClavaNode, Map<String, Object>> getUserValuesCopy(App app, App previousApp,
-            Map<ClavaNode, Map<String, Object>> userValues) {
+    private UserFields getUserValuesCopy(App app, App previousApp, UserFields userValues) {
 
         // When there are no user values
         if (userValues == null || userValues.isEmpty()) {
-            return new HashMap<>();
+            return new UserFields();
         }
 
-        Map<ClavaNode, Map<String, Object>> userValuesCopy = new HashMap<>();
-
-        // For each entry in the table, map the previous node to the current node and copy the object
-        for (Entry<ClavaNode, Map<String, Object>> entry : userValues.entrySet()) {
-            // Get node of the previous tree
-            ClavaNode previousNode = entry.getKey();
-
+        // Map the previous node to the current node and copy the values
+        return userValues.copy(previousNode -> {
             // Get corresponding node of the new tree
             ClavaNode newNode = getNewNode(app, previousNode);
             if (newNode == null) {
                 ClavaLog.warning(
                         "Could not preserve user field for node at location '" + previousNode.getLocation() + "'");
-                continue;
             }
 
-            // Serialize value
-            // Map<String, Object> valueCopy = XStreamUtils.copy(entry.getValue());
-
-            // Add to map
-            // userValuesCopy.put(newNode, valueCopy);
-            userValuesCopy.put(newNode, entry.getValue());
-        }
-
-        return userValuesCopy;
-        // return userValuesStack.isEmpty() ? new HashMap<>() : XStreamUtils.copy(userValuesStack.peek());
+            return newNode;
+        });
     }
 
     private ClavaNode getNewNode(App app, ClavaNode previousNode) {
@@ -13,7 +13,9 @@
 
 package pt.up.fe.specs.clava.weaver;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import pt.up.fe.specs.clang.clava.lara.LaraMarkerPragma;
 import pt.up.fe.specs.clang.clava.lara.LaraTagPragma;
@@ -259,8 +261,49 @@ public class CxxJoinpoints {
         return new GenericJoinpoint(node);
     }
 
+    /**
+     * For each class of ClavaNode, the join point types the join point of the class is an instance of. The join point
+     * of a node only depends on its class, except for records.
+     */
+    private static final Map<Class<? extends ClavaNode>, Map<String, Boolean>> INSTANCE_OF_CACHE = new ConcurrentHashMap<>();
+
     public static ACxxWeaverJoinPoint create(ClavaNode node) {
-        return JOINPOINT_FACTORY.apply(node);
+        // The class map is not thread-safe, and join points can be created concurrently by the parallel search of join points
+        synchronized (JOINPOINT_FACTORY) {
+            return JOINPOINT_FACTORY.apply(node);
+        }
+    }
+
+    /**
+     * Equivalent to create(node).instanceOf(type), but only creates a join point the first time a class of nodes is
+     * tested against a type.
+     *
+     * @param node
+     * @param type
+     * @return true if the join point of the node is an instance of the given type, false otherwise or if the node has
+     *         no join point
+     */
+    public static boolean instanceOf(ClavaNode node, String type) {
+        // The join point of records depends on the kind of the record
+        if (node instanceof RecordDecl) {
+            return instanceOfPrivate(node, type);
+        }
+
+        Map<String, Boolean> types = INSTANCE_OF_CACHE.computeIfAbsent(node.getClass(),
+                nodeClass -> new ConcurrentHashMap<>());
+
+        Boolean isInstance = types.get(type);
+        if (isInstance == null) {
+            isInstance = instanceOfPrivate(node, type);
+            types.put(type, isInstance);
+        }
+
+        return isInstance;
+    }
+
+    private static boolean instanceOfPrivate(ClavaNode node, String type) {
+        ACxxWeaverJoinPoint joinPoint = create(node);
+        return joinPoint != null && joinPoint.instanceOf(type);
     }
 
     public static <T extends AJoinPoint> T create(ClavaNode node, Class<T> targetClass) {
@@ -38,11 +38,13 @@ import pt.up.fe.specs.clava.ClavaLog;
 import pt.up.fe.specs.clava.ClavaNode;
 import pt.up.fe.specs.clava.ClavaOptions;
 import pt.up.fe.specs.clava.Include;
+import pt.up.fe.specs.clava.ast.decl.Decl;
 import pt.up.fe.specs.clava.ast.extra.App;
 import pt.up.fe.specs.clava.ast.extra.TranslationUnit;
 import pt.up.fe.specs.clava.context.ClavaContext;
 import pt.up.fe.specs.clava.context.ClavaFactory;
 import pt.up.fe.specs.clava.language.Standard;
+import pt.up.fe.specs.clava.utils.NodeIndex;
 import pt.up.fe.specs.clava.utils.SourceType;
 import pt.up.fe.specs.clava.weaver.abstracts.weaver.ACxxWeaver;
 import pt.up.fe.specs.clava.weaver.gears.InsideApplyGear;
@@ -67,6 +69,7 @@ import pt.up.fe.specs.util.csv.CsvWriter;
 import pt.up.fe.specs.util.lazy.Lazy;
 import pt.up.fe.specs.util.parsing.arguments.ArgumentsParser;
 import pt.up.fe.specs.util.providers.ResourceProvider;
+import pt.up.fe.specs.util.treenode.NodeInsertUtils;
 import pt.up.fe.specs.util.utilities.Buffer;
 import pt.up.fe.specs.util.utilities.LineStream;
 import pt.up.fe.specs.util.utilities.ProgressCounter;
@@ -191,6 +194,9 @@ public class CxxWeaver extends ACxxWeaver {
     private final ModifiedFilesGear modifiedFilesGear;
     private final InsideApplyGear insideApplyGear;
 
+    // Per-file application of actions
+    private final PerFileApply perFileApply;
+
     // Parsed program state
     // private Deque<App> apps;
     // private Deque<Map<ClavaNode, Map<String, Object>>> userValuesStack;
@@ -220,11 +226,17 @@ public class CxxWeaver extends ACxxWeaver {
 
     private final ClavaMetrics metrics;
 
+    // Folder with the code of the last incremental rebuild, and the App that was parsed from it
+    private File incrementalRebuildFolder;
+    private App incrementalRebuildApp;
+
     public CxxWeaver() {
         // Gears
         this.modifiedFilesGear = new ModifiedFilesGear();
         this.insideApplyGear = new InsideApplyGear();
 
+        this.perFileApply = new PerFileApply(this);
+
         context = new ClavaContext();
 
         // Weaver configuration
@@ -250,12 +262,19 @@ public class CxxWeaver extends ACxxWeaver {
 
         metrics = new ClavaMetrics();
         this.setWeaverProfiler(metrics);
+
+        incrementalRebuildFolder = null;
+        incrementalRebuildApp = null;
     }
 
     public WeavingReport getWeavingReport() {
         return metrics.getReport();
     }
 
+    public PerFileApply getPerFileApply() {
+        return perFileApply;
+    }
+
     public ClavaWeaverData getWeaverData() {
         return weaverData;
     }
@@ -287,7 +306,7 @@ public class CxxWeaver extends ACxxWeaver {
         return CxxJoinpoints.programFactory(getApp());
     }
 
-    private Map<ClavaNode, Map<String, Object>> getUserValues() {
+    private UserFields getUserValues() {
         return weaverData.getUserValues();
         // return userValuesStack.peek();
     }
@@ -525,6 +544,10 @@ public class CxxWeaver extends ACxxWeaver {
     private void reset() {
         // Reset gears
         modifiedFilesGear.reset();
+
+        // Reset incremental rebuild state
+        incrementalRebuildFolder = null;
+        incrementalRebuildApp = null;
     }
 
     public List<String> getUserFlags() {
@@ -694,6 +717,21 @@ public class CxxWeaver extends ACxxWeaver {
      * @return
      */
     public App createApp(List<File> sources, List<String> parserOptions, List<String> extraOptions) {
+        return createApp(sources, parserOptions, extraOptions, Collections.emptyList());
+    }
+
+    /**
+     *
+     * @param sources
+     * @param parserOptions
+     * @param extraOptions
+     * @param baseTUnits
+     *            translation units that were parsed previously and that the new translation units can refer to (e.g.,
+     *            during an incremental rebuild)
+     * @return
+     */
+    private App createApp(List<File> sources, List<String> parserOptions, List<String> extraOptions,
+            List<TranslationUnit> baseTUnits) {
         ClavaLog.debug(() -> "Creating App from the following sources: " + sources);
         ClavaLog.debug(() -> "Creating App using the following options: " + parserOptions);
         ClavaLog.debug(() -> "Creating App using the following extra options: " + extraOptions);
@@ -764,6 +802,15 @@ public class CxxWeaver extends ACxxWeaver {
         codeParser.set(ParallelCodeParser.CONTINUE_ON_PARSING_ERRORS,
                 getConfig().get(ParallelCodeParser.CONTINUE_ON_PARSING_ERRORS));
         codeParser.set(ClangAstKeys.USE_PLATFORM_INCLUDES, getConfig().get(ClangAstKeys.USE_PLATFORM_INCLUDES));
+        codeParser.set(ParallelCodeParser.PARSING_CACHE_FOLDER,
+                getConfig().get(ParallelCodeParser.PARSING_CACHE_FOLDER));
+        codeParser.set(ParallelCodeParser.PARSING_CACHE_MAX_ENTRIES,
+                getConfig().get(ParallelCodeParser.PARSING_CACHE_MAX_ENTRIES));
+        codeParser.set(ParallelCodeParser.PRECOMPILED_HEADER,
+                getConfig().get(ParallelCodeParser.PRECOMPILED_HEADER));
+        codeParser.set(ParallelCodeParser.DUMPER_WORKER_SOURCES,
+                getConfig().get(ParallelCodeParser.DUMPER_WORKER_SOURCES));
+        codeParser.set(ParallelCodeParser.BASE_TRANSLATION_UNITS, baseTUnits);
 
         List<String> allParserOptions = new ArrayList<>(parserOptions.size() + adaptedExtraOptions.size());
         allParserOptions.addAll(parserOptions);
@@ -1196,14 +1243,16 @@ public class CxxWeaver extends ACxxWeaver {
 
         Set<String> modifiedFilenames = getModifiedFilenames();
 
-        // Get files and contents to write
-        Map<File, String> files = getApp().getCode(outputFolder, modifiedFilenames);
+        App app = getApp();
+        boolean enableModifiedFilesFilter = app.isModifiedFilesFilterEnabled(modifiedFilenames);
+
+        // Code is generated one file at a time, instead of generating the code of all files first
+        Set<File> generatedFiles = new HashSet<>();
+        for (TranslationUnit tUnit : app.getTranslationUnits()) {
+            File destinationFile = tUnit.getDestinationFile(outputFolder);
+            generatedFiles.add(destinationFile);
 
-        // Write files that have changed
-        for (Entry<File, String> entry : files.entrySet()) {
-            File destinationFile = entry.getKey();
-            // System.out.println("DESTINATION FILE:" + destinationFile);
-            String code = entry.getValue();
+            String code = app.getTuCode(tUnit, enableModifiedFilesFilter, modifiedFilenames);
 
             // If file already exists, and is the same as the file that we are about to write, skip
             if (destinationFile.isFile() && areEqual(destinationFile, code)) {
@@ -1215,7 +1264,7 @@ public class CxxWeaver extends ACxxWeaver {
         }
 
         // Store which files were generated
-        weaverData.setGeneratedFiles(files.keySet());
+        weaverData.setGeneratedFiles(generatedFiles);
     }
 
     private Set<String> getModifiedFilenames() {
@@ -1393,14 +1442,20 @@ public class CxxWeaver extends ACxxWeaver {
     public void rebuildAst(boolean update) {
         // Check if inside apply
 
+        boolean incremental = update && args.get(CxxWeaverOption.INCREMENTAL_REBUILD);
+
+        // If incremental and the current App was already the result of an incremental rebuild, only re-parse what
+        // changed
+        if (incremental && getApp() == incrementalRebuildApp && rebuildAstIncremental()) {
+            return;
+        }
+
         // Write current tree to a temporary folder
-        File tempFolder = REBUILD_WEAVING_FOLDERS.get().next();
+        File tempFolder = incremental ? newIncrementalRebuildFolder() : REBUILD_WEAVING_FOLDERS.get().next();
 
         List<File> writtenFiles = getApp().write(tempFolder);
         ClavaLog.debug(() -> "Files written during rebuild: " + writtenFiles);
 
-        Set<File> includeFolders = getSourceIncludeFoldersFromTempFolder(tempFolder);
-
         /*
         // If we are skipping the parsing of include folders, we should include the original include folders as includes
         if (args.get(CxxWeaverOption.SKIP_HEADER_INCLUDES_PARSING)) {
@@ -1411,39 +1466,8 @@ public class CxxWeaver extends ACxxWeaver {
         }
         */
 
-        ClavaLog.debug(() -> "Include folders for rebuild, from folder '" + tempFolder + "': " + includeFolders);
-
-        List<String> extraOptions = new ArrayList<>();
-
-        // Add original includes as extra options, in case it needs any header file that is excluded from parsing (e.g.,
-        // .incl)
-        List<File> originalHeaderIncludes = args.get(CxxWeaverOption.HEADER_INCLUDES).getFiles();
-        originalHeaderIncludes.stream().map(folder -> "-I" + folder.getAbsolutePath())
-                .forEach(extraOptions::add);
-        // includeFolders.addAll(originalHeaderIncludes);
-
-        // ClavaLog.debug(() -> "All include folders for rebuild" + includeFolders);
-
-        List<String> rebuildOptions = new ArrayList<>();
-
-        // Copy current options, removing previous normal includes
-        parserOptions.stream()
-                .filter(option -> !option.startsWith("-I"))
-                .forEach(rebuildOptions::add);
-        // rebuildOptions.addAll(parserOptions);
-
-        // Add include folders
-        for (File includeFolder : includeFolders) {
-            // rebuildOptions.add(0, "\"-I" + includeFolder.getAbsolutePath() + "\"");
-            rebuildOptions.add(0, "-I" + includeFolder.getAbsolutePath());
-        }
-
-        // Add extra includes
-        // for (File extraInclude : getApp().getExternalDependencies().getExtraIncludes()) {
-        for (File extraInclude : getExternalIncludeFolders()) {
-            // rebuildOptions.add(0, "\"-I" + extraInclude.getAbsolutePath() + "\"");
-            rebuildOptions.add(0, "-I" + extraInclude.getAbsolutePath());
-        }
+        List<String> extraOptions = getRebuildExtraOptions();
+        List<String> rebuildOptions = getRebuildOptions(tempFolder);
 
         // App rebuiltApp = createApp(srcFolders, rebuildOptions);
         // List<File> srcFolders = new ArrayList<>(includeFolders);
@@ -1477,45 +1501,353 @@ public class CxxWeaver extends ACxxWeaver {
             // Add rebuilt app
             weaverData.pushAst(rebuiltApp);
 
-            // Create file->base map
-            // Since files where all written to the same folder:
-            // 1) If the parent folder is the same as the temp folder, it has not base folder;
-            // 2) Otherwise, the temp folder is the base folder
-            Map<File, File> writtenFilesToBase = new HashMap<>();
+            updateSources(getWrittenFilesToBase(writtenFiles, tempFolder));
+
+            // baseFolder = tempFolder;
+
+            // Next rebuild of this App can be incremental
+            if (incremental) {
+                incrementalRebuildApp = rebuiltApp;
+            }
+        }
+
+        // Clear user values, all stored nodes are invalid now
+        // userValues = new HashMap<>();
+        // Discard user values
+        // userValuesStack.pop();
+        // userValuesStack.push(new HashMap<>());
+    }
+
+    /**
+     * Re-parses only the translation units whose code changed since the last rebuild, plus the translation units that
+     * include them, and replaces them in the current App.
+     * 
+     * <p>
+     * Assumes that the current App was created by a previous rebuild in the folder 'incrementalRebuildFolder', which
+     * contains the code from which the current translation units were parsed.
+     * 
+     * @return false if the translation units that are not parsed again reference nodes of the translation units that
+     *         would be replaced, in which case the AST must be completely rebuilt
+     */
+    private boolean rebuildAstIncremental() {
+        File tempFolder = incrementalRebuildFolder;
+        App app = getApp();
+
+        // Write only the files whose code changed
+        Map<File, TranslationUnit> destinationToTUnit = new HashMap<>();
+        Set<TranslationUnit> changedTUnits = new LinkedHashSet<>();
+
+        for (TranslationUnit tUnit : app.getTranslationUnits()) {
+            File destinationFile = tUnit.getDestinationFile(tempFolder);
+            destinationToTUnit.put(destinationFile, tUnit);
+
+            String code = tUnit.getCode();
+
+            if (destinationFile.isFile() && areEqual(destinationFile, code)) {
+                continue;
+            }
+
+            SpecsIo.write(destinationFile, code);
+            changedTUnits.add(tUnit);
+        }
+
+        if (changedTUnits.isEmpty()) {
+            ClavaLog.debug("Incremental rebuild: no changes found, skipping parsing");
+            return true;
+        }
+
+        // Translation units that include changed files must also be parsed again
+        Set<TranslationUnit> tUnitsToParse = getIncludingTUnits(app.getTranslationUnits(), changedTUnits);
+
+        List<File> filesToParse = destinationToTUnit.entrySet().stream()
+                .filter(entry -> tUnitsToParse.contains(entry.getValue()))
+                .map(Entry::getKey)
+                .collect(Collectors.toList());
+
+        List<TranslationUnit> baseTUnits = app.getTranslationUnits().stream()
+                .filter(tUnit -> !tUnitsToParse.contains(tUnit))
+                .collect(Collectors.toList());
+
+        // Fields of the translation units that are kept would point to nodes that are no longer in the tree
+        if (hasReferencesTo(app, tUnitsToParse)) {
+            ClavaLog.debug("Incremental rebuild: unchanged files reference nodes of changed files, rebuilding all files");
+            return false;
+        }
+
+        ClavaLog.debug(() -> "Incremental rebuild: parsing " + filesToParse.size() + " out of "
+                + destinationToTUnit.size() + " files: " + filesToParse);
+
+        App rebuiltApp = createApp(filesToParse, getRebuildOptions(tempFolder), getRebuildExtraOptions(),
+                baseTUnits);
+
+        // Creating an app automatically pushes the App in the Context
+        context.popApp();
+
+        // Replace the old translation units with the new ones
+        Map<File, TranslationUnit> rebuiltTUnits = new HashMap<>();
+        for (TranslationUnit rebuiltTUnit : rebuiltApp.getTranslationUnits()) {
+            rebuiltTUnits.put(SpecsIo.getCanonicalFile(rebuiltTUnit.getFile()), rebuiltTUnit);
+        }
+
+        for (File fileToParse : filesToParse) {
+            TranslationUnit oldTUnit = destinationToTUnit.get(fileToParse);
+            TranslationUnit newTUnit = rebuiltTUnits.get(SpecsIo.getCanonicalFile(fileToParse));
+
+            if (newTUnit == null) {
+                ClavaLog.info("Could not find the rebuilt file '" + fileToParse + "', keeping previous version");
+                continue;
+            }
+
+            newTUnit.detach();
+            NodeInsertUtils.replace(oldTUnit, newTUnit);
+
+            migrateUserFields(oldTUnit, newTUnit);
+        }
+
+        updateSources(getWrittenFilesToBase(new ArrayList<>(destinationToTUnit.keySet()), tempFolder));
+        app.setSources(currentBases);
+        app.setSourceFoldernames(sourceFoldernames);
+
+        // Node index of the App was updated when the translation units were replaced
+        return true;
+    }
+
+    /**
+     * 
+     * @param app
+     * @param replacedTUnits
+     * @return true if a node of a translation unit that is not replaced references, in its fields or through the
+     *         types in its fields, a declaration of the replaced translation units
+     */
+    private static boolean hasReferencesTo(App app, Set<TranslationUnit> replacedTUnits) {
+        NodeIndex nodeIndex = app.getNodeIndex();
+
+        for (TranslationUnit replacedTUnit : replacedTUnits) {
+            List<Decl> decls = replacedTUnit.getDescendantsStream()
+                    .filter(Decl.class::isInstance)
+                    .map(Decl.class::cast)
+                    .collect(Collectors.toList());
+
+            for (Decl decl : decls) {
+                for (ClavaNode reference : nodeIndex.getReferences(decl)) {
+                    Optional<TranslationUnit> referenceTUnit = reference.getAncestorTry(TranslationUnit.class);
+
+                    if (referenceTUnit.isPresent() && !replacedTUnits.contains(referenceTUnit.get())) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves the user fields of the nodes of a translation unit to the corresponding nodes of the translation unit that
+     * replaced it, matching the nodes by their position in the tree.
+     * 
+     * @param oldTUnit
+     * @param newTUnit
+     */
+    private void migrateUserFields(TranslationUnit oldTUnit, TranslationUnit newTUnit) {
+        UserFields userFields = getUserValues();
+        if (userFields.isEmpty()) {
+            return;
+        }
+
+        migrateUserFields(userFields, oldTUnit, newTUnit);
+
+        // Fields of nodes without a match are lost
+        oldTUnit.getDescendantsStream()
+                .filter(userFields::contains)
+                .forEach(node -> {
+                    ClavaLog.warning("Could not preserve user field for node at location '" + node.getLocation()
+                            + "'");
+                    userFields.clear(node);
+                });
+    }
+
+    private static void migrateUserFields(UserFields userFields, ClavaNode oldNode, ClavaNode newNode) {
+        if (oldNode.getClass() != newNode.getClass()) {
+            return;
+        }
+
+        userFields.move(oldNode, newNode);
 
-            for (File writtenFile : writtenFiles) {
+        // Match children from the start and from the end, stopping at the first mismatch (e.g., inserted code)
+        List<ClavaNode> oldChildren = oldNode.getChildren();
+        List<ClavaNode> newChildren = newNode.getChildren();
+        int numChildren = Math.min(oldChildren.size(), newChildren.size());
 
-                // If the parent folder is the same as the temp folder, it has no base folder
-                if (writtenFile.getParentFile().equals(tempFolder)) {
-                    writtenFilesToBase.put(writtenFile, null);
+        int prefix = 0;
+        while (prefix < numChildren
+                && oldChildren.get(prefix).getClass() == newChildren.get(prefix).getClass()) {
+            migrateUserFields(userFields, oldChildren.get(prefix), newChildren.get(prefix));
+            prefix++;
+        }
+
+        for (int suffix = 1; prefix + suffix <= numChildren; suffix++) {
+            ClavaNode oldChild = oldChildren.get(oldChildren.size() - suffix);
+            ClavaNode newChild = newChildren.get(newChildren.size() - suffix);
+
+            if (oldChild.getClass() != newChild.getClass()) {
+                break;
+            }
+
+            migrateUserFields(userFields, oldChild, newChild);
+        }
+    }
+
+    /**
+     * 
+     * @param tUnits
+     * @param changedTUnits
+     * @return the changed translation units, plus all translation units that directly or transitively include one of
+     *         the changed translation units
+     */
+    private static Set<TranslationUnit> getIncludingTUnits(List<TranslationUnit> tUnits,
+            Set<TranslationUnit> changedTUnits) {
+
+        Set<TranslationUnit> includingTUnits = new LinkedHashSet<>(changedTUnits);
+
+        boolean foundNew = true;
+        while (foundNew) {
+            foundNew = false;
+
+            for (TranslationUnit tUnit : tUnits) {
+                if (includingTUnits.contains(tUnit)) {
                     continue;
                 }
 
-                // Calculate base folder as being the path next to temp folder
-                String relativePath = SpecsIo.getRelativePath(writtenFile, tempFolder);
+                boolean includesChanged = tUnit.getIncludes().getIncludes().stream()
+                        .map(include -> include.getInclude().getInclude())
+                        .anyMatch(includeName -> includingTUnits.stream()
+                                .anyMatch(changed -> isIncludeOf(includeName, changed)));
+
+                if (includesChanged) {
+                    includingTUnits.add(tUnit);
+                    foundNew = true;
+                }
+            }
+        }
+
+        return includingTUnits;
+    }
+
+    /**
+     * Matches whole path components (e.g., "a.h" matches "inc/a.h", but not "inc/data.h"). Leading "./" and "../"
+     * components of the include are ignored, which can only add translation units to parse again.
+     * 
+     * @param includeName
+     * @param tUnit
+     * @return true if the given include can refer to the file of the translation unit
+     */
+    private static boolean isIncludeOf(String includeName, TranslationUnit tUnit) {
+        String include = SpecsIo.normalizePath(includeName);
+        while (include.startsWith("./") || include.startsWith("../")) {
+            include = include.substring(include.indexOf('/') + 1);
+        }
+
+        String filepath = SpecsIo.normalizePath(tUnit.getRelativeFilepath());
+
+        return filepath.equals(include) || filepath.endsWith("/" + include);
+    }
+
+    private List<String> getRebuildExtraOptions() {
+        List<String> extraOptions = new ArrayList<>();
+
+        // Add original includes as extra options, in case it needs any header file that is excluded from parsing (e.g.,
+        // .incl)
+        List<File> originalHeaderIncludes = args.get(CxxWeaverOption.HEADER_INCLUDES).getFiles();
+        originalHeaderIncludes.stream().map(folder -> "-I" + folder.getAbsolutePath())
+                .forEach(extraOptions::add);
+        // includeFolders.addAll(originalHeaderIncludes);
+
+        return extraOptions;
+    }
+
+    private List<String> getRebuildOptions(File tempFolder) {
+        Set<File> includeFolders = getSourceIncludeFoldersFromTempFolder(tempFolder);
+
+        ClavaLog.debug(() -> "Include folders for rebuild, from folder '" + tempFolder + "': " + includeFolders);
+
+        // ClavaLog.debug(() -> "All include folders for rebuild" + includeFolders);
+
+        List<String> rebuildOptions = new ArrayList<>();
+
+        // Copy current options, removing previous normal includes
+        parserOptions.stream()
+                .filter(option -> !option.startsWith("-I"))
+                .forEach(rebuildOptions::add);
+        // rebuildOptions.addAll(parserOptions);
+
+        // Add include folders
+        for (File includeFolder : includeFolders) {
+            // rebuildOptions.add(0, "\"-I" + includeFolder.getAbsolutePath() + "\"");
+            rebuildOptions.add(0, "-I" + includeFolder.getAbsolutePath());
+        }
 
-                int slashIndex = relativePath.indexOf('/');
-                SpecsCheck.checkArgument(slashIndex != -1,
-                        () -> "Expected to have at least one slash: " + relativePath);
-                String sourceFoldername = relativePath.substring(0, slashIndex);
+        // Add extra includes
+        // for (File extraInclude : getApp().getExternalDependencies().getExtraIncludes()) {
+        for (File extraInclude : getExternalIncludeFolders()) {
+            // rebuildOptions.add(0, "\"-I" + extraInclude.getAbsolutePath() + "\"");
+            rebuildOptions.add(0, "-I" + extraInclude.getAbsolutePath());
+        }
 
-                writtenFilesToBase.put(writtenFile, new File(tempFolder, sourceFoldername));
-                // File baseFolder = writtenFile.getParentFile().equals(tempFolder) ? null : tempFolder;
-                // writtenFilesToBase.put(writtenFile, baseFolder);
+        return rebuildOptions;
+    }
+
+    /**
+     * Creates a file->base map.
+     * 
+     * <p>
+     * Since files where all written to the same folder:<br>
+     * 1) If the parent folder is the same as the temp folder, it has not base folder;<br>
+     * 2) Otherwise, the temp folder is the base folder
+     */
+    private static Map<File, File> getWrittenFilesToBase(List<File> writtenFiles, File tempFolder) {
+        Map<File, File> writtenFilesToBase = new HashMap<>();
+
+        for (File writtenFile : writtenFiles) {
+
+            // If the parent folder is the same as the temp folder, it has no base folder
+            if (writtenFile.getParentFile().equals(tempFolder)) {
+                writtenFilesToBase.put(writtenFile, null);
+                continue;
             }
-            // writtenFiles.stream().forEach(
-            // file -> file.getParentFile().equals(tempFolder) ? null : writtenFilesToBase.put(file, tempFolder));
 
-            updateSources(writtenFilesToBase);
+            // Calculate base folder as being the path next to temp folder
+            String relativePath = SpecsIo.getRelativePath(writtenFile, tempFolder);
 
-            // baseFolder = tempFolder;
+            int slashIndex = relativePath.indexOf('/');
+            SpecsCheck.checkArgument(slashIndex != -1,
+                    () -> "Expected to have at least one slash: " + relativePath);
+            String sourceFoldername = relativePath.substring(0, slashIndex);
+
+            writtenFilesToBase.put(writtenFile, new File(tempFolder, sourceFoldername));
+            // File baseFolder = writtenFile.getParentFile().equals(tempFolder) ? null : tempFolder;
+            // writtenFilesToBase.put(writtenFile, baseFolder);
         }
+        // writtenFiles.stream().forEach(
+        // file -> file.getParentFile().equals(tempFolder) ? null : writtenFilesToBase.put(file, tempFolder));
 
-        // Clear user values, all stored nodes are invalid now
-        // userValues = new HashMap<>();
-        // Discard user values
-        // userValuesStack.pop();
-        // userValuesStack.push(new HashMap<>());
+        return writtenFilesToBase;
+    }
+
+    /**
+     * Incremental rebuilds need the code of the last rebuild to stay in the same folder, so they use a dedicated
+     * folder instead of the rotating rebuild folders.
+     * 
+     * @return an empty folder for a full incremental rebuild
+     */
+    private File newIncrementalRebuildFolder() {
+        if (incrementalRebuildFolder == null) {
+            incrementalRebuildFolder = newTemporaryWeavingFolder();
+        }
+
+        SpecsIo.deleteFolderContents(incrementalRebuildFolder, true);
+
+        return incrementalRebuildFolder;
     }
 
     /**
@@ -1561,26 +1893,11 @@ public class CxxWeaver extends ACxxWeaver {
     }
 
     public Object getUserField(ClavaNode node, String fieldName) {
-        // Get node values
-        Map<String, Object> values = getUserValues().get(node);
-        if (values == null) {
-            return null;
-        }
-
-        return values.get(fieldName);
+        return getUserValues().get(node, fieldName);
     }
 
     public Object setUserField(ClavaNode node, String fieldName, Object value) {
-        // Get node values
-        Map<String, Object> values = getUserValues().get(node);
-
-        // Initialize map if null
-        if (values == null) {
-            values = new HashMap<>();
-            getUserValues().put(node, values);
-        }
-
-        return values.put(fieldName, value);
+        return getUserValues().set(node, fieldName, value);
     }
 
     public List<File> getSources() {
@@ -1588,7 +1905,7 @@ public class CxxWeaver extends ACxxWeaver {
     }
 
     public boolean clearUserField(ClavaNode node) {
-        return getUserValues().remove(node) != null;
+        return getUserValues().clear(node);
     }
 
     public static CxxWeaver getCxxWeaver() {
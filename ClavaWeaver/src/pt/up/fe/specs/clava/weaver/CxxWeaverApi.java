@@ -16,11 +16,13 @@ package pt.up.fe.specs.clava.weaver;
 import java.io.File;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import pt.up.fe.specs.clava.ast.extra.App;
 import pt.up.fe.specs.clava.weaver.abstracts.ACxxWeaverJoinPoint;
 import pt.up.fe.specs.clava.weaver.abstracts.joinpoints.AInclude;
+import pt.up.fe.specs.clava.weaver.abstracts.joinpoints.AJoinPoint;
 
 public class CxxWeaverApi {
 
@@ -93,4 +95,16 @@ public class CxxWeaverApi {
         return CxxWeaver.getCxxWeaver().getIncludeFolders();
     }
 
+    /**
+     * Applies the action to each join point of the given type in the program, file by file. If the parallel search of
+     * join points is enabled, the join points of different files are searched concurrently. The action always runs on
+     * the calling thread.
+     *
+     * @param joinPointType
+     * @param action
+     */
+    public static void applyPerFile(String joinPointType, Consumer<AJoinPoint> action) {
+        CxxWeaver.getCxxWeaver().getPerFileApply().apply(joinPointType, action);
+    }
+
 }
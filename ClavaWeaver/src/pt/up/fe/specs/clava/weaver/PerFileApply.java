@@ -0,0 +1,131 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.weaver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.ast.extra.TranslationUnit;
+import pt.up.fe.specs.clava.weaver.abstracts.joinpoints.AJoinPoint;
+import pt.up.fe.specs.clava.weaver.options.CxxWeaverOption;
+import pt.up.fe.specs.util.SpecsSystem;
+
+/**
+ * Applies actions to the join points of each file of the program.
+ *
+ * <p>
+ * When the parallel search of join points is enabled, the join points of different translation units are searched
+ * concurrently. Actions always run on the calling thread, since the script engine and the AST (e.g., types shared
+ * between translation units) are not thread-safe.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class PerFileApply {
+
+    private final CxxWeaver weaver;
+
+    public PerFileApply(CxxWeaver weaver) {
+        this.weaver = weaver;
+    }
+
+    /**
+     * Applies the action to each join point of the given type in the program. Join points are visited file by file,
+     * in the same order as the descendants of the program.
+     *
+     * @param joinPointType
+     * @param action
+     */
+    public void apply(String joinPointType, Consumer<? super AJoinPoint> action) {
+        List<TranslationUnit> tUnits = weaver.getApp().getTranslationUnits();
+        List<List<ClavaNode>> unitNodes = findNodes(tUnits, joinPointType);
+
+        // Join points are created on the calling thread, right before applying the action
+        for (List<ClavaNode> nodes : unitNodes) {
+            for (ClavaNode node : nodes) {
+                action.accept(CxxJoinpoints.create(node));
+            }
+        }
+    }
+
+    /**
+     *
+     * @param tUnits
+     * @param joinPointType
+     * @return for each translation unit, the nodes that are join points of the given type
+     */
+    private List<List<ClavaNode>> findNodes(List<TranslationUnit> tUnits, String joinPointType) {
+        int numThreads = Math.min(getNumThreads(), tUnits.size());
+
+        if (numThreads < 2) {
+            return tUnits.stream()
+                    .map(tUnit -> findNodes(tUnit, joinPointType))
+                    .collect(Collectors.toList());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<List<ClavaNode>>> futures = new ArrayList<>(tUnits.size());
+            for (TranslationUnit tUnit : tUnits) {
+                futures.add(executor.submit(() -> findNodesTask(tUnit, joinPointType)));
+            }
+
+            // Wait for all translation units, propagating exceptions
+            return futures.stream()
+                    .map(SpecsSystem::get)
+                    .collect(Collectors.toList());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<ClavaNode> findNodesTask(TranslationUnit tUnit, String joinPointType) {
+        // The weaver is thread-local, set it for the pool thread
+        weaver.setWeaver();
+
+        try {
+            return findNodes(tUnit, joinPointType);
+        } finally {
+            weaver.removeWeaver();
+        }
+    }
+
+    /**
+     * Only reads the tree.
+     */
+    private static List<ClavaNode> findNodes(TranslationUnit tUnit, String joinPointType) {
+        return tUnit.getDescendantsStream()
+                .filter(node -> CxxJoinpoints.instanceOf(node, joinPointType))
+                .collect(Collectors.toList());
+    }
+
+    private int getNumThreads() {
+        if (!weaver.getConfig().get(CxxWeaverOption.PARALLEL_JP_SEARCH)) {
+            return 1;
+        }
+
+        int numThreads = weaver.getConfig().get(CxxWeaverOption.JP_SEARCH_NUM_THREADS);
+        if (numThreads > 0) {
+            return numThreads;
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
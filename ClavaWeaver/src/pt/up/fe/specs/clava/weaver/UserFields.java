@@ -0,0 +1,169 @@
+/**
+ * Copyright 2019 SPeCS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License. under the License.
+ */
+
+package pt.up.fe.specs.clava.weaver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+
+import pt.up.fe.specs.clava.ClavaNode;
+import pt.up.fe.specs.clava.utils.WeakIdentityMap;
+
+/**
+ * The user fields of the nodes of an AST.
+ *
+ * <p>
+ * Each field name is mapped to a slot, and the values of a node are stored in an array indexed by slot. Nodes are
+ * weakly referenced and compared by identity, the values of a node are released once the node is no longer
+ * reachable, e.g. after it is removed from the tree. Values that reference their own node keep the node alive.
+ *
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author JoaoBispo
+ *
+ */
+public class UserFields {
+
+    /**
+     * The values of the fields of a node. Copies of UserFields share these objects, the same way they shared the map
+     * of values of each node.
+     */
+    private static class NodeValues {
+        private Object[] values;
+
+        public NodeValues(int size) {
+            this.values = new Object[size];
+        }
+    }
+
+    // Shared by all copies, the slots of the values shared between copies must be the same
+    private final Map<String, Integer> fieldSlots;
+    private final WeakIdentityMap<ClavaNode, NodeValues> values;
+
+    public UserFields() {
+        this(new HashMap<>());
+    }
+
+    private UserFields(Map<String, Integer> fieldSlots) {
+        this.fieldSlots = fieldSlots;
+        this.values = new WeakIdentityMap<>();
+    }
+
+    public Object get(ClavaNode node, String fieldName) {
+        Integer slot = fieldSlots.get(fieldName);
+        if (slot == null) {
+            return null;
+        }
+
+        NodeValues nodeValues = values.get(node);
+        if (nodeValues == null || slot >= nodeValues.values.length) {
+            return null;
+        }
+
+        return nodeValues.values[slot];
+    }
+
+    /**
+     *
+     * @param node
+     * @param fieldName
+     * @param value
+     * @return the previous value of the field, or null if it was not set
+     */
+    public Object set(ClavaNode node, String fieldName, Object value) {
+        int slot = fieldSlots.computeIfAbsent(fieldName, name -> fieldSlots.size());
+
+        NodeValues nodeValues = values.get(node);
+        if (nodeValues == null) {
+            nodeValues = new NodeValues(fieldSlots.size());
+            values.put(node, nodeValues);
+        }
+
+        // Slots are only as many as the fields known when the array was created
+        if (slot >= nodeValues.values.length) {
+            nodeValues.values = Arrays.copyOf(nodeValues.values, fieldSlots.size());
+        }
+
+        Object previousValue = nodeValues.values[slot];
+        nodeValues.values[slot] = value;
+
+        return previousValue;
+    }
+
+    /**
+     *
+     * @param node
+     * @return true if the node had user fields
+     */
+    public boolean clear(ClavaNode node) {
+        return values.remove(node) != null;
+    }
+
+    /**
+     *
+     * @param node
+     * @return true if the node has user fields
+     */
+    public boolean contains(ClavaNode node) {
+        return values.get(node) != null;
+    }
+
+    /**
+     * Moves the user fields of a node to another node (e.g., the corresponding node of a re-parsed tree).
+     *
+     * @param from
+     * @param to
+     * @return true if the node had user fields
+     */
+    public boolean move(ClavaNode from, ClavaNode to) {
+        NodeValues nodeValues = values.remove(from);
+        if (nodeValues == null) {
+            return false;
+        }
+
+        values.put(to, nodeValues);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Copies the user fields to other nodes (e.g., the nodes of a copy of the AST). The values of a node are shared
+     * between the original and the copy.
+     *
+     * @param nodeMapper
+     *            returns the node that receives the fields of the given node, or null if the fields should be
+     *            discarded
+     * @return a new instance with the copied fields
+     */
+    public UserFields copy(Function<ClavaNode, ClavaNode> nodeMapper) {
+        UserFields copy = new UserFields(fieldSlots);
+
+        for (Entry<ClavaNode, NodeValues> entry : values.getEntries()) {
+            ClavaNode newNode = nodeMapper.apply(entry.getKey());
+            if (newNode == null) {
+                continue;
+            }
+
+            copy.values.put(newNode, entry.getValue());
+        }
+
+        return copy;
+    }
+}
@@ -170,14 +170,12 @@ public abstract class ACxxWeaverJoinPoint extends AJoinPoint {
 
         ClavaNode currentNode = getNode();
         while (currentNode.hasParent()) {
-            // Create join point for testing type
-            ACxxWeaverJoinPoint parentJp = CxxJoinpoints.create(currentNode.getParent());
+            currentNode = currentNode.getParent();
 
-            if (parentJp.instanceOf(type)) {
-                return parentJp;
+            // Only create the join point of the ancestor that is returned
+            if (CxxJoinpoints.instanceOf(currentNode, type)) {
+                return CxxJoinpoints.create(currentNode);
             }
-
-            currentNode = parentJp.getNode();
         }
 
         return null;
@@ -187,23 +185,17 @@ public abstract class ACxxWeaverJoinPoint extends AJoinPoint {
     public AJoinPoint[] descendantsArrayImpl(String type) {
         Preconditions.checkNotNull(type, "Missing type of descendants in attribute 'descendants'");
 
-        Incrementer nullJoinpoints = new Incrementer();
         Incrementer excludedJoinpoints = new Incrementer();
+        // Filter the nodes before creating join points, only accepted nodes have a join point created
         AJoinPoint[] descendants = getNode().getDescendantsStream()
-                .map(descendant -> CxxJoinpoints.create(descendant))
-                .filter(jp -> {
-                    // Count null join points separately
-                    if (jp == null) {
-                        nullJoinpoints.increment();
-                        return false;
-                    }
-
-                    boolean accepted = jp.instanceOf(type);
+                .filter(descendant -> {
+                    boolean accepted = CxxJoinpoints.instanceOf(descendant, type);
                     if (!accepted) {
                         excludedJoinpoints.increment();
                     }
                     return accepted;
                 })
+                .map(descendant -> CxxJoinpoints.create(descendant))
                 // .filter(jp -> jp.getJoinpointType().equals(type))
                 .toArray(AJoinPoint[]::new);
 
@@ -240,8 +232,8 @@ public abstract class ACxxWeaverJoinPoint extends AJoinPoint {
         Preconditions.checkNotNull(type, "Missing type of descendants in attribute 'descendants'");
 
         AJoinPoint[] descendants = getNode().getDescendantsAndSelfStream()
+                .filter(descendant -> CxxJoinpoints.instanceOf(descendant, type))
                 .map(descendant -> CxxJoinpoints.create(descendant))
-                .filter(jp -> jp.instanceOf(type))
                 // .filter(jp -> jp.getJoinpointType().equals(type))
                 .toArray(AJoinPoint[]::new);
 
@@ -488,6 +488,70 @@ public abstract class AFunction extends ADeclarator {
         }
     }
 
+    /**
+     * the functions that contain calls to this function
+     */
+    public abstract AFunction[] getCallersArrayImpl();
+
+    /**
+     * the functions that contain calls to this function
+     */
+    public Object getCallersImpl() {
+        AFunction[] aFunctionArrayImpl0 = getCallersArrayImpl();
+        Object nativeArray0 = getWeaverEngine().getScriptEngine().toNativeArray(aFunctionArrayImpl0);
+        return nativeArray0;
+    }
+
+    /**
+     * the functions that contain calls to this function
+     */
+    public final Object getCallers() {
+        try {
+        	if(hasListeners()) {
+        		eventTrigger().triggerAttribute(Stage.BEGIN, this, "callers", Optional.empty());
+        	}
+        	Object result = this.getCallersImpl();
+        	if(hasListeners()) {
+        		eventTrigger().triggerAttribute(Stage.END, this, "callers", Optional.ofNullable(result));
+        	}
+        	return result!=null?result:getUndefinedValue();
+        } catch(Exception e) {
+        	throw new AttributeException(get_class(), "callers", e);
+        }
+    }
+
+    /**
+     * the functions called in the body of this function
+     */
+    public abstract AFunction[] getCalleesArrayImpl();
+
+    /**
+     * the functions called in the body of this function
+     */
+    public Object getCalleesImpl() {
+        AFunction[] aFunctionArrayImpl0 = getCalleesArrayImpl();
+        Object nativeArray0 = getWeaverEngine().getScriptEngine().toNativeArray(aFunctionArrayImpl0);
+        return nativeArray0;
+    }
+
+    /**
+     * the functions called in the body of this function
+     */
+    public final Object getCallees() {
+        try {
+        	if(hasListeners()) {
+        		eventTrigger().triggerAttribute(Stage.BEGIN, this, "callees", Optional.empty());
+        	}
+        	Object result = this.getCalleesImpl();
+        	if(hasListeners()) {
+        		eventTrigger().triggerAttribute(Stage.END, this, "callees", Optional.ofNullable(result));
+        	}
+        	return result!=null?result:getUndefinedValue();
+        } catch(Exception e) {
+        	throw new AttributeException(get_class(), "callees", e);
+        }
+    }
+
     /**
      * a string with the signature of this function (e.g., name of the function, plus the parameters types)
      */
@@ -1159,6 +1223,8 @@ public abstract class AFunction extends ADeclarator {
         attributes.add("isDelete");
         attributes.add("storageClass");
         attributes.add("calls");
+        attributes.add("callers");
+        attributes.add("callees");
         attributes.add("signature");
     }
 
@@ -1232,6 +1298,8 @@ public abstract class AFunction extends ADeclarator {
         ISDELETE("isDelete"),
         STORAGECLASS("storageClass"),
         CALLS("calls"),
+        CALLERS("callers"),
+        CALLEES("callees"),
         SIGNATURE("signature"),
         NAME("name"),
         ISPUBLIC("isPublic"),
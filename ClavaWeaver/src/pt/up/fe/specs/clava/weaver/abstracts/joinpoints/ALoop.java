@@ -932,6 +932,31 @@ public abstract class ALoop extends AStatement {
         }
     }
 
+    /**
+     * Tests the dependences carried by the loop between accesses to arrays, without external tools. Returns an object with the methods isAnalyzable(), isParallel(), getDependences(), getScalarWrites(), getPointerWrites(), getUnknownCalls() and getUnanalyzableReason()
+     */
+    public Object testDependencesImpl() {
+        throw new UnsupportedOperationException(get_class()+": Action testDependences not implemented ");
+    }
+
+    /**
+     * Tests the dependences carried by the loop between accesses to arrays, without external tools. Returns an object with the methods isAnalyzable(), isParallel(), getDependences(), getScalarWrites(), getPointerWrites(), getUnknownCalls() and getUnanalyzableReason()
+     */
+    public final Object testDependences() {
+        try {
+        	if(hasListeners()) {
+        		eventTrigger().triggerAction(Stage.BEGIN, "testDependences", this, Optional.empty());
+        	}
+        	Object result = this.testDependencesImpl();
+        	if(hasListeners()) {
+        		eventTrigger().triggerAction(Stage.END, "testDependences", this, Optional.ofNullable(result));
+        	}
+        	return result;
+        } catch(Exception e) {
+        	throw new ActionException(get_class(), "testDependences", e);
+        }
+    }
+
     /**
      * Get value on attribute isFirst
      * @return the attribute's value
@@ -1453,6 +1478,7 @@ public abstract class ALoop extends AStatement {
         actions.add("void setCondRelation(Relation)");
         actions.add("void setCondRelation(String)");
         actions.add("void setBody(scope)");
+        actions.add("Object testDependences()");
     }
 
     /**
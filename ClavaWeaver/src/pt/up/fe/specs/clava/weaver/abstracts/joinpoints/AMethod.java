@@ -197,6 +197,24 @@ public abstract class AMethod extends AFunction {
         return this.aFunction.getCallsArrayImpl();
     }
 
+    /**
+     * Get value on attribute callersArrayImpl
+     * @return the attribute's value
+     */
+    @Override
+    public AFunction[] getCallersArrayImpl() {
+        return this.aFunction.getCallersArrayImpl();
+    }
+
+    /**
+     * Get value on attribute calleesArrayImpl
+     * @return the attribute's value
+     */
+    @Override
+    public AFunction[] getCalleesArrayImpl() {
+        return this.aFunction.getCalleesArrayImpl();
+    }
+
     /**
      * Get value on attribute signature
      * @return the attribute's value
@@ -753,6 +771,8 @@ public abstract class AMethod extends AFunction {
         ISDELETE("isDelete"),
         STORAGECLASS("storageClass"),
         CALLS("calls"),
+        CALLERS("callers"),
+        CALLEES("callees"),
         SIGNATURE("signature"),
         NAME("name"),
         ISPUBLIC("isPublic"),
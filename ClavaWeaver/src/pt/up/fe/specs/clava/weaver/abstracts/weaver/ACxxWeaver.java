@@ -24,7 +24,7 @@ public abstract class ACxxWeaver extends WeaverEngine {
      */
     @Override
     public final List<String> getActions() {
-        String[] weaverActions= {"replaceWith", "replaceWith", "insertBefore", "insertBefore", "insertAfter", "insertAfter", "detach", "setType", "copy", "deepCopy", "setUserField", "setUserField", "setValue", "messageToUser", "removeChildren", "setFirstChild", "setLastChild", "rebuild", "addFile", "addFileFromPath", "push", "pop", "addExtraInclude", "addExtraIncludeFromGit", "addExtraIncludeFromGit", "addExtraSource", "addExtraSourceFromGit", "addExtraSourceFromGit", "addProjectFromGit", "addProjectFromGit", "addExtraLib", "atexit", "addInclude", "addInclude", "addIncludeJp", "addGlobal", "write", "rebuild", "rebuildTry", "insertBegin", "insertBegin", "insertEnd", "insertEnd", "addFunction", "setRelativeFolderpath", "setName", "wrap", "inline", "setArgFromString", "setArg", "insertBegin", "insertBegin", "insertEnd", "insertEnd", "addLocal", "addLocal", "setNaked", "clear", "clone", "cloneOnFile", "cloneOnFile", "insertReturn", "insertReturn", "setParams", "setParamsFromStrings", "setBody", "newCall", "setFunctionType", "setName", "setQualifiedPrefix", "setQualifiedName", "changeKind", "setKind", "setInit", "setInitValue", "setEndValue", "setCond", "setStep", "setIsParallel", "interchange", "tile", "tile", "setCondRelation", "setCondRelation", "setBody", "setKind", "removeClause", "setNumThreads", "setProcBind", "setPrivate", "setReduction", "setDefault", "setFirstprivate", "setLastprivate", "setShared", "setCopyin", "setScheduleKind", "setScheduleChunkSize", "setScheduleChunkSize", "setScheduleModifiers", "setCollapse", "setCollapse", "setOrdered", "setOrdered", "setText", "setName", "setContent", "setInit", "setInit", "setName", "setLeft", "setRight", "setTemplateArgsTypes", "setTemplateArgsTypes", "setDesugar", "setTypeFieldByValueRecursive", "setUnderlyingType", "setReturnType", "setArgType", "setPointee", "setSizeExpr"};
+        String[] weaverActions= {"replaceWith", "replaceWith", "insertBefore", "insertBefore", "insertAfter", "insertAfter", "detach", "setType", "copy", "deepCopy", "setUserField", "setUserField", "setValue", "messageToUser", "removeChildren", "setFirstChild", "setLastChild", "rebuild", "addFile", "addFileFromPath", "push", "pop", "addExtraInclude", "addExtraIncludeFromGit", "addExtraIncludeFromGit", "addExtraSource", "addExtraSourceFromGit", "addExtraSourceFromGit", "addProjectFromGit", "addProjectFromGit", "addExtraLib", "atexit", "addInclude", "addInclude", "addIncludeJp", "addGlobal", "write", "rebuild", "rebuildTry", "insertBegin", "insertBegin", "insertEnd", "insertEnd", "addFunction", "setRelativeFolderpath", "setName", "wrap", "inline", "setArgFromString", "setArg", "insertBegin", "insertBegin", "insertEnd", "insertEnd", "addLocal", "addLocal", "setNaked", "clear", "clone", "cloneOnFile", "cloneOnFile", "insertReturn", "insertReturn", "setParams", "setParamsFromStrings", "setBody", "newCall", "setFunctionType", "setName", "setQualifiedPrefix", "setQualifiedName", "changeKind", "setKind", "setInit", "setInitValue", "setEndValue", "setCond", "setStep", "setIsParallel", "interchange", "tile", "tile", "setCondRelation", "setCondRelation", "setBody", "testDependences", "setKind", "removeClause", "setNumThreads", "setProcBind", "setPrivate", "setReduction", "setDefault", "setFirstprivate", "setLastprivate", "setShared", "setCopyin", "setScheduleKind", "setScheduleChunkSize", "setScheduleChunkSize", "setScheduleModifiers", "setCollapse", "setCollapse", "setOrdered", "setOrdered", "setText", "setName", "setContent", "setInit", "setInit", "setName", "setLeft", "setRight", "setTemplateArgsTypes", "setTemplateArgsTypes", "setDesugar", "setTypeFieldByValueRecursive", "setUnderlyingType", "setReturnType", "setArgType", "setPointee", "setSizeExpr"};
         return Arrays.asList(weaverActions);
     }
 
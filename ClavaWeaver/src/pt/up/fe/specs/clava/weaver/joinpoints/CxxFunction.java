@@ -521,6 +521,20 @@ public class CxxFunction extends AFunction {
                 .toArray(ACall[]::new);
     }
 
+    @Override
+    public AFunction[] getCallersArrayImpl() {
+        return function.getCallers().stream()
+                .map(caller -> CxxJoinpoints.create(caller, AFunction.class))
+                .toArray(AFunction[]::new);
+    }
+
+    @Override
+    public AFunction[] getCalleesArrayImpl() {
+        return function.getCallees().stream()
+                .map(callee -> CxxJoinpoints.create(callee, AFunction.class))
+                .toArray(AFunction[]::new);
+    }
+
     @Override
     public void defParamsImpl(AParam[] value) {
         List<ParmVarDecl> newParams = Arrays.stream(value)
@@ -41,7 +41,6 @@ import pt.up.fe.specs.clava.ast.stmt.Stmt;
 import pt.up.fe.specs.clava.ast.stmt.WhileStmt;
 import pt.up.fe.specs.clava.ast.type.Type;
 import pt.up.fe.specs.clava.ast.type.enums.BuiltinKind;
-import pt.up.fe.specs.clava.transform.loop.LoopAnalysisUtils;
 import pt.up.fe.specs.clava.transform.loop.LoopInterchange;
 import pt.up.fe.specs.clava.transform.loop.LoopTiling;
 import pt.up.fe.specs.clava.weaver.CxxJoinpoints;
@@ -124,32 +123,17 @@ public class CxxLoop extends ALoop {
 
     @Override
     public Boolean getIsInnermostImpl() {
-        // Loop is innermost if none of its descendants is a loop
-        Optional<ClavaNode> anotherLoop = loop.getDescendantsStream()
-                .filter(node -> node instanceof LoopStmt)
-                .findFirst();
-
-        return !anotherLoop.isPresent();
+        return loop.isInnermost();
     }
 
     @Override
     public Boolean getIsOutermostImpl() {
-        // Loop is outermost if none of its ancestors is a loop
-        Optional<ClavaNode> anotherLoop = loop.getAscendantsStream()
-                .filter(node -> node instanceof LoopStmt)
-                .findFirst();
-
-        return !anotherLoop.isPresent();
+        return loop.isOutermost();
     }
 
     @Override
     public Integer getNestedLevelImpl() {
-        // Go back and count how many Loops there are
-        long parentLoops = loop.getAscendantsStream()
-                .filter(node -> node instanceof LoopStmt)
-                .count();
-
-        return (int) parentLoops;
+        return loop.getNestedLevel();
     }
 
     @Override
@@ -162,7 +146,7 @@ public class CxxLoop extends ALoop {
 
         ForStmt forStmt = (ForStmt) loop;
 
-        List<String> controlVars = LoopAnalysisUtils.getControlVarNames(forStmt);
+        List<String> controlVars = forStmt.getControlVarNames();
 
         if (controlVars.isEmpty()) {
 
@@ -804,4 +788,9 @@ public class CxxLoop extends ALoop {
     public void setBodyImpl(AScope body) {
         defBodyImpl(body);
     }
+
+    @Override
+    public Object testDependencesImpl() {
+        return loop.getDependences();
+    }
 }
@@ -37,6 +37,15 @@ public interface CxxWeaverOption {
     DataKey<Boolean> CHECK_SYNTAX = KeyFactory.bool("Check C/CXX Syntax")
             .setLabel("Check C/C++ syntax (performs additional parsing step)");
 
+    DataKey<Boolean> INCREMENTAL_REBUILD = KeyFactory.bool("Incremental rebuild")
+            .setLabel("Rebuilding the AST only re-parses the files that changed since the last rebuild");
+
+    DataKey<Boolean> PARALLEL_JP_SEARCH = KeyFactory.bool("Parallel join point search")
+            .setLabel("Clava.applyPerFile searches the join points of each file concurrently (actions run sequentially)");
+
+    DataKey<Integer> JP_SEARCH_NUM_THREADS = KeyFactory.integer("Join point search threads", 0)
+            .setLabel("Number of threads to use for the parallel search of join points (0 uses the number of available processors)");
+
     DataKey<Boolean> CLEAN_INTERMEDIATE_FILES = KeyFactory.bool("Clean intermediate files")
             .setDefault(() -> true);
 
@@ -92,13 +101,17 @@ public interface CxxWeaverOption {
                     // GENERATE_MODIFIED_CODE_ONLY, GENERATE_CMAKE_HELPER_FILES)
                     GENERATE_MODIFIED_CODE_ONLY, GENERATE_CMAKE_HELPER_FILES,
                     // FLATTEN_WOVEN_CODE_FOLDER_STRUCTURE,
-                    COPY_FILES_IN_SOURCES)
+                    COPY_FILES_IN_SOURCES, INCREMENTAL_REBUILD, PARALLEL_JP_SEARCH, JP_SEARCH_NUM_THREADS)
             // GENERATE_MODIFIED_CODE_ONLY, FLATTEN_WOVEN_CODE_FOLDER_STRUCTURE, UNIT_TESTING_MODE)
             .addKey(ClangAstKeys.USE_PLATFORM_INCLUDES)
             .startSection("Parsing Options")
             .addKey(ParallelCodeParser.PARALLEL_PARSING)
             .addKey(ParallelCodeParser.PARSING_NUM_THREADS)
             .addKey(ParallelCodeParser.CONTINUE_ON_PARSING_ERRORS)
+            .addKey(ParallelCodeParser.PARSING_CACHE_FOLDER)
+            .addKey(ParallelCodeParser.PARSING_CACHE_MAX_ENTRIES)
+            .addKey(ParallelCodeParser.PRECOMPILED_HEADER)
+            .addKey(ParallelCodeParser.DUMPER_WORKER_SOURCES)
             .build();
 
 }
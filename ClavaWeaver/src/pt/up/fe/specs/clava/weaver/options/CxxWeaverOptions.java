@@ -54,6 +54,15 @@ public class CxxWeaverOptions {
 
         addBooleanOption(CxxWeaverOption.CHECK_SYNTAX, "cs", "check-syntax", "Checks syntax of woven code");
 
+        addBooleanOption(CxxWeaverOption.INCREMENTAL_REBUILD, "irb", "incremental-rebuild",
+                "When rebuilding the AST, only re-parses the files that changed since the last rebuild");
+
+        addBooleanOption(CxxWeaverOption.PARALLEL_JP_SEARCH, "pjs", "parallel-jp-search",
+                "Clava.applyPerFile searches the join points of different files concurrently, actions still run sequentially");
+
+        addOneArgOption(CxxWeaverOption.JP_SEARCH_NUM_THREADS, "jsthd", "jp-search-threads",
+                "#threads", "Sets the number of threads for the parallel search of join points (0 uses all available processors)");
+
         addBooleanOption(CxxWeaverOption.CLEAN_INTERMEDIATE_FILES, "cl", "clean", "Clean intermediate files");
 
         addBooleanOption(CxxWeaverOption.DISABLE_CODE_GENERATION, "ncg", "no-code-gen",
@@ -109,7 +118,7 @@ public class CxxWeaverOptions {
                 "Enables parallel parsing of source files");
 
         addOneArgOption(ParallelCodeParser.PARSING_NUM_THREADS, "thd", "parsing-threads",
-                "#threads", "Sets the number of threads for parallel parsing");
+                "#threads", "Sets the number of threads for parallel parsing (0 uses all available processors)");
 
         addBooleanOption(ClangAstKeys.USE_PLATFORM_INCLUDES, "psi", "platform-includes",
                 // "Uses the platform system includes headers (if available)");
@@ -118,6 +127,18 @@ public class CxxWeaverOptions {
         addBooleanOption(ParallelCodeParser.CONTINUE_ON_PARSING_ERRORS, "ipe", "ignore-parsing-errors",
                 "Ignores parsing errors in C/C++ source code");
 
+        addOneArgOption(ParallelCodeParser.PARSING_CACHE_FOLDER, "pc", "parsing-cache",
+                "dir", "Caches the output of the parser in the given folder, and reuses it for unchanged files");
+
+        addOneArgOption(ParallelCodeParser.PARSING_CACHE_MAX_ENTRIES, "pcm", "parsing-cache-max-entries",
+                "#entries", "Maximum number of parsed files kept in the parsing cache (default 1000, 0 keeps all)");
+
+        addBooleanOption(ParallelCodeParser.PRECOMPILED_HEADER, "pch", "precompiled-header",
+                "Parses the system includes that all source files start with only once, into a precompiled header");
+
+        addOneArgOption(ParallelCodeParser.DUMPER_WORKER_SOURCES, "dws", "dumper-worker-sources",
+                "#sources", "Keeps the dumper processes alive, restarting them after parsing the given number of sources");
+
         addBooleanOption(CxxWeaverOption.COPY_FILES_IN_SOURCES, "cfs", "copy-files-in-sources",
                 "Copies all files found in sources");
     }
@@ -19,6 +19,7 @@ import org.junit.Test;
 import org.lara.interpreter.joptions.config.interpreter.LaraiKeys;
 
 import pt.up.fe.specs.clava.language.Standard;
+import pt.up.fe.specs.clava.weaver.options.CxxWeaverOption;
 import pt.up.fe.specs.cxxweaver.ClavaWeaverTester;
 import pt.up.fe.specs.lang.SpecsPlatforms;
 import pt.up.fe.specs.util.SpecsSystem;
@@ -79,4 +80,36 @@ public class CApiTest {
     public void testCodeInserter() {
         newTester().test("CodeInserterTest.lara", "code_inserter.c");
     }
+
+    @Test
+    public void testIncrementalRebuild() {
+        newTester().set(CxxWeaverOption.INCREMENTAL_REBUILD)
+                .test("IncrementalRebuildTest.lara", "incremental_rebuild_1.c", "incremental_rebuild_2.c");
+    }
+
+    @Test
+    public void testApplyPerFile() {
+        newTester().set(CxxWeaverOption.PARALLEL_JP_SEARCH)
+                .test("ApplyPerFileTest.lara", "apply_per_file_1.c", "apply_per_file_2.c");
+    }
+
+    @Test
+    public void testCodeCache() {
+        newTester().test("CodeCacheTest.lara", "code_cache_1.c", "code_cache_2.c");
+    }
+
+    @Test
+    public void testCodeWriter() {
+        newTester().test("CodeWriterTest.lara", "code_writer.c");
+    }
+
+    @Test
+    public void testLoopDependences() {
+        newTester().test("LoopDependencesTest.lara", "loop_dependences.c");
+    }
+
+    @Test
+    public void testCallGraph() {
+        newTester().test("CallGraphTest.lara", "call_graph.c");
+    }
 }